@@ -7,7 +7,8 @@
 
 class DataLoader {
 public:
-    static void loadMovies(string filename, Graph& graph) {
+    // Every loaded title is also appended to all when it is given
+    static void loadMovies(string filename, Graph& graph, vector<MovieNode>* all = nullptr) {
         ifstream file(filename);
         if (!file.is_open()) {
             cout << "[Error] Database file '" << filename << "' not found!" << endl;
@@ -33,7 +34,8 @@ public:
                 double rating = stod(data[3]);
                 string url = data[4];
 
-                graph.addEdge(category, title, rating, url);
+                const MovieNode& node = graph.addEdge(category, title, rating, url);
+                if (all != nullptr) all->push_back(node);
                 count++;
             }
         }
@@ -1,30 +1,55 @@
 #ifndef GRAPH_H
 #define GRAPH_H
-#include <map>
-#include <list>
-#include <string>
+
+#include <iostream>
+#include <unordered_map>
+#include <vector>
+#include <algorithm>
 #include "Movie.h"
+
 using namespace std;
 
 class Graph {
-    map<string, list<Movie>> adjList;
+private:
+    // HASH MAP: Category -> List of Movies, kept sorted by rating
+    unordered_map<string, vector<MovieNode>> adjList;
+    // Categories touched by addEdge since they were last sorted
+    unordered_map<string, bool> dirty;
 
 public:
-    void addMovie(Movie m) {
-        adjList[m.category].push_back(m);
+    // Add Node to Graph
+    const MovieNode& addEdge(string category, string title, double rating, string url) {
+        vector<MovieNode>& movies = adjList[category];
+        movies.emplace_back(title, category, rating, url);
+        dirty[category] = true;
+        return movies.back();
+    }
+
+    // Recommendation Logic: the category's movies, highest rated first. The
+    // list is sorted once after loading rather than copied and sorted per call.
+    const vector<MovieNode>* getRecommendations(const string& category) {
+        auto it = adjList.find(category);
+        if (it == adjList.end()) return nullptr;
+        if (dirty[category]) {
+            stable_sort(it->second.begin(), it->second.end(), [](const MovieNode& a, const MovieNode& b) {
+                return a.rating > b.rating;
+            });
+            dirty[category] = false;
+        }
+        return &it->second;
     }
 
-    string getRecommendations(string category) {
-        string result = "";
-        if (adjList.find(category) != adjList.end()) {
-            for (auto const& m : adjList[category]) {
-                // Format: Title|Rating|URL ; Title|Rating|URL
-                result += m.title + "|" + to_string(m.rating) + "|" + m.url + ";";
+    // For Viva Demo: Show Internal Structure
+    void displayTopology() {
+        cout << "\n===== INTERNAL GRAPH STRUCTURE (ADJACENCY LIST) =====" << endl;
+        for (auto const& [cat, movies] : adjList) {
+            cout << "[ HEAD NODE: " << cat << " ] connects to -> " << movies.size() << " Neighbors" << endl;
+            for (const auto& m : movies) {
+                cout << "    |__ (Edge Weight: " << m.rating << ") --> [MovieID: " << m.id << " | " << m.title << "]" << endl;
             }
-        } else {
-            result = "None";
+            cout << "-----------------------------------------------------" << endl;
         }
-        return result;
     }
 };
-#endif
\ No newline at end of file
+
+#endif
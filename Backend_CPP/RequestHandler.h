@@ -1,32 +1,113 @@
 #ifndef REQUESTHANDLER_H
 #define REQUESTHANDLER_H
 #include <string>
+#include <vector>
+#include <cstdint>
 #include "Trie.h"
 #include "Graph.h"
 using namespace std;
 
+// Binary protocol spoken by `filmforge --serve` on stdin/stdout. All
+// integers are big-endian; strings are a u16 byte length then UTF-8.
+//   request:  [u32 len][u32 id][u8 op][u16 limit][arg bytes...]
+//   response: [u32 len][u32 id][u8 status][u32 count]
+//             count x ([u16 rating*100][str title][str category][str url])
+// len counts the bytes after itself. Responses carry the request's id and
+// come back in request order, so a client may pipeline freely.
+namespace Protocol {
+    const uint8_t PING = 0, SEARCH = 1, CATEGORY = 2;
+    const uint8_t OK = 0, NOT_FOUND = 1, BAD_REQUEST = 2;
+    const uint32_t MAX_FRAME = 1 << 20;
+    const size_t REQUEST_HEADER = 7;
+
+    inline void putU16(string& out, uint32_t v) {
+        out.push_back(char(v >> 8));
+        out.push_back(char(v));
+    }
+
+    inline void putU32(string& out, uint32_t v) {
+        out.push_back(char(v >> 24));
+        out.push_back(char(v >> 16));
+        out.push_back(char(v >> 8));
+        out.push_back(char(v));
+    }
+
+    inline void putStr(string& out, const string& s) {
+        size_t n = s.size() < 0xFFFF ? s.size() : 0xFFFF;
+        putU16(out, uint32_t(n));
+        out.append(s, 0, n);
+    }
+
+    inline uint32_t getU32(const unsigned char* p) {
+        return (uint32_t(p[0]) << 24) | (uint32_t(p[1]) << 16) | (uint32_t(p[2]) << 8) | uint32_t(p[3]);
+    }
+
+    inline uint32_t getU16(const unsigned char* p) {
+        return (uint32_t(p[0]) << 8) | uint32_t(p[1]);
+    }
+}
+
 class RequestHandler {
     Trie* trie;
     Graph* graph;
+    const vector<MovieNode>* catalog;
+
+    static void putMovie(string& out, const MovieNode& m) {
+        double r = m.rating * 100 + 0.5;
+        Protocol::putU16(out, r < 0 ? 0 : r > 0xFFFF ? 0xFFFF : uint32_t(r));
+        Protocol::putStr(out, m.title);
+        Protocol::putStr(out, m.category);
+        Protocol::putStr(out, m.url);
+    }
 
 public:
-    RequestHandler(Trie* t, Graph* g) : trie(t), graph(g) {}
-
-    string handleRequest(string request) {
-        if (request.find("SEARCH:") == 0) {
-            string query = request.substr(7);
-            vector<string> results = trie->autocomplete(query);
-            
-            string response = "";
-            for (string s : results) response += s + ",";
-            if (response == "") return "No match found";
-            return response;
-        } 
-        else if (request.find("CAT:") == 0) {
-            string category = request.substr(4);
-            return graph->getRecommendations(category);
+    RequestHandler(Trie* t, Graph* g, const vector<MovieNode>* c) : trie(t), graph(g), catalog(c) {}
+
+    // Appends the response frame for one request to out
+    void handle(uint32_t id, uint8_t op, uint32_t limit, const string& arg, string& out) {
+        size_t start = out.size();
+        Protocol::putU32(out, 0);
+        Protocol::putU32(out, id);
+        if (op == Protocol::PING) {
+            out.push_back(char(Protocol::OK));
+            Protocol::putU32(out, 0);
+        } else if (op == Protocol::SEARCH) {
+            vector<int> refs = trie->autocompleteRefs(arg, limit);
+            out.push_back(char(refs.empty() ? Protocol::NOT_FOUND : Protocol::OK));
+            Protocol::putU32(out, uint32_t(refs.size()));
+            for (int ref : refs) putMovie(out, (*catalog)[ref]);
+        } else if (op == Protocol::CATEGORY) {
+            const vector<MovieNode>* movies = graph->getRecommendations(arg);
+            size_t n = movies == nullptr ? 0 : min<size_t>(movies->size(), limit);
+            out.push_back(char(n == 0 ? Protocol::NOT_FOUND : Protocol::OK));
+            Protocol::putU32(out, uint32_t(n));
+            for (size_t i = 0; i < n; i++) putMovie(out, (*movies)[i]);
+        } else {
+            out.push_back(char(Protocol::BAD_REQUEST));
+            Protocol::putU32(out, 0);
+        }
+        uint32_t len = uint32_t(out.size() - start - 4);
+        for (int i = 0; i < 4; i++) out[start + i] = char(len >> (24 - 8 * i));
+    }
+
+    // Plain-text answer for one-shot command line use
+    string handleRequest(const string& command, const string& arg, size_t limit) {
+        string response;
+        if (command == "search") {
+            for (int ref : trie->autocompleteRefs(arg, limit)) {
+                const MovieNode& m = (*catalog)[ref];
+                response += m.title + "|" + m.category + "|" + to_string(m.rating) + "|" + m.url + "\n";
+            }
+        } else if (command == "category") {
+            const vector<MovieNode>* movies = graph->getRecommendations(arg);
+            for (size_t i = 0; movies != nullptr && i < movies->size() && i < limit; i++) {
+                const MovieNode& m = (*movies)[i];
+                response += m.title + "|" + m.category + "|" + to_string(m.rating) + "|" + m.url + "\n";
+            }
+        } else {
+            return "Invalid Command\n";
         }
-        return "Invalid Command";
+        return response.empty() ? "No match found\n" : response;
     }
 };
-#endif
\ No newline at end of file
+#endif
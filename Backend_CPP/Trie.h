@@ -16,10 +16,30 @@ class Trie {
         }
     }
 
+    // Stops walking once limit refs are collected
+    void collectRefs(TrieNode* node, vector<int>& refs, size_t limit) {
+        if (refs.size() >= limit) return;
+        if (node->isEndOfWord && node->movieRef >= 0) refs.push_back(node->movieRef);
+        for (auto& pair : node->children) {
+            if (refs.size() >= limit) return;
+            collectRefs(pair.second, refs, limit);
+        }
+    }
+
+    TrieNode* find(const string& prefix) {
+        TrieNode* node = root;
+        for (char ch : Utils::toLower(prefix)) {
+            auto it = node->children.find(ch);
+            if (it == node->children.end()) return nullptr;
+            node = it->second;
+        }
+        return node;
+    }
+
 public:
     Trie() { root = new TrieNode(); }
 
-    void insert(string title) {
+    void insert(string title, int ref = -1) {
         TrieNode* node = root;
         string lowerTitle = Utils::toLower(title);
         
@@ -31,6 +51,7 @@ public:
         }
         node->isEndOfWord = true;
         node->movieTitle = title;
+        node->movieRef = ref;
     }
 
     vector<string> autocomplete(string prefix) {
@@ -47,5 +68,13 @@ public:
         searchPrefix(node, results);
         return results;
     }
+
+    // Refs of up to limit titles starting with prefix
+    vector<int> autocompleteRefs(const string& prefix, size_t limit) {
+        vector<int> refs;
+        TrieNode* node = find(prefix);
+        if (node != nullptr) collectRefs(node, refs, limit);
+        return refs;
+    }
 };
 #endif
\ No newline at end of file
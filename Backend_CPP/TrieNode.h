@@ -9,7 +9,8 @@ public:
     unordered_map<char, TrieNode*> children;
     bool isEndOfWord;
     string movieTitle;
+    int movieRef; // caller's index for the title, -1 if none
 
-    TrieNode() { isEndOfWord = false; }
+    TrieNode() { isEndOfWord = false; movieRef = -1; }
 };
 #endif
\ No newline at end of file
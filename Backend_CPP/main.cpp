@@ -6,11 +6,23 @@
 #include <thread> 
 #include <chrono> 
 #include <iomanip> 
+#include <cstring>
+
+#ifdef _WIN32
+#include <fcntl.h>
+#include <io.h>
+#include <process.h>
+#else
+#include <unistd.h>
+#define _getpid getpid
+#endif
 
 // Importing Core Architecture Modules
 #include "Movie.h"
 #include "Graph.h"
 #include "DataLoader.h"
+#include "Trie.h"
+#include "RequestHandler.h"
 
 using namespace std;
 
@@ -63,11 +75,84 @@ void printJSONResponse(const vector<MovieNode>& movies) {
     cout << "------------------------------------------------" << endl;
 }
 
+/**
+ * [SERVE] Long-lived backend session for the Java frontend.
+ * Reads framed requests (see RequestHandler.h) from stdin and writes framed
+ * responses to stdout until stdin closes. Responses are buffered and flushed
+ * only when no further request is already waiting, so a pipelined burst
+ * costs one write. Logging goes to stderr to keep stdout binary.
+ */
+int serve(RequestHandler& handler) {
+#ifdef _WIN32
+    _setmode(_fileno(stdin), _O_BINARY);
+    _setmode(_fileno(stdout), _O_BINARY);
+#endif
+    streambuf* in = cin.rdbuf();
+    streambuf* out = cout.rdbuf();
+    cout.rdbuf(cerr.rdbuf());
+
+    string pending;
+    string arg;
+    unsigned char header[4 + Protocol::REQUEST_HEADER];
+    while (true) {
+        if (!pending.empty() && in->in_avail() <= 0) {
+            out->sputn(pending.data(), streamsize(pending.size()));
+            out->pubsync();
+            pending.clear();
+        }
+        if (in->sgetn(reinterpret_cast<char*>(header), 4) != 4) break;
+        uint32_t len = Protocol::getU32(header);
+        if (len < Protocol::REQUEST_HEADER || len > Protocol::MAX_FRAME) {
+            cerr << "[Serve] bad frame length " << len << ", closing" << endl;
+            return 1;
+        }
+        if (in->sgetn(reinterpret_cast<char*>(header + 4), Protocol::REQUEST_HEADER) != streamsize(Protocol::REQUEST_HEADER)) break;
+        arg.resize(len - Protocol::REQUEST_HEADER);
+        if (!arg.empty() && in->sgetn(&arg[0], streamsize(arg.size())) != streamsize(arg.size())) break;
+        handler.handle(Protocol::getU32(header + 4), header[8], Protocol::getU16(header + 9), arg, pending);
+    }
+    if (!pending.empty()) {
+        out->sputn(pending.data(), streamsize(pending.size()));
+        out->pubsync();
+    }
+    return 0;
+}
+
 /**
  * [MAIN] Application Entry Point.
- * Initializes the Graph Database and starts the Interactive CLI / API Listener.
+ *   filmforge --serve [--data movies.txt]       binary session on stdin/stdout
+ *   filmforge search <prefix> [--data ...]       one-shot, text to stdout
+ *   filmforge category <name> [--data ...]       one-shot, text to stdout
+ *   filmforge                                    interactive debug menu
  */
 int main(int argc, char* argv[]) {
+    string dataFile = "movies.txt";
+    string command;
+    string commandArg;
+    bool serveMode = false;
+    for (int i = 1; i < argc; i++) {
+        if (strcmp(argv[i], "--serve") == 0) serveMode = true;
+        else if (strcmp(argv[i], "--data") == 0 && i + 1 < argc) dataFile = argv[++i];
+        else if (command.empty()) command = argv[i];
+        else commandArg += (commandArg.empty() ? "" : " ") + string(argv[i]);
+    }
+
+    if (serveMode || !command.empty()) {
+        ios::sync_with_stdio(false);
+        streambuf* console = cout.rdbuf();
+        cout.rdbuf(cerr.rdbuf()); // loader chatter stays off stdout
+        Graph graph;
+        vector<MovieNode> catalog;
+        DataLoader::loadMovies(dataFile, graph, &catalog);
+        Trie trie;
+        for (size_t i = 0; i < catalog.size(); i++) trie.insert(catalog[i].title, int(i));
+        RequestHandler handler(&trie, &graph, &catalog);
+        cout.rdbuf(console);
+        if (serveMode) return serve(handler);
+        cout << handler.handleRequest(command, commandArg, 60);
+        return 0;
+    }
+
     // 1. [INIT] Graph Data Structure Initialization
     Graph movieGraph;
     cout << "\n==================================================" << endl;
@@ -77,7 +162,7 @@ int main(int argc, char* argv[]) {
 
     // 2. [DAL] Data Access Layer - Hydrating Graph from File System
     simulateProcessing("[SYSTEM] Mounting Database (movies.txt)");
-    DataLoader::loadMovies("movies.txt", movieGraph);
+    DataLoader::loadMovies(dataFile, movieGraph);
 
     // 3. [LISTENER] Request Dispatcher Loop
     // Listens for incoming commands (simulated via CLI input)
@@ -102,7 +187,8 @@ int main(int argc, char* argv[]) {
             simulateProcessing("[CORE] Traversing Adjacency List & Calculating Weights");
             
             // Fetch Recommendations via Hashing Algorithm
-            vector<MovieNode> results = movieGraph.getRecommendations(cat);
+            const vector<MovieNode>* found = movieGraph.getRecommendations(cat);
+            vector<MovieNode> results = found == nullptr ? vector<MovieNode>() : *found;
             
             if (results.empty()) {
                 // Return 404 JSON Response
@@ -1,216 +1,5193 @@
+package filmforge;
+
 import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*; 
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.VolatileImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*; 
 import java.util.List; 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 // ==========================================
 // PART 1: DATA STRUCTURES
 // ==========================================
 
-class Movie {
-    String title;
-    String category;
-    double rating;
-    String imageUrl;
+// Column store for the whole catalog: one row per movie, struct-of-arrays.
+// Category is a byte ordinal into a small name table, rating is hundredths
+// in a short, titles are UTF-8 in one byte arena, and URLs are split at the
+// last '/' into a shared prefix (ordinal) plus a UTF-8 suffix arena, since
+// nearly every poster lives under the same few directories; once the prefix
+// table is full, new URLs are stored whole under the empty prefix, which
+// keeps the table's last slot. Rows are only appended; appends must happen
+// before their ids are handed to other threads (every loader in this file
+// publishes through a lock or the EDT).
+class CatalogStore {
+    private final List<String> categories = new ArrayList<>();
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+    private final List<String> prefixes = new ArrayList<>();
+    private final Map<String, Integer> prefixIds = new HashMap<>();
+
+    private byte[] category = new byte[64];
+    private short[] rating = new short[64];
+    private short[] urlPrefix = new short[64];
+    private int[] titleOff = new int[65];
+    private int[] urlOff = new int[65];
+    private byte[] titles = new byte[1024];
+    private byte[] urls = new byte[4096];
+    private int size = 0;
+    private byte[] lastPrefix;                  // UTF-8 of the prefix the last byte-range add used
+    private int lastPrefixId = -1;
+
+    public int size() { return size; }
+
+    static final int MAX_CATEGORIES = 256, MAX_PREFIXES = 65536;
+
+    public synchronized int add(String title, String cat, double r, String url) {
+        ensureRows(size + 1);
+        int slash = url.lastIndexOf('/') + 1;
+        int prefix = prefixOrdinal(url.substring(0, slash));
+        if (prefix < 0) {
+            slash = 0;
+            prefix = prefixOrdinal("");
+        }
+        byte[] t = title.getBytes(StandardCharsets.UTF_8);
+        byte[] u = url.substring(slash).getBytes(StandardCharsets.UTF_8);
+        return append(t, 0, t.length, cat, r, prefix, u, 0, u.length);
+    }
+
+    // The same from UTF-8 byte ranges of a line, which are trimmed and copied
+    // straight into the arenas. Nothing is decoded or allocated unless the
+    // URL's prefix differs from the previous call's.
+    public synchronized int add(byte[] line, int titleFrom, int titleTo, String cat, double r, int urlFrom, int urlTo) {
+        while (titleFrom < titleTo && (line[titleFrom] & 0xff) <= ' ') titleFrom++;
+        while (titleTo > titleFrom && (line[titleTo - 1] & 0xff) <= ' ') titleTo--;
+        while (urlFrom < urlTo && (line[urlFrom] & 0xff) <= ' ') urlFrom++;
+        while (urlTo > urlFrom && (line[urlTo - 1] & 0xff) <= ' ') urlTo--;
+        ensureRows(size + 1);
+        int slash = urlTo;
+        while (slash > urlFrom && line[slash - 1] != '/') slash--;
+        int prefix;
+        if (lastPrefixId >= 0 && Arrays.equals(lastPrefix, 0, lastPrefix.length, line, urlFrom, slash)) {
+            prefix = lastPrefixId;
+        } else {
+            prefix = prefixOrdinal(new String(line, urlFrom, slash - urlFrom, StandardCharsets.UTF_8));
+            if (prefix < 0) {
+                slash = urlFrom;
+                prefix = prefixOrdinal("");
+            } else {
+                lastPrefix = Arrays.copyOfRange(line, urlFrom, slash);
+                lastPrefixId = prefix;
+            }
+        }
+        return append(line, titleFrom, titleTo - titleFrom, cat, r, prefix, line, slash, urlTo - slash);
+    }
+
+    private int append(byte[] t, int tFrom, int tLen, String cat, double r, int prefix, byte[] u, int uFrom, int uLen) {
+        titles = fit(titles, titleOff[size] + tLen);
+        urls = fit(urls, urlOff[size] + uLen);
+        System.arraycopy(t, tFrom, titles, titleOff[size], tLen);
+        System.arraycopy(u, uFrom, urls, urlOff[size], uLen);
+        category[size] = (byte) ordinal(categories, categoryIds, cat, MAX_CATEGORIES);
+        rating[size] = (short) Math.round(r * 100);
+        urlPrefix[size] = (short) prefix;
+        titleOff[size + 1] = titleOff[size] + tLen;
+        urlOff[size + 1] = urlOff[size] + uLen;
+        return size++;
+    }
+
+    // Appends every row of another store (e.g. one parsed chunk) and returns
+    // the id its first row received; ordinals are remapped, arenas copied.
+    public synchronized int addAll(CatalogStore other) {
+        int base = size, n = other.size;
+        int[] preMap = new int[other.prefixes.size()];
+        for (int i = 0; i < preMap.length; i++) {
+            preMap[i] = prefixOrdinal(other.prefixes.get(i));
+            if (preMap[i] < 0) {
+                // Some of these URLs no longer fit a prefix: re-split row by row
+                for (int id = 0; id < n; id++) add(other.title(id), other.category(id), other.rating(id), other.imageUrl(id));
+                return base;
+            }
+        }
+        ensureRows(size + n);
+        int[] catMap = new int[other.categories.size()];
+        for (int i = 0; i < catMap.length; i++) catMap[i] = ordinal(categories, categoryIds, other.categories.get(i), MAX_CATEGORIES);
+
+        int tBase = titleOff[size], uBase = urlOff[size];
+        titles = fit(titles, tBase + other.titleOff[n]);
+        urls = fit(urls, uBase + other.urlOff[n]);
+        System.arraycopy(other.titles, 0, titles, tBase, other.titleOff[n]);
+        System.arraycopy(other.urls, 0, urls, uBase, other.urlOff[n]);
+        for (int i = 0; i < n; i++) {
+            category[base + i] = (byte) catMap[other.category[i] & 0xff];
+            rating[base + i] = other.rating[i];
+            urlPrefix[base + i] = (short) preMap[other.urlPrefix[i] & 0xffff];
+            titleOff[base + i + 1] = tBase + other.titleOff[i + 1];
+            urlOff[base + i + 1] = uBase + other.urlOff[i + 1];
+        }
+        size += n;
+        return base;
+    }
+
+    // Throws, touching nothing, if appending all of these would need more
+    // category ordinals than a row can hold
+    synchronized void checkCategories(List<CatalogStore> stores) {
+        Set<String> names = new HashSet<>(categories);
+        for (CatalogStore s : stores) names.addAll(s.categories);
+        if (names.size() > MAX_CATEGORIES) {
+            throw new IllegalStateException(names.size() + " categories, at most " + MAX_CATEGORIES + " fit");
+        }
+    }
+
+    // -1 once only the slot kept for the empty prefix is left
+    private int prefixOrdinal(String prefix) {
+        Integer id = prefixIds.get(prefix);
+        if (id != null) return id;
+        if (!prefix.isEmpty() && prefixes.size() >= MAX_PREFIXES - 1) return -1;
+        return ordinal(prefixes, prefixIds, prefix, MAX_PREFIXES);
+    }
+
+    private static int ordinal(List<String> names, Map<String, Integer> ids, String name, int max) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        if (names.size() == max) throw new IllegalStateException("more than " + max + " distinct values for " + name);
+        ids.put(name, names.size());
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    private void ensureRows(int n) {
+        if (n <= category.length) return;
+        int cap = Math.max(n, category.length * 2);
+        category = Arrays.copyOf(category, cap);
+        rating = Arrays.copyOf(rating, cap);
+        urlPrefix = Arrays.copyOf(urlPrefix, cap);
+        titleOff = Arrays.copyOf(titleOff, cap + 1);
+        urlOff = Arrays.copyOf(urlOff, cap + 1);
+    }
+
+    private static byte[] fit(byte[] a, int n) {
+        return n <= a.length ? a : Arrays.copyOf(a, Math.max(n, a.length + (a.length >> 1)));
+    }
+
+    public Movie movie(int id) { return new Movie(this, id); }
+
+    public String title(int id) {
+        return new String(titles, titleOff[id], titleOff[id + 1] - titleOff[id], StandardCharsets.UTF_8);
+    }
+
+    public int categoryOrdinal(int id) { return category[id] & 0xff; }
+    public String category(int id) { return categories.get(category[id] & 0xff); }
+    public List<String> categoryNames() { return Collections.unmodifiableList(categories); }
+    public int ratingHundredths(int id) { return rating[id]; }
+    public double rating(int id) { return rating[id] / 100.0; }
+
+    public String imageUrl(int id) {
+        return prefixes.get(urlPrefix[id] & 0xffff)
+                + new String(urls, urlOff[id], urlOff[id + 1] - urlOff[id], StandardCharsets.UTF_8);
+    }
+
+    // Rows [from, to) grouped by category, categories and rows in row order
+    public Map<String, MovieList> byCategory(int from, int to) {
+        Map<String, MovieList> out = new LinkedHashMap<>();
+        MovieList[] byOrdinal = new MovieList[256];
+        for (int id = from; id < to; id++) {
+            int c = category[id] & 0xff;
+            if (byOrdinal[c] == null) byOrdinal[c] = out.computeIfAbsent(categories.get(c), k -> new MovieList(this));
+            byOrdinal[c].add(new Movie(this, id));
+        }
+        return out;
+    }
+
+    public long heapBytes() {
+        return category.length * 5L + urlPrefix.length * 2L + (titleOff.length + urlOff.length) * 4L
+                + titles.length + urls.length;
+    }
+
+    // Snapshot encoding: the name tables, then each column cut to size
+    synchronized long snapshotBytes() {
+        return CatalogSnapshot.stringsBytes(categories) + CatalogSnapshot.stringsBytes(prefixes) + 4
+                + size * 5L + 2L * (size + 1) * 4 + titleOff[size] + urlOff[size] + 7 * 4;
+    }
+
+    synchronized void writeTo(ByteBuffer b) {
+        CatalogSnapshot.putStrings(b, categories);
+        CatalogSnapshot.putStrings(b, prefixes);
+        b.putInt(size);
+        CatalogSnapshot.putBytes(b, category, size);
+        CatalogSnapshot.putShorts(b, rating, size);
+        CatalogSnapshot.putShorts(b, urlPrefix, size);
+        CatalogSnapshot.putInts(b, titleOff, size + 1);
+        CatalogSnapshot.putInts(b, urlOff, size + 1);
+        CatalogSnapshot.putBytes(b, titles, titleOff[size]);
+        CatalogSnapshot.putBytes(b, urls, urlOff[size]);
+    }
+
+    // Reads a store straight from a snapshot: bulk column copies
+    static CatalogStore readFrom(ByteBuffer b) {
+        CatalogStore s = new CatalogStore();
+        for (String c : CatalogSnapshot.getStrings(b)) ordinal(s.categories, s.categoryIds, c, MAX_CATEGORIES);
+        for (String p : CatalogSnapshot.getStrings(b)) ordinal(s.prefixes, s.prefixIds, p, MAX_PREFIXES);
+        int n = b.getInt();
+        s.category = CatalogSnapshot.getBytes(b);
+        s.rating = CatalogSnapshot.getShorts(b);
+        s.urlPrefix = CatalogSnapshot.getShorts(b);
+        s.titleOff = CatalogSnapshot.getInts(b);
+        s.urlOff = CatalogSnapshot.getInts(b);
+        s.titles = CatalogSnapshot.getBytes(b);
+        s.urls = CatalogSnapshot.getBytes(b);
+        if (s.category.length != n || s.rating.length != n || s.urlPrefix.length != n
+                || s.titleOff.length != n + 1 || s.urlOff.length != n + 1) {
+            throw new IllegalStateException("snapshot columns disagree on the row count");
+        }
+        s.size = n;
+        return s;
+    }
+
+    // Adopts another store's columns wholesale; only valid while empty
+    synchronized void replaceWith(CatalogStore other) {
+        if (size != 0) throw new IllegalStateException("store is not empty");
+        categories.addAll(other.categories);
+        categoryIds.putAll(other.categoryIds);
+        prefixes.addAll(other.prefixes);
+        prefixIds.putAll(other.prefixIds);
+        category = other.category;
+        rating = other.rating;
+        urlPrefix = other.urlPrefix;
+        titleOff = other.titleOff;
+        urlOff = other.urlOff;
+        titles = other.titles;
+        urls = other.urls;
+        size = other.size;
+    }
+}
+
+// Handle onto one CatalogStore row. Handles are created on demand and are
+// equal when they name the same row, so none need to be kept around.
+final class Movie {
+    final CatalogStore store;
+    final int id;
+
+    Movie(CatalogStore store, int id) {
+        this.store = store;
+        this.id = id;
+    }
+
+    String title() { return store.title(id); }
+    String category() { return store.category(id); }
+    double rating() { return store.rating(id); }
+    String imageUrl() { return store.imageUrl(id); }
+
+    @Override public boolean equals(Object o) {
+        return o instanceof Movie && ((Movie) o).id == id && ((Movie) o).store == store;
+    }
+    @Override public int hashCode() { return id; }
+    @Override public String toString() { return title(); }
+}
+
+// Growable list of row ids that reads as a List<Movie>
+class MovieList extends AbstractList<Movie> implements RandomAccess {
+    final CatalogStore store;
+    private int[] ids;
+    private int size;
+
+    MovieList(CatalogStore store) { this(store, new int[8], 0); }
+
+    MovieList(CatalogStore store, int[] ids, int size) {
+        this.store = store;
+        this.ids = ids;
+        this.size = size;
+    }
+
+    @Override public Movie get(int i) {
+        if (i >= size) throw new IndexOutOfBoundsException(i);
+        return store.movie(ids[i]);
+    }
+
+    @Override public int size() { return size; }
+
+    @Override public boolean add(Movie m) {
+        if (m.store != store) throw new IllegalArgumentException("movie from another catalog");
+        if (size == ids.length) ids = Arrays.copyOf(ids, Math.max(8, size * 2));
+        ids[size++] = m.id;
+        modCount++;
+        return true;
+    }
 
-    public Movie(String t, String c, double r, String u) {
-        this.title = t;
-        this.category = c;
-        this.rating = r;
-        this.imageUrl = u;
+    @Override public Movie set(int i, Movie m) {
+        Movie old = get(i);
+        ids[i] = m.id;
+        return old;
     }
+
+    int id(int i) { return ids[i]; }
+
+    MovieList copy() { return new MovieList(store, Arrays.copyOf(ids, size), size); }
 }
 
+// Interest per category, safe to feed from any thread. Scores use forward
+// decay: an action at time t adds exp(lambda * (t - landmark)) to its
+// category, so the decayed score now is that sum times
+// exp(-lambda * (now - landmark)). Every category shrinks by the same
+// factor, which means ranking and shares never need the factor at all, the
+// top category only changes when a score grows, and nothing is ever
+// rewritten as time passes. Raw counts and the score total are adders, so
+// reads are O(1) and writers never contend on one lock. Each category also
+// keeps hourly buckets for "how many in the last N hours" windows.
 class AnalyticsEngine {
-    public Map<String, Integer> userPreferences = new HashMap<>();
+    static final String DEFAULT_CATEGORY = "Hollywood";
+    static final long HOUR_MILLIS = 3_600_000L;
+    static final int WINDOW_HOURS = 7 * 24;
+
+    // Hourly ring; each slot packs (hour << 32 | count) so a stale slot is
+    // reset and bumped in one CAS
+    static final class Window {
+        private final AtomicLongArray slots = new AtomicLongArray(WINDOW_HOURS);
+
+        void add(long hour) {
+            int i = (int) (hour % WINDOW_HOURS);
+            while (true) {
+                long v = slots.get(i);
+                long next = (v >>> 32) == hour ? v + 1 : hour << 32 | 1;
+                if (slots.compareAndSet(i, v, next)) return;
+            }
+        }
+
+        long sum(long nowHour, int hours) {
+            long total = 0;
+            for (int h = 0; h < Math.min(hours, WINDOW_HOURS); h++) {
+                long v = slots.get((int) ((nowHour - h) % WINDOW_HOURS));
+                if ((v >>> 32) == nowHour - h) total += v & 0xffffffffL;
+            }
+            return total;
+        }
+    }
+
+    static final class Interest {
+        final String category;
+        final LongAdder count = new LongAdder();
+        final DoubleAdder score = new DoubleAdder();
+        final Window window = new Window();
+        Interest(String category) { this.category = category; }
+    }
+
+    private final java.util.function.LongSupplier clock;
+    final Duration halfLife;
+    private final double lambda;        // per millisecond
+    private final long landmark;
+    private final ConcurrentHashMap<String, Interest> interests = new ConcurrentHashMap<>();
+    private final List<String> order = new CopyOnWriteArrayList<>();
+    private final LongAdder total = new LongAdder();
+    private final DoubleAdder totalScore = new DoubleAdder();
+    private final Window totalWindow = new Window();
+    private final AtomicReference<Interest> top = new AtomicReference<>();
 
     public AnalyticsEngine() {
-        userPreferences.put("Hollywood", 0);
-        userPreferences.put("Bollywood", 0);
-        userPreferences.put("Korean", 0);
-        userPreferences.put("Tollywood", 0);
+        this(System::currentTimeMillis, Duration.ofDays(Long.getLong("filmforge.interestHalfLifeDays", 30)));
     }
 
-    public void logAction(String category) {
-        userPreferences.put(category, userPreferences.getOrDefault(category, 0) + 1);
+    // At a 30 day half-life the landmark weight stays finite for decades
+    public AnalyticsEngine(java.util.function.LongSupplier clock, Duration halfLife) {
+        this.clock = clock;
+        this.halfLife = halfLife;
+        this.lambda = Math.log(2) / Math.max(1, halfLife.toMillis());
+        this.landmark = clock.getAsLong();
+    }
+
+    public void logAction(String category) { logAction(category, clock.getAsLong()); }
+
+    public void logAction(String category, long atMillis) {
+        Interest in = interests.computeIfAbsent(category, c -> {
+            order.add(c);
+            return new Interest(c);
+        });
+        double w = Math.exp(lambda * (atMillis - landmark));
+        in.count.increment();
+        in.score.add(w);
+        total.increment();
+        totalScore.add(w);
+        long hour = Math.floorDiv(atMillis, HOUR_MILLIS);
+        in.window.add(hour);
+        totalWindow.add(hour);
+        // Scores only grow, so the leader can only be overtaken by the one that just grew
+        while (true) {
+            Interest cur = top.get();
+            if (cur == in || (cur != null && cur.score.sum() >= in.score.sum())) break;
+            if (top.compareAndSet(cur, in)) break;
+        }
     }
     
     public String getTopCategory() {
-        String topCat = "Hollywood";
-        int max = -1;
-        for(Map.Entry<String, Integer> e : userPreferences.entrySet()) {
-            if(e.getValue() > max) {
-                max = e.getValue();
-                topCat = e.getKey();
+        Interest t = top.get();
+        return t != null ? t.category : DEFAULT_CATEGORY;
+    }
+
+    public int getTotalInteractions() { return (int) Math.min(Integer.MAX_VALUE, total.sum()); }
+
+    // Categories in the order they were first seen
+    public List<String> categories() { return Collections.unmodifiableList(order); }
+
+    public long getCount(String category) {
+        Interest in = interests.get(category);
+        return in == null ? 0 : in.count.sum();
+    }
+
+    // Decayed share of all interest, 0..1
+    public double getShare(String category) {
+        Interest in = interests.get(category);
+        double all = totalScore.sum();
+        return in == null || all == 0 ? 0 : in.score.sum() / all;
+    }
+
+    // Decayed score now: roughly "recent interactions", one counts 1 when fresh
+    public double getScore(String category) {
+        Interest in = interests.get(category);
+        return in == null ? 0 : in.score.sum() * Math.exp(-lambda * (clock.getAsLong() - landmark));
+    }
+
+    // Interactions in the last `hours` whole hours (including this one), at most a week
+    public long getWindowCount(String category, int hours) {
+        Interest in = interests.get(category);
+        return in == null ? 0 : in.window.sum(Math.floorDiv(clock.getAsLong(), HOUR_MILLIS), hours);
+    }
+
+    public long getWindowTotal(int hours) {
+        return totalWindow.sum(Math.floorDiv(clock.getAsLong(), HOUR_MILLIS), hours);
+    }
+}
+
+// "Trending now": the most played titles of the last hour and of the last
+// day, in fixed memory however many events or titles there are. A window
+// is a ring of time slots. Each slot holds a Count-Min sketch of its
+// events (per-title counts, overestimated by about e/WIDTH of the slot's
+// total, never under) and a Space-Saving summary of its heaviest titles.
+// The window also keeps the running sum of its slots' sketches; an expiring
+// slot is subtracted from it and reused. The top titles are the live
+// slots' Space-Saving candidates ranked by the window sketch. They are
+// recomputed at most once a second and otherwise returned as they are.
+class TrendingTracker {
+    static final int DEPTH = 4, WIDTH_BITS = 10, WIDTH = 1 << WIDTH_BITS;
+    static final int CANDIDATES = 64;       // Space-Saving counters per slot
+    static final int UNITS = 2;             // counts per unit of Recommender weight: play 2, watchlist add 1
+    static final long REFRESH_MILLIS = 1000;
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F};
+
+    enum Span {
+        HOUR(5 * 60_000L, 12), DAY(3_600_000L, 24);
+        final long slotMillis;
+        final int slots;
+        Span(long slotMillis, int slots) { this.slotMillis = slotMillis; this.slots = slots; }
+    }
+
+    static final class Entry {
+        final int id;
+        final long count;       // in UNITS; an upper bound
+        Entry(int id, long count) { this.id = id; this.count = count; }
+    }
+
+    private static int column(int row, int id) { return row * WIDTH + ((id * SEEDS[row]) >>> (32 - WIDTH_BITS)); }
+
+    private static final class Slot {
+        long epoch = Long.MIN_VALUE;        // slot number (time / slotMillis) held; MIN_VALUE when empty
+        final int[] sketch = new int[DEPTH * WIDTH];
+        final int[] keys = new int[CANDIDATES];
+        final long[] counts = new long[CANDIDATES];
+        int used;
+
+        void add(int id, int weight) {
+            for (int r = 0; r < DEPTH; r++) sketch[column(r, id)] += weight;
+            int min = 0;
+            for (int i = 0; i < used; i++) {
+                if (keys[i] == id) { counts[i] += weight; return; }
+                if (counts[i] < counts[min]) min = i;
+            }
+            if (used < CANDIDATES) {
+                keys[used] = id;
+                counts[used++] = weight;
+            } else {
+                keys[min] = id;             // inherits the evicted count as its error
+                counts[min] += weight;
+            }
+        }
+
+        void clear() {
+            epoch = Long.MIN_VALUE;
+            Arrays.fill(sketch, 0);
+            used = 0;
+        }
+    }
+
+    private static final class Window {
+        final Span span;
+        final Slot[] slots;
+        final long[] sum = new long[DEPTH * WIDTH];
+        List<Entry> top = List.of();
+        long computedAt = Long.MIN_VALUE;
+        boolean changed;
+
+        Window(Span span) {
+            this.span = span;
+            slots = new Slot[span.slots];
+            for (int i = 0; i < slots.length; i++) slots[i] = new Slot();
+        }
+
+        // Drops slots that have slid out of a window ending at epoch now
+        void expire(long now) {
+            for (Slot s : slots) {
+                if (s.epoch == Long.MIN_VALUE || s.epoch > now - span.slots) continue;
+                for (int i = 0; i < sum.length; i++) sum[i] -= s.sketch[i];
+                s.clear();
+                changed = true;
+            }
+        }
+
+        void add(int id, int weight, long atMillis, long nowMillis) {
+            long now = Math.floorDiv(nowMillis, span.slotMillis), e = Math.floorDiv(atMillis, span.slotMillis);
+            expire(Math.max(now, e));
+            if (e <= Math.max(now, e) - span.slots) return;     // already outside the window
+            Slot s = slots[(int) Math.floorMod(e, (long) span.slots)];
+            if (s.epoch != e) {
+                if (s.epoch != Long.MIN_VALUE) return;          // only possible for a future slot that expired ours
+                s.epoch = e;
+            }
+            s.add(id, weight);
+            for (int r = 0; r < DEPTH; r++) sum[column(r, id)] += weight;
+            changed = true;
+        }
+
+        long estimate(int id) {
+            long est = Long.MAX_VALUE;
+            for (int r = 0; r < DEPTH; r++) est = Math.min(est, sum[column(r, id)]);
+            return est;
+        }
+
+        List<Entry> top(long nowMillis) {
+            expire(Math.floorDiv(nowMillis, span.slotMillis));
+            if (!changed || nowMillis < computedAt + REFRESH_MILLIS) return top;
+            Set<Integer> ids = new HashSet<>();
+            for (Slot s : slots) for (int i = 0; i < s.used; i++) ids.add(s.keys[i]);
+            List<Entry> ranked = new ArrayList<>(ids.size());
+            for (int id : ids) ranked.add(new Entry(id, estimate(id)));
+            ranked.sort((a, b) -> a.count != b.count ? Long.compare(b.count, a.count) : Integer.compare(a.id, b.id));
+            top = Collections.unmodifiableList(new ArrayList<>(ranked.subList(0, Math.min(CANDIDATES, ranked.size()))));
+            computedAt = nowMillis;
+            changed = false;
+            return top;
+        }
+    }
+
+    private final java.util.function.LongSupplier clock;
+    private final Window[] windows;
+    private long events;
+
+    TrendingTracker() { this(System::currentTimeMillis); }
+
+    TrendingTracker(java.util.function.LongSupplier clock) {
+        this.clock = clock;
+        windows = new Window[Span.values().length];
+        for (Span s : Span.values()) windows[s.ordinal()] = new Window(s);
+    }
+
+    void record(int id, float weight) { record(id, weight, clock.getAsLong()); }
+
+    // Events may arrive late (e.g. replayed history); they land in the slot
+    // of their own time while that slot is still inside the window
+    synchronized void record(int id, float weight, long atMillis) {
+        int w = Math.max(1, Math.round(weight * UNITS));
+        long now = clock.getAsLong();
+        for (Window win : windows) win.add(id, w, Math.min(atMillis, now), now);
+        events++;
+    }
+
+    // At most CANDIDATES entries, heaviest first; O(k) between refreshes
+    synchronized List<Entry> top(Span span, int k) {
+        List<Entry> t = windows[span.ordinal()].top(clock.getAsLong());
+        return t.size() <= k ? t : t.subList(0, k);
+    }
+
+    synchronized long estimate(Span span, int id) { return windows[span.ordinal()].estimate(id); }
+
+    static long heapBytes() {
+        int slots = 0;
+        for (Span s : Span.values()) slots += s.slots;
+        return slots * (4L * DEPTH * WIDTH + 12L * CANDIDATES) + Span.values().length * 8L * DEPTH * WIDTH;
+    }
+
+    synchronized String stats() {
+        return String.format("%d events, %d KB fixed", events, heapBytes() / 1024);
+    }
+}
+
+// Item-to-item recommendations from users' own events. Every watch or
+// watchlist add is paired with the same user's last RECENT events: the pair's
+// co-occurrence grows by the product of their weights, and the two movies'
+// neighbour lists (top NEIGHBOURS by cosine similarity) are patched in
+// place; nothing is recomputed from scratch. A list is only re-scored
+// when its own movie is involved, so entries about other movies may lag
+// slightly until they see an event. Queries merge the neighbour lists of
+// the last HISTORY events, weighted by recency, and keep the best k with
+// a bounded heap, topped up by category and rating when that runs short.
+// Neighbour lists are immutable and swapped atomically, so queries never
+// block on recording.
+class Recommender {
+    static final int RECENT = 50, HISTORY = 20, NEIGHBOURS = 20;
+    static final int MAX_USERS = 10_000;        // remote users whose recent events are kept, least recent dropped
+    static final float WATCH = 1f, WATCHLIST = 0.5f;
+    static final double RECENCY = 0.9;
+    static final double CONTENT_BAND = 0.5;     // rating distance searched either side of a history title
+    static final int MAX_PAIRS = 1_000_000;     // co-occurrence pairs kept before every weight decays
+    static final float DECAY = 0.5f, MIN_PAIR = 0.25f;
+
+    static final class Neighbours {
+        static final Neighbours EMPTY = new Neighbours(new int[0], new float[0]);
+        final int[] ids;        // best first
+        final float[] sims;
+        Neighbours(int[] ids, float[] sims) { this.ids = ids; this.sims = sims; }
+
+        // Copy with id's similarity set to sim, kept sorted and cut to the limit
+        Neighbours with(int id, float sim) {
+            int n = ids.length, at = -1;
+            for (int i = 0; i < n; i++) if (ids[i] == id) { at = i; break; }
+            if (at < 0 && n == NEIGHBOURS && sim <= sims[n - 1]) return this;
+            int[] ni = new int[at >= 0 || n == NEIGHBOURS ? n : n + 1];
+            float[] ns = new float[ni.length];
+            int j = 0;
+            boolean placed = false;
+            for (int i = 0; i < n && j < ni.length; i++) {
+                if (i == at) continue;
+                if (!placed && sim > sims[i]) { ni[j] = id; ns[j++] = sim; placed = true; if (j == ni.length) break; }
+                ni[j] = ids[i]; ns[j++] = sims[i];
+            }
+            if (!placed && j < ni.length) { ni[j] = id; ns[j++] = sim; }
+            return new Neighbours(ni, ns);
+        }
+
+        // Copy without the ids keep rejects; this when it keeps them all
+        Neighbours retain(java.util.function.IntPredicate keep) {
+            int n = 0;
+            for (int id : ids) if (keep.test(id)) n++;
+            if (n == ids.length) return this;
+            int[] ni = new int[n];
+            float[] ns = new float[n];
+            for (int i = 0, j = 0; i < ids.length; i++) {
+                if (keep.test(ids[i])) { ni[j] = ids[i]; ns[j++] = sims[i]; }
+            }
+            return new Neighbours(ni, ns);
+        }
+    }
+
+    // Open-addressing map from a movie pair (lo << 32 | hi) to its co-occurrence weight
+    static final class PairWeights {
+        private long[] keys = new long[1024];
+        private float[] vals = new float[1024];
+        private boolean[] used = new boolean[1024];
+        private int size;
+
+        float add(long key, float w) {
+            if (2 * (size + 1) > keys.length) grow();
+            int mask = keys.length - 1, i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (used[i] && keys[i] != key) i = (i + 1) & mask;
+            if (!used[i]) { used[i] = true; keys[i] = key; size++; }
+            return vals[i] += w;
+        }
+
+        float get(long key) {
+            int mask = keys.length - 1, i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (used[i] && keys[i] != key) i = (i + 1) & mask;
+            return used[i] ? vals[i] : 0;
+        }
+
+        // Scales every weight by factor and drops those that end up under min
+        void decay(float factor, float min) {
+            long[] k = keys; float[] v = vals; boolean[] u = used;
+            keys = new long[k.length]; vals = new float[k.length]; used = new boolean[k.length];
+            size = 0;
+            for (int j = 0; j < k.length; j++) if (u[j] && v[j] * factor >= min) add(k[j], v[j] * factor);
+        }
+
+        private void grow() {
+            long[] k = keys; float[] v = vals; boolean[] u = used;
+            keys = new long[k.length * 2]; vals = new float[k.length * 2]; used = new boolean[k.length * 2];
+            size = 0;
+            for (int j = 0; j < k.length; j++) if (u[j]) add(k[j], v[j]);
+        }
+
+        int size() { return size; }
+    }
+
+    private final CatalogStore store;
+    private final java.util.function.Supplier<FacetIndex> facets;   // null until one is built
+    private final ConcurrentHashMap<Integer, Neighbours> neighbours = new ConcurrentHashMap<>();
+    private final PairWeights pairs = new PairWeights();            // guarded by this
+    private float[] itemWeight = new float[0];                      // by catalog row, guarded by this
+    private final Recent local = new Recent();                      // the desktop user, guarded by this
+    private final LinkedHashMap<String, Recent> users = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, Recent> e) { return size() > MAX_USERS; }
+    };                                                              // guarded by this
+    private long events, prunes;
+
+    // One user's last RECENT events: a new event is only paired with these,
+    // so co-occurrence means "the same person wanted both", not "two people
+    // happened to click at the same time"
+    private static final class Recent {
+        final int[] ids = new int[RECENT];
+        final float[] weights = new float[RECENT];
+        long events;
+    }
+
+    final LongAdder queries = new LongAdder();
+    final LongAdder queryNanos = new LongAdder();
+    final AtomicLong maxQueryNanos = new AtomicLong();
+    final LongAdder recordNanos = new LongAdder();
+
+    Recommender(CatalogStore store) { this(store, () -> null); }
+
+    Recommender(CatalogStore store, java.util.function.Supplier<FacetIndex> facets) {
+        this.store = store;
+        this.facets = facets;
+    }
+
+    // An event of the desktop user
+    public void record(Movie m, float weight) { record(null, m, weight); }
+
+    // An event of the given remote user; null is the desktop user
+    public void record(String user, Movie m, float weight) {
+        long t0 = System.nanoTime();
+        synchronized (this) {
+            Recent r = user == null ? local : users.computeIfAbsent(user, u -> new Recent());
+            if (pairs.size() >= MAX_PAIRS) prune();
+            int id = m.id;
+            if (id >= itemWeight.length) itemWeight = Arrays.copyOf(itemWeight, Math.max(id + 1, 2 * itemWeight.length));
+            float wi = itemWeight[id] += weight;
+            int seen = (int) Math.min(r.events, RECENT);
+            for (int k = 1; k <= seen; k++) {
+                int slot = (int) ((r.events - k) % RECENT), j = r.ids[slot];
+                if (j == id) continue;
+                float co = pairs.add(pair(id, j), weight * r.weights[slot]);
+                float sim = (float) (co / Math.sqrt(wi * itemWeight[j]));
+                neighbours.put(id, neighbours.getOrDefault(id, Neighbours.EMPTY).with(j, sim));
+                neighbours.put(j, neighbours.getOrDefault(j, Neighbours.EMPTY).with(id, sim));
+            }
+            int slot = (int) (r.events % RECENT);
+            r.ids[slot] = id;
+            r.weights[slot] = weight;
+            r.events++;
+            events++;
+        }
+        recordNanos.add(System.nanoTime() - t0);
+    }
+
+    private static long pair(int a, int b) { return a < b ? (long) a << 32 | b : (long) b << 32 | a; }
+
+    // Halves every weight until the pairs fit in three quarters of the cap,
+    // dropping those that fall under MIN_PAIR, so old co-occurrence fades
+    // and the table stops growing. Similarities are ratios of these weights,
+    // so the pairs that survive keep theirs.
+    private void prune() {
+        while (pairs.size() > MAX_PAIRS * 3 / 4) {
+            pairs.decay(DECAY, MIN_PAIR);
+            for (int i = 0; i < itemWeight.length; i++) itemWeight[i] *= DECAY;
+        }
+        neighbours.replaceAll((id, nb) -> nb.retain(j -> pairs.get(pair(id, j)) > 0));
+        neighbours.values().removeIf(nb -> nb.ids.length == 0);
+        prunes++;
+    }
+
+    // Best k movies near the desktop user's recent history, skipping anything in exclude
+    public List<Movie> recommend(int k, Set<Movie> exclude) {
+        int[] hist;
+        synchronized (this) {
+            int n = (int) Math.min(local.events, HISTORY);
+            hist = new int[n];
+            for (int i = 0; i < n; i++) hist[i] = local.ids[(int) ((local.events - 1 - i) % RECENT)];
+        }
+        return recommend(hist, k, exclude);
+    }
+
+    // Same, for a history kept by the caller (most recent first) rather than
+    // the one recorded here; the learned similarities are shared
+    public List<Movie> recommendFor(List<Movie> history, int k, Set<Movie> exclude) {
+        int n = Math.min(history.size(), HISTORY);
+        int[] hist = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (history.get(i).store != store) throw new IllegalArgumentException("movie from another catalog");
+            hist[i] = history.get(i).id;
+        }
+        return recommend(hist, k, exclude);
+    }
+
+    private List<Movie> recommend(int[] hist, int k, Set<Movie> exclude) {
+        long t0 = System.nanoTime();
+        Map<Integer, Double> score = new HashMap<>();
+        double w = 1;
+        for (int h : hist) {
+            Neighbours nb = neighbours.getOrDefault(h, Neighbours.EMPTY);
+            for (int i = 0; i < nb.ids.length; i++) score.merge(nb.ids[i], w * nb.sims[i], Double::sum);
+            w *= RECENCY;
+        }
+        PriorityQueue<Map.Entry<Integer, Double>> heap = new PriorityQueue<>(Math.max(1, k), Map.Entry.comparingByValue());
+        for (Map.Entry<Integer, Double> e : score.entrySet()) {
+            if (exclude.contains(store.movie(e.getKey()))) continue;
+            if (heap.size() < k) heap.add(e);
+            else if (k > 0 && e.getValue() > heap.peek().getValue()) { heap.poll(); heap.add(e); }
+        }
+        List<Movie> res = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) res.add(store.movie(heap.poll().getKey()));
+        Collections.reverse(res);
+        if (res.size() < k) nearestByContent(hist, k, exclude, res);
+
+        long took = System.nanoTime() - t0;
+        queries.increment();
+        queryNanos.add(took);
+        maxQueryNanos.accumulateAndGet(took, Math::max);
+        return res;
+    }
+
+    // Fills the rest of res with the titles nearest in rating to each history
+    // title within its category, weighted by recency like the learned picks.
+    // One user's events only link titles they have already seen, so until
+    // co-occurrence reaches past those, this is where the picks come from.
+    private void nearestByContent(int[] hist, int k, Set<Movie> exclude, List<Movie> res) {
+        FacetIndex index = facets.get();
+        if (index == null) return;
+        Set<Movie> skip = new HashSet<>(res);
+        Map<Integer, Double> score = new HashMap<>();
+        int page = 2 * k + hist.length;
+        double w = 1;
+        for (int h : hist) {
+            double r = store.rating(h);
+            String cat = store.category(h);
+            List<Movie> near = new ArrayList<>(index.query(new FacetIndex.Query().category(cat)
+                    .rating(r, r + CONTENT_BAND).orderBy("rating,title")).page(0, page));
+            near.addAll(index.query(new FacetIndex.Query().category(cat)
+                    .rating(r - CONTENT_BAND, r - 0.01).orderBy("-rating,title")).page(0, page));
+            for (Movie m : near) {
+                if (m.id == h || exclude.contains(m) || skip.contains(m)) continue;
+                score.merge(m.id, w * (1 - Math.abs(store.rating(m.id) - r)), Double::sum);
+            }
+            w *= RECENCY;
+        }
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(score.entrySet());
+        ranked.sort((a, b) -> a.getValue().equals(b.getValue()) ? Integer.compare(a.getKey(), b.getKey())
+                : Double.compare(b.getValue(), a.getValue()));
+        for (int i = 0; i < ranked.size() && res.size() < k; i++) res.add(store.movie(ranked.get(i).getKey()));
+    }
+
+    public synchronized int pairCount() { return pairs.size(); }
+
+    public String stats() {
+        long q = queries.sum();
+        return String.format("%d queries, avg %.3f ms, max %.3f ms; %d events, %d pairs (%d prunes), record avg %.3f ms",
+                q, q == 0 ? 0 : queryNanos.sum() / 1e6 / q, maxQueryNanos.get() / 1e6,
+                events(), pairCount(), prunes(), events() == 0 ? 0 : recordNanos.sum() / 1e6 / events());
+    }
+
+    private synchronized long events() { return events; }
+
+    private synchronized long prunes() { return prunes; }
+}
+
+// Poster cache bounded by decoded pixel bytes. Evicted posters drop into a
+// soft-reference tier so the GC, not us, decides when they are really gone.
+class PosterCache {
+    private final long maxBytes;
+    private long usedBytes = 0;
+    private final LinkedHashMap<String, ImageIcon> lru = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, SoftEntry> soft = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ImageIcon> cleared = new ReferenceQueue<>();
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder softHits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+
+    private static class SoftEntry extends SoftReference<ImageIcon> {
+        final String key;
+        SoftEntry(String key, ImageIcon icon, ReferenceQueue<ImageIcon> q) { super(icon, q); this.key = key; }
+    }
+
+    public PosterCache(long maxBytes) { this.maxBytes = maxBytes; }
+
+    static long weigh(ImageIcon icon) {
+        return 4L * Math.max(1, icon.getIconWidth()) * Math.max(1, icon.getIconHeight());
+    }
+
+    public ImageIcon get(String key) {
+        synchronized (this) {
+            ImageIcon icon = lru.get(key);
+            if (icon != null) { hits.increment(); return icon; }
+        }
+        SoftEntry ref = soft.remove(key);
+        ImageIcon icon = ref == null ? null : ref.get();
+        if (icon == null) { misses.increment(); return null; }
+        softHits.increment();
+        put(key, icon);
+        return icon;
+    }
+
+    public void put(String key, ImageIcon icon) {
+        long w = weigh(icon);
+        if (w > maxBytes) { soft.put(key, new SoftEntry(key, icon, cleared)); return; }
+        synchronized (this) {
+            ImageIcon prev = lru.put(key, icon);
+            if (prev != null) usedBytes -= weigh(prev);
+            usedBytes += w;
+            Iterator<Map.Entry<String, ImageIcon>> it = lru.entrySet().iterator();
+            while (usedBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, ImageIcon> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                usedBytes -= weigh(eldest.getValue());
+                soft.put(eldest.getKey(), new SoftEntry(eldest.getKey(), eldest.getValue(), cleared));
+                it.remove();
+                evictions.increment();
             }
         }
-        return topCat;
+        // Drop map entries whose icons the GC has already reclaimed
+        for (Reference<? extends ImageIcon> r; (r = cleared.poll()) != null; ) {
+            SoftEntry e = (SoftEntry) r;
+            soft.remove(e.key, e);
+        }
     }
 
-    public int getTotalInteractions() {
-        int total = 0;
-        for (int count : userPreferences.values()) total += count;
-        return total;
+    public synchronized long usedBytes() { return usedBytes; }
+    public synchronized int size() { return lru.size(); }
+
+    public String stats() {
+        return String.format("posters=%d (%d KB / %d KB) hits=%d softHits=%d misses=%d evictions=%d",
+                size(), usedBytes() / 1024, maxBytes / 1024, hits.sum(), softHits.sum(), misses.sum(), evictions.sum());
     }
 }
 
-class ImageLoader {
-    private static Map<String, ImageIcon> cache = new HashMap<>();
-    private static ExecutorService executor = Executors.newFixedThreadPool(10);
+// On-disk store of already-scaled posters so a warm start needs no network.
+// Layout: thumbs-<gen>.pack = header, then append-only records of
+// [magic][keyLen][key][w][h][crc][w*h RGB ints]. The index (URL -> record) is
+// rebuilt on open by walking record headers; pixels are copied from a
+// read-only mapping straight into the BufferedImage raster.
+class ThumbnailStore {
+    static final int MAGIC = 0x46465450;        // "FFTP"
+    static final int VERSION = 1;
+    static final int RECORD_MAGIC = 0x54484d42; // "THMB"
+    static final int HEADER_SIZE = 16;
 
-    public static void load(String originalUrl, String movieTitle, JLabel targetLabel) {
-        if (cache.containsKey(originalUrl)) {
-            targetLabel.setIcon(cache.get(originalUrl));
-            targetLabel.setText("");
-            return;
+    static class Entry {
+        long offset; int keyLen, w, h, crc, size; long lastUsed;
+        long pixelOffset() { return offset + 8 + keyLen + 12; }
+    }
+
+    private final Path dir;
+    private final int width, height;
+    private final long maxBytes;
+    private final Map<String, Entry> index = new HashMap<>();
+    private int generation;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long end;
+    private long liveBytes;
+    private long tick;
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder corrupt = new LongAdder();
+    final LongAdder compactions = new LongAdder();
+
+    public ThumbnailStore(Path dir, int width, int height, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.width = width;
+        this.height = height;
+        this.maxBytes = Math.min(maxBytes, Integer.MAX_VALUE); // single mapping
+        Files.createDirectories(dir);
+        open();
+    }
+
+    static ThumbnailStore openDefault() {
+        Path dir = Paths.get(System.getProperty("filmforge.thumbDir",
+                System.getProperty("user.home") + File.separator + ".filmforge" + File.separator + "thumbs"));
+        try {
+            return new ThumbnailStore(dir, 140, 200, Long.getLong("filmforge.thumbStoreBytes", 256L << 20));
+        } catch (IOException e) {
+            System.err.println("[ThumbnailStore] disabled: " + e);
+            return null;
         }
+    }
+
+    private Path pack(int gen) { return dir.resolve("thumbs-" + gen + ".pack"); }
+
+    private void open() throws IOException {
+        generation = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "thumbs-*.pack")) {
+            for (Path p : ds) {
+                String n = p.getFileName().toString();
+                try { generation = Math.max(generation, Integer.parseInt(n.substring(7, n.length() - 5))); }
+                catch (NumberFormatException ignored) { }
+            }
+        }
+        deleteOlderGenerations();
+        channel = FileChannel.open(pack(generation), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!readHeader()) {
+            channel.truncate(0);
+            channel.write(header(), 0);
+        }
+        end = HEADER_SIZE;
+        scan();
+    }
+
+    private ByteBuffer header() {
+        ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+        h.flip();
+        return h;
+    }
+
+    private boolean readHeader() throws IOException {
+        if (channel.size() < HEADER_SIZE) return false;
+        ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(h, 0);
+        h.flip();
+        return h.getInt() == MAGIC && h.getInt() == VERSION && h.getInt() == width && h.getInt() == height;
+    }
+
+    // Old generations may still be mapped by a previous run (Windows refuses
+    // to delete those), so failures here are retried on the next open.
+    private void deleteOlderGenerations() {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "thumbs-*.pack")) {
+            for (Path p : ds) if (!p.equals(pack(generation))) {
+                try { Files.deleteIfExists(p); } catch (IOException ignored) { }
+            }
+        } catch (IOException ignored) { }
+    }
+
+    private void scan() throws IOException {
+        long size = channel.size();
+        ByteBuffer rec = ByteBuffer.allocate(8);
+        while (end + 8 <= size) {
+            rec.clear();
+            channel.read(rec, end);
+            rec.flip();
+            int magic = rec.getInt(), keyLen = rec.getInt();
+            if (magic != RECORD_MAGIC || keyLen <= 0 || keyLen > 8192 || end + 8 + keyLen + 12 > size) break;
+            ByteBuffer meta = ByteBuffer.allocate(keyLen + 12);
+            channel.read(meta, end + 8);
+            meta.flip();
+            byte[] key = new byte[keyLen];
+            meta.get(key);
+            Entry e = new Entry();
+            e.offset = end;
+            e.keyLen = keyLen;
+            e.w = meta.getInt();
+            e.h = meta.getInt();
+            e.crc = meta.getInt();
+            if (e.w != width || e.h != height) break;
+            e.size = 8 + keyLen + 12 + 4 * e.w * e.h;
+            if (end + e.size > size) break;
+            Entry prev = index.put(new String(key, StandardCharsets.UTF_8), e);
+            if (prev != null) liveBytes -= prev.size;
+            liveBytes += e.size;
+            end += e.size;
+        }
+        // A torn tail left by a crash is simply cut off
+        if (end < size) channel.truncate(end);
+        mapped = null;
+    }
 
-        executor.submit(() -> {
-            ImageIcon icon = null;
+    public BufferedImage get(String key) {
+        Entry e;
+        ByteBuffer view;
+        synchronized (this) {
+            e = index.get(key);
+            if (e == null) { misses.increment(); return null; }
+            e.lastUsed = ++tick;
             try {
-                String proxyUrl = "https://wsrv.nl/?url=" + originalUrl + "&w=140&h=200&output=jpg";
-                URL url = new URL(proxyUrl);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestProperty("User-Agent", "Mozilla/5.0");
-                conn.setConnectTimeout(8000); 
-                conn.setReadTimeout(8000);
-                InputStream is = conn.getInputStream();
-                Image img = ImageIO.read(is);
-                if (img != null) {
-                    Image scaled = img.getScaledInstance(140, 200, Image.SCALE_SMOOTH);
-                    icon = new ImageIcon(scaled);
-                }
-            } catch (Exception e) { }
-
-            final ImageIcon finalIcon = icon;
-            SwingUtilities.invokeLater(() -> {
-                if (finalIcon != null) {
-                    cache.put(originalUrl, finalIcon);
-                    targetLabel.setIcon(finalIcon);
-                } else {
-                    targetLabel.setIcon(createTitlePlaceholder(movieTitle));
+                if (mapped == null || mapped.capacity() < e.offset + e.size) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
                 }
-                targetLabel.setText("");
-            });
-        });
+            } catch (IOException ex) {
+                Metrics.warn("thumb-store", "map failed: " + ex);
+                misses.increment();
+                return null;
+            }
+            view = mapped.duplicate();
+        }
+        view.position((int) e.pixelOffset()).limit((int) (e.offset + e.size));
+        CRC32 crc = new CRC32();
+        crc.update(view.duplicate());
+        if ((int) crc.getValue() != e.crc) {
+            corrupt.increment();
+            synchronized (this) { if (index.get(key) == e) { index.remove(key); liveBytes -= e.size; } }
+            return null;
+        }
+        BufferedImage img = new BufferedImage(e.w, e.h, BufferedImage.TYPE_INT_RGB);
+        view.asIntBuffer().get(((DataBufferInt) img.getRaster().getDataBuffer()).getData());
+        hits.increment();
+        return img;
+    }
+
+    public void put(String key, BufferedImage img) {
+        if (img.getWidth() != width || img.getHeight() != height) return;
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        int[] px = img.getRGB(0, 0, width, height, null, 0, width);
+        ByteBuffer rec = ByteBuffer.allocate(8 + k.length + 12 + 4 * px.length);
+        rec.putInt(RECORD_MAGIC).putInt(k.length).put(k).putInt(width).putInt(height).putInt(0);
+        int pixelStart = rec.position();
+        rec.asIntBuffer().put(px);
+        rec.position(pixelStart);
+        CRC32 crc = new CRC32();
+        crc.update(rec.duplicate());
+        rec.putInt(pixelStart - 4, (int) crc.getValue());
+        rec.rewind();
+
+        synchronized (this) {
+            Entry e = new Entry();
+            e.offset = end;
+            e.keyLen = k.length;
+            e.w = width;
+            e.h = height;
+            e.crc = (int) crc.getValue();
+            e.size = rec.capacity();
+            e.lastUsed = ++tick;
+            try {
+                while (rec.hasRemaining()) channel.write(rec, end + rec.position());
+            } catch (IOException ex) {
+                Metrics.warn("thumb-store", "write failed: " + ex);
+                return;
+            }
+            end += e.size;
+            Entry prev = index.put(key, e);
+            if (prev != null) liveBytes -= prev.size;
+            liveBytes += e.size;
+            if (end > maxBytes) compact();
+        }
+    }
+
+    // Copies the most recently used records into the next generation file
+    // until it is three quarters full, then switches over to it.
+    private void compact() {
+        List<Map.Entry<String, Entry>> live = new ArrayList<>(index.entrySet());
+        live.sort((a, b) -> Long.compare(b.getValue().lastUsed, a.getValue().lastUsed));
+        Path next = pack(generation + 1);
+        Map<String, Entry> kept = new HashMap<>();
+        long pos = HEADER_SIZE;
+        try (FileChannel out = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            out.write(header(), 0);
+            for (Map.Entry<String, Entry> me : live) {
+                Entry e = me.getValue();
+                if (pos + e.size > maxBytes * 3 / 4) break;
+                long copied = 0;
+                while (copied < e.size) copied += channel.transferTo(e.offset + copied, e.size - copied, out.position(pos + copied));
+                Entry moved = new Entry();
+                moved.offset = pos;
+                moved.keyLen = e.keyLen;
+                moved.w = e.w;
+                moved.h = e.h;
+                moved.crc = e.crc;
+                moved.size = e.size;
+                moved.lastUsed = e.lastUsed;
+                kept.put(me.getKey(), moved);
+                pos += e.size;
+            }
+        } catch (IOException ex) {
+            Metrics.warn("thumb-store", "compaction failed: " + ex);
+            try { Files.deleteIfExists(next); } catch (IOException ignored) { }
+            return;
+        }
+        try {
+            channel.close();
+            channel = FileChannel.open(next, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException ex) {
+            Metrics.warn("thumb-store", "compaction switch-over failed: " + ex);
+            return;
+        }
+        generation++;
+        mapped = null;
+        index.clear();
+        index.putAll(kept);
+        end = pos;
+        liveBytes = pos - HEADER_SIZE;
+        compactions.increment();
+        deleteOlderGenerations();
+    }
+
+    public synchronized String stats() {
+        return String.format("thumbs=%d live=%d KB file=%d KB hits=%d misses=%d corrupt=%d compactions=%d",
+                index.size(), liveBytes / 1024, end / 1024, hits.sum(), misses.sum(), corrupt.sum(), compactions.sum());
+    }
+}
+
+// Poster URLs that recently failed, with when each may be tried again.
+// Transport errors and overloaded answers back off exponentially from
+// base; answers that will not change on a retry (4xx, bytes that are not
+// an image) start far up the same curve. Each retry that fails again
+// doubles the wait, up to max, with jitter so a screenful of dead URLs
+// does not come due in the same instant.
+class NegativeCache {
+    static final int PERMANENT_ATTEMPTS = 8;    // base 5 s -> first wait ~10 min
+    static final int SWEEP_AT = 10_000;
+
+    private static final class Failure {
+        final int attempts;
+        final long retryAt;
+        Failure(int attempts, long retryAt) { this.attempts = attempts; this.retryAt = retryAt; }
+    }
+
+    private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+    private final long baseNanos, maxNanos;
+    final LongAdder hits = new LongAdder();
+
+    NegativeCache(Duration base, Duration max) {
+        this.baseNanos = base.toNanos();
+        this.maxNanos = max.toNanos();
+    }
+
+    // True while key is still inside its backoff window
+    boolean blocked(String key) {
+        Failure f = failures.get(key);
+        if (f == null || System.nanoTime() - f.retryAt >= 0) return false;
+        hits.increment();
+        return true;
+    }
+
+    void failed(String key, boolean permanent) {
+        long now = System.nanoTime();
+        failures.compute(key, (k, f) -> {
+            int attempts = Math.max(f == null ? 1 : f.attempts + 1, permanent ? PERMANENT_ATTEMPTS : 1);
+            long wait = (long) Math.min(maxNanos, baseNanos * Math.pow(2, attempts - 1));
+            wait = wait * 3 / 4 + ThreadLocalRandom.current().nextLong(wait / 2 + 1);
+            return new Failure(attempts, now + wait);
+        });
+        if (failures.size() > SWEEP_AT) failures.values().removeIf(f -> now - f.retryAt >= 0);
+    }
+
+    void succeeded(String key) { failures.remove(key); }
+
+    int size() { return failures.size(); }
+}
+
+// Per-host circuit breaker. After threshold consecutive failures the host
+// is treated as down and calls are refused without touching the network.
+// Once the cooldown passes a single probe goes through: success closes the
+// breaker, failure reopens it for twice as long (up to maxCooldown).
+class CircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    final String name;
+    private final int threshold;
+    private final long baseCooldownNanos, maxCooldownNanos;
+    private State state = State.CLOSED;
+    private int failures;
+    private long cooldownNanos, openUntil;
+
+    final LongAdder rejected = new LongAdder();
+    final LongAdder trips = new LongAdder();
+
+    CircuitBreaker(String name, int threshold, Duration cooldown, Duration maxCooldown) {
+        this.name = name;
+        this.threshold = threshold;
+        this.baseCooldownNanos = this.cooldownNanos = cooldown.toNanos();
+        this.maxCooldownNanos = maxCooldown.toNanos();
+    }
+
+    synchronized boolean allow() {
+        if (state == State.CLOSED) return true;
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            state = State.HALF_OPEN;    // this caller is the probe
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    synchronized void success() {
+        state = State.CLOSED;
+        failures = 0;
+        cooldownNanos = baseCooldownNanos;
+    }
+
+    synchronized void failure() {
+        if (state == State.OPEN) return;    // stragglers sent before the trip
+        if (state == State.HALF_OPEN) {
+            cooldownNanos = Math.min(maxCooldownNanos, cooldownNanos * 2);
+        } else if (++failures < threshold) {
+            return;
+        }
+        state = State.OPEN;
+        openUntil = System.nanoTime() + cooldownNanos;
+        trips.increment();
+        Metrics.warn("circuit-open", name + " unhealthy, failing fast for " + cooldownNanos / 1_000_000 + " ms");
+    }
+
+    // A call that ended without an answer either way (cancelled). If it was
+    // the probe, let the next caller probe instead.
+    synchronized void abandoned() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openUntil = System.nanoTime();
+        }
+    }
+
+    synchronized State state() { return state; }
+}
+
+class ImageLoader {
+    static final int W = 140, H = 200;
+    static final String PROXY = System.getProperty("filmforge.posterProxy", "https://wsrv.nl/?url=");
+    static final int MAX_IN_FLIGHT = Integer.getInteger("filmforge.posterConcurrency", 16);
+    static final Duration TIMEOUT = Duration.ofMillis(Long.getLong("filmforge.posterTimeoutMs", 8000));
+    static final PosterCache cache = new PosterCache(Long.getLong("filmforge.posterCacheBytes", 48L << 20));
+    static final ThumbnailStore store = ThumbnailStore.openDefault();
+    static final PosterCache placeholders = new PosterCache(Long.getLong("filmforge.placeholderCacheBytes", 8L << 20));
+    static final NegativeCache failures = new NegativeCache(
+            Duration.ofMillis(Long.getLong("filmforge.posterRetryMs", 5000)), Duration.ofHours(1));
+    static final int BREAKER_THRESHOLD = Integer.getInteger("filmforge.posterBreakerFailures", 8);
+    static final Font PLACEHOLDER_FONT = new Font("Arial", Font.BOLD, 14);
+    static final Color PLACEHOLDER_BG = new Color(30, 30, 30), PLACEHOLDER_BORDER = new Color(229, 9, 20);
+    static final Stroke PLACEHOLDER_STROKE = new BasicStroke(4);
+    private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    // One shared client keeps connections to the proxy alive (and multiplexed
+    // over HTTP/2 where offered); decoding never runs on its threads.
+    private static final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    private static final ExecutorService decodePool = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                Thread t = new Thread(r, "poster-decode");
+                t.setDaemon(true);
+                return t;
+            });
+    private static final PriorityBlockingQueue<PendingPoster> queue = new PriorityBlockingQueue<>();
+    private static final Object pumpLock = new Object();
+    private static int active = 0;
+    private static long nextSeq = 0;
+
+    private static final String URL_KEY = "filmforge.posterUrl";
+    private static final String TITLE_KEY = "filmforge.posterTitle";
+    private static final String WATCH_KEY = "filmforge.posterWatch";
+    private static final Map<String, PendingPoster> inflight = new ConcurrentHashMap<>();
+    static final LongAdder coalesced = new LongAdder();
+    static final LongAdder cancelled = new LongAdder();
+    static final LongAdder fetched = new LongAdder();
+    static final LongAdder failed = new LongAdder();
+    static final LongAdder bytes = new LongAdder();
+    static final LongAdder fetchNanos = new LongAdder();
+    static final LongAdder queueNanos = new LongAdder();
+    static final LongAdder decodes = new LongAdder();
+    static final LongAdder decodeNanos = new LongAdder();
+    static final LongAdder scaleNanos = new LongAdder();
+    static final LongAdder storeReads = new LongAdder();
+    static final LongAdder storeNanos = new LongAdder();
+    private static final Metrics.Timer fetchTimer = Metrics.timer("poster.fetch");
+    private static final Metrics.Timer queueTimer = Metrics.timer("poster.queue");
+    private static final Metrics.Timer decodeTimer = Metrics.timer("poster.decode");
+    private static final Metrics.Timer scaleTimer = Metrics.timer("poster.scale");
+    private static final Metrics.Timer storeTimer = Metrics.timer("poster.storeRead");
+
+    static {
+        Metrics.gauge("poster.queued", queue::size);
+        Metrics.gauge("poster.inFlight", () -> { synchronized (pumpLock) { return active; } });
+        Metrics.gauge("poster.decodeQueue", () -> ((java.util.concurrent.ThreadPoolExecutor) decodePool).getQueue().size());
+        Metrics.gauge("poster.failed", failed::sum);
+        Metrics.gauge("poster.negativeHits", failures.hits::sum);
+        Metrics.gauge("poster.negativeUrls", failures::size);
+        Metrics.gauge("poster.breakerRejects", () -> breakers.values().stream().mapToLong(b -> b.rejected.sum()).sum());
+        Metrics.gauge("poster.breakerTrips", () -> breakers.values().stream().mapToLong(b -> b.trips.sum()).sum());
+        Metrics.gauge("cache.posters.hits", cache.hits::sum);
+        Metrics.gauge("cache.posters.softHits", cache.softHits::sum);
+        Metrics.gauge("cache.posters.misses", cache.misses::sum);
+        Metrics.gauge("cache.posters.hitPct", () -> {
+            long h = cache.hits.sum() + cache.softHits.sum(), n = h + cache.misses.sum();
+            return n == 0 ? 0 : 100 * h / n;
+        });
+        if (store != null) {
+            Metrics.gauge("cache.thumbs.hits", store.hits::sum);
+            Metrics.gauge("cache.thumbs.misses", store.misses::sum);
+        }
+    }
+
+    // One load shared by every label currently waiting on the same URL.
+    // Subscribers are only touched on the EDT; the workers only read them.
+    // Network order is on-screen first, then first come first served.
+    static class PendingPoster implements Comparable<PendingPoster> {
+        final String url;
+        final long seq;
+        final Set<JLabel> subscribers = ConcurrentHashMap.newKeySet();
+        Future<?> task;
+        volatile CompletableFuture<?> request;
+        volatile int priority = 1;
+        volatile long queuedAt;
+        volatile boolean dead;
+        PendingPoster(String url) {
+            this.url = url;
+            synchronized (pumpLock) { this.seq = nextSeq++; }
+        }
+        public int compareTo(PendingPoster o) {
+            return priority != o.priority ? Integer.compare(priority, o.priority) : Long.compare(seq, o.seq);
+        }
+    }
+
+    public static void load(String originalUrl, String movieTitle, JLabel targetLabel) {
+        Object prev = targetLabel.getClientProperty(URL_KEY);
+        if (prev != null && !prev.equals(originalUrl)) {
+            release(targetLabel);
+            targetLabel.setIcon(null);
+            targetLabel.setText("Loading...");
+        }
+        targetLabel.putClientProperty(URL_KEY, originalUrl);
+        targetLabel.putClientProperty(TITLE_KEY, movieTitle);
+        watch(targetLabel);
+
+        ImageIcon cached = cache.get(originalUrl);
+        if (cached != null) {
+            targetLabel.setIcon(cached);
+            targetLabel.setText("");
+            return;
+        }
+        // Failed recently: straight to the placeholder until its retry is due
+        if (failures.blocked(originalUrl)) {
+            targetLabel.setIcon(placeholder(movieTitle));
+            targetLabel.setText("");
+            return;
+        }
+
+        while (true) {
+            PendingPoster p = inflight.computeIfAbsent(originalUrl, PendingPoster::new);
+            synchronized (p) {
+                if (p.dead) continue;
+                p.subscribers.add(targetLabel);
+                if (p.priority != 0 && isOnScreen(targetLabel)) reprioritize(p, 0);
+                if (p.task == null) p.task = decodePool.submit(() -> fromStore(p));
+                else coalesced.increment();
+                return;
+            }
+        }
+    }
+
+    // Drops the label's interest in its poster. If nobody else wants that URL
+    // the load is cancelled wherever it is: queued, waiting or on the wire.
+    public static void release(JLabel label) {
+        Object url = label.getClientProperty(URL_KEY);
+        PendingPoster p = url == null ? null : inflight.get(url);
+        if (p == null) return;
+        synchronized (p) {
+            p.subscribers.remove(label);
+            if (!p.subscribers.isEmpty() || p.dead) return;
+            p.dead = true;
+            inflight.remove(p.url, p);
+            if (p.task != null) p.task.cancel(false);
+        }
+        queue.remove(p);
+        CompletableFuture<?> req = p.request;
+        if (req != null) req.cancel(true);
+        cancelled.increment();
+    }
+
+    // Re-sorts the network queue so posters currently inside a viewport go
+    // out first. Called on the EDT at most once a UI frame while a tracked
+    // viewport scrolls or resizes, and when a tab is shown.
+    public static void promoteVisible() {
+        if (queue.isEmpty()) return;
+        for (Object o : queue.toArray()) {
+            PendingPoster p = (PendingPoster) o;
+            int want = 1;
+            for (JLabel l : p.subscribers) if (isOnScreen(l)) { want = 0; break; }
+            if (want != p.priority) reprioritize(p, want);
+        }
+    }
+
+    // The priority is the queue's sort key, so a queued poster is taken out
+    // while it changes. Queue inserts hold pumpLock too, so one cannot slip
+    // in between.
+    private static void reprioritize(PendingPoster p, int priority) {
+        synchronized (pumpLock) {
+            boolean queued = queue.remove(p);
+            p.priority = priority;
+            if (queued) queue.add(p);
+        }
+    }
+
+    private static boolean isOnScreen(JLabel l) {
+        return l.isShowing() && !l.getVisibleRect().isEmpty();
+    }
+
+    // Labels that leave the component tree release their load; labels that
+    // come back before their poster arrived ask for it again.
+    private static void watch(JLabel label) {
+        if (label.getClientProperty(WATCH_KEY) != null) return;
+        label.putClientProperty(WATCH_KEY, Boolean.TRUE);
+        label.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) == 0) return;
+            if (!label.isDisplayable()) {
+                release(label);
+            } else if (label.getIcon() == null && label.getClientProperty(URL_KEY) != null) {
+                load((String) label.getClientProperty(URL_KEY), (String) label.getClientProperty(TITLE_KEY), label);
+            }
+        });
+    }
+
+    private static void fromStore(PendingPoster p) {
+        if (p.dead) return;
+        long start = System.nanoTime();
+        BufferedImage thumb = store != null ? store.get(p.url) : null;
+        if (thumb != null) {
+            long took = System.nanoTime() - start;
+            storeReads.increment();
+            storeNanos.add(took);
+            storeTimer.record(took);
+            complete(p, thumb);
+        } else {
+            p.queuedAt = System.nanoTime();
+            synchronized (pumpLock) { queue.add(p); }
+            pump();
+        }
+    }
+
+    private static void pump() {
+        while (true) {
+            PendingPoster p;
+            synchronized (pumpLock) {
+                if (active >= MAX_IN_FLIGHT) return;
+                p = queue.poll();
+                if (p == null) return;
+                if (p.dead) continue;
+                active++;
+            }
+            URI uri;
+            try {
+                uri = URI.create(PROXY + p.url + "&w=" + W + "&h=" + H + "&output=jpg");
+            } catch (IllegalArgumentException e) {
+                uri = null;
+            }
+            CircuitBreaker breaker = uri == null ? null : breaker(uri);
+            if (uri == null || !breaker.allow()) {
+                synchronized (pumpLock) { active--; }
+                if (uri == null) failures.failed(p.url, true);
+                complete(p, null);
+                continue;
+            }
+            send(p, uri, breaker);
+        }
+    }
+
+    private static CircuitBreaker breaker(URI uri) {
+        String host = uri.getHost() != null ? uri.getHost() : "";
+        return breakers.computeIfAbsent(host, h -> new CircuitBreaker("poster host " + h, BREAKER_THRESHOLD,
+                Duration.ofSeconds(5), Duration.ofMinutes(2)));
+    }
+
+    private static void send(PendingPoster p, URI uri, CircuitBreaker breaker) {
+        long start = System.nanoTime();
+        queueNanos.add(start - p.queuedAt);
+        queueTimer.record(start - p.queuedAt);
+        PerfEvents.PosterFetch event = new PerfEvents.PosterFetch();
+        event.begin();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(TIMEOUT)
+                .header("User-Agent", "Mozilla/5.0")
+                .build();
+        CompletableFuture<HttpResponse<byte[]>> req = http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        p.request = req;
+        if (p.dead) req.cancel(true);
+        req.whenComplete((resp, err) -> {
+            long took = System.nanoTime() - start;
+            fetchNanos.add(took);
+            fetchTimer.record(took);
+            synchronized (pumpLock) { active--; }
+            pump();
+            if (event.shouldCommit()) {
+                event.url = p.url;
+                event.status = resp != null ? resp.statusCode() : 0;
+                event.bytes = resp != null ? resp.body().length : 0;
+                event.error = err != null ? err.toString() : null;
+                event.commit();
+            }
+            // Cancellation is how release() stops a load nobody wants anymore;
+            // it says nothing about the URL or the host, and release() has
+            // already counted it
+            if (err instanceof java.util.concurrent.CancellationException) {
+                breaker.abandoned();
+                complete(p, null);
+                return;
+            }
+            int status = err != null ? 0 : resp.statusCode();
+            if (status != 200) {
+                // Timeouts, refused connections, 5xx and 429 mean the host is
+                // struggling; any other answer means it is fine and this URL is not
+                boolean hostTrouble = status == 0 || status >= 500 || status == 429;
+                if (hostTrouble) breaker.failure();
+                else breaker.success();
+                failures.failed(p.url, !hostTrouble);
+                failed.increment();
+                Metrics.warn("poster-fetch", p.url + ": " + (err != null ? err : "HTTP " + status));
+                complete(p, null);
+                return;
+            }
+            breaker.success();
+            fetched.increment();
+            bytes.add(resp.body().length);
+            decodePool.execute(() -> {
+                BufferedImage thumb = decode(resp.body());
+                if (thumb != null) {
+                    failures.succeeded(p.url);
+                    if (store != null) store.put(p.url, thumb);
+                } else {
+                    failures.failed(p.url, true);
+                }
+                complete(p, thumb);
+            });
+        });
+    }
+
+    // Decodes straight to roughly twice the card size (source subsampling
+    // skips the rest of the pixels inside the reader), then does one bicubic
+    // pass into a screen-compatible image. The full-size source never
+    // outlives this method.
+    static BufferedImage decode(byte[] data) {
+        long start = System.nanoTime();
+        PerfEvents.PosterDecode event = new PerfEvents.PosterDecode();
+        event.begin();
+        event.bytes = data.length;
+        BufferedImage src;
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                decodeFailed(event, "no image reader for " + data.length + " bytes");
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sub = Math.max(1, Math.min(reader.getWidth(0) / W, reader.getHeight(0) / H) / 2);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (sub > 1) param.setSourceSubsampling(sub, sub, 0, 0);
+                src = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            decodeFailed(event, e.toString());
+            return null;
+        }
+        long decoded = System.nanoTime();
+        decodeNanos.add(decoded - start);
+        decodeTimer.record(decoded - start);
+        event.commit();
+
+        BufferedImage thumb = newThumb();
+        Graphics2D g2 = thumb.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2.drawImage(src, 0, 0, W, H, null);
+        g2.dispose();
+        src.flush();
+        scaleNanos.add(System.nanoTime() - decoded);
+        scaleTimer.record(System.nanoTime() - decoded);
+        decodes.increment();
+        return thumb;
+    }
+
+    private static void decodeFailed(PerfEvents.PosterDecode event, String why) {
+        event.error = why;
+        event.commit();
+        Metrics.warn("poster-decode", why);
+    }
+
+    private static BufferedImage newThumb() {
+        if (GraphicsEnvironment.isHeadless()) return new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(W, H, Transparency.OPAQUE);
+    }
+
+    private static void complete(PendingPoster p, BufferedImage thumb) {
+        ImageIcon icon = null;
+        if (thumb != null) {
+            icon = new ImageIcon(thumb);
+            cache.put(p.url, icon);
+        }
+
+        final ImageIcon finalIcon = icon;
+        SwingUtilities.invokeLater(() -> {
+            synchronized (p) {
+                p.dead = true;
+                inflight.remove(p.url, p);
+            }
+            for (JLabel targetLabel : p.subscribers) {
+                if (!p.url.equals(targetLabel.getClientProperty(URL_KEY))) continue;
+                targetLabel.setIcon(finalIcon != null ? finalIcon
+                        : placeholder((String) targetLabel.getClientProperty(TITLE_KEY)));
+                targetLabel.setText("");
+            }
+            p.subscribers.clear();
+        });
+    }
+
+    public static String stats() {
+        long n = fetched.sum() + failed.sum();
+        int activeNow;
+        synchronized (pumpLock) { activeNow = active; }
+        long rejected = 0;
+        for (CircuitBreaker b : breakers.values()) rejected += b.rejected.sum();
+        return String.format("fetched=%d failed=%d bytes=%d KB avgFetch=%.1f ms avgQueue=%.1f ms active=%d queued=%d coalesced=%d cancelled=%d negativeHits=%d breakerRejects=%d",
+                fetched.sum(), failed.sum(), bytes.sum() / 1024,
+                n == 0 ? 0.0 : fetchNanos.sum() / 1e6 / n, n == 0 ? 0.0 : queueNanos.sum() / 1e6 / n,
+                activeNow, queue.size(), coalesced.sum(), cancelled.sum(), failures.hits.sum(), rejected);
+    }
+
+    // Per-stage cost of turning bytes into a card image, in milliseconds
+    public static String decodeStats() {
+        long d = decodes.sum(), r = storeReads.sum();
+        return String.format("decoded=%d avgDecode=%.2f ms avgScale=%.2f ms storeReads=%d avgStoreRead=%.2f ms",
+                d, d == 0 ? 0.0 : decodeNanos.sum() / 1e6 / d, d == 0 ? 0.0 : scaleNanos.sum() / 1e6 / d,
+                r, r == 0 ? 0.0 : storeNanos.sum() / 1e6 / r);
+    }
+
+    // Placeholders depend only on the title, so they are drawn once and
+    // kept in their own small cache rather than redrawn on every rebuild
+    static ImageIcon placeholder(String title) {
+        String key = title == null ? "" : title;
+        ImageIcon icon = placeholders.get(key);
+        if (icon == null) {
+            icon = createTitlePlaceholder(key);
+            placeholders.put(key, icon);
+        }
+        return icon;
+    }
+
+    private static ImageIcon createTitlePlaceholder(String title) {
+        BufferedImage img = newThumb();
+        Graphics2D g2 = img.createGraphics();
+        g2.setColor(PLACEHOLDER_BG);
+        g2.fillRect(0, 0, W, H);
+        g2.setColor(PLACEHOLDER_BORDER);
+        g2.setStroke(PLACEHOLDER_STROKE);
+        g2.drawRect(0, 0, W, H);
+        g2.setColor(Color.WHITE);
+        g2.setFont(PLACEHOLDER_FONT);
+        FontMetrics fm = g2.getFontMetrics();
+        int y = H / 2 - 10;
+        for (String word : title.split(" ")) {
+            g2.drawString(word, (W - fm.stringWidth(word)) / 2, y);
+            y += 20;
+        }
+        g2.dispose();
+        return new ImageIcon(img);
+    }
+}
+
+// Ranked prefix index. Titles are kept lowercase in one sorted char arena,
+// so a prefix is just a binary-searched range [lo, hi). A max segment tree
+// over that order answers "best movie in range" in O(log n), and the top k
+// of a range come out of a small heap of sub-ranges in O(k log n) without
+// touching the rest of the subtree. Inserts are buffered and folded in on
+// the next query; readers always see an immutable snapshot.
+class Trie {
+    static final class Index {
+        final char[] keys;
+        final int[] start;     // n + 1 offsets into keys
+        final CatalogStore store;
+        final int[] ids;       // terminal catalog rows, same order as keys
+        final int[] tree;      // tree[n + i] = i; parents hold the better child
+
+        Index(char[] keys, int[] start, CatalogStore store, int[] ids) {
+            this.keys = keys;
+            this.start = start;
+            this.store = store;
+            this.ids = ids;
+            int n = ids.length;
+            tree = new int[Math.max(2, 2 * n)];
+            for (int i = 0; i < n; i++) tree[n + i] = i;
+            for (int i = n - 1; i > 0; i--) tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+
+        // Snapshot encoding: every array as stored, the tree included
+        Index(ByteBuffer b, CatalogStore store) {
+            this.store = store;
+            keys = CatalogSnapshot.getChars(b);
+            start = CatalogSnapshot.getInts(b);
+            ids = CatalogSnapshot.getInts(b);
+            tree = CatalogSnapshot.getInts(b);
+            if (start.length != ids.length + 1 || tree.length != Math.max(2, 2 * ids.length)) {
+                throw new IllegalStateException("snapshot index is inconsistent");
+            }
+        }
+
+        long snapshotBytes() { return 16 + 2L * keys.length + 4L * (start.length + ids.length + tree.length); }
+
+        long heapBytes() { return 2L * keys.length + 4L * (start.length + ids.length + tree.length); }
+
+        void writeTo(ByteBuffer b) {
+            CatalogSnapshot.putChars(b, keys, keys.length);
+            CatalogSnapshot.putInts(b, start, start.length);
+            CatalogSnapshot.putInts(b, ids, ids.length);
+            CatalogSnapshot.putInts(b, tree, tree.length);
+        }
+
+        int size() { return ids.length; }
+
+        int better(int a, int b) {
+            int c = store.ratingHundredths(ids[a]) - store.ratingHundredths(ids[b]);
+            return c < 0 || (c == 0 && b < a) ? b : a;
+        }
+
+        // Compares key i, cut to the prefix length, against the prefix
+        int comparePrefix(int i, String p) {
+            int s = start[i], len = start[i + 1] - s, n = Math.min(len, p.length());
+            for (int j = 0; j < n; j++) {
+                int d = keys[s + j] - p.charAt(j);
+                if (d != 0) return d;
+            }
+            return len >= p.length() ? 0 : -1;
+        }
+
+        int bound(String p, boolean upper) {
+            int lo = 0, hi = ids.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = comparePrefix(mid, p);
+                if (c < 0 || (upper && c == 0)) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        int best(int lo, int hi) {
+            int n = ids.length, res = -1;
+            for (lo += n, hi += n; lo < hi; lo >>= 1, hi >>= 1) {
+                if ((lo & 1) == 1) { res = res < 0 ? tree[lo] : better(res, tree[lo]); lo++; }
+                if ((hi & 1) == 1) { --hi; res = res < 0 ? tree[hi] : better(res, tree[hi]); }
+            }
+            return res;
+        }
+    }
+
+    private final List<Movie> pending = new ArrayList<>();
+    private volatile boolean dirty = false;
+    private volatile Index index = new Index(new char[0], new int[] {0}, null, new int[0]);
+
+    public synchronized void insert(Movie m) { pending.add(m); dirty = true; }
+
+    // The index with every insert so far folded in; rows come in title order
+    Index sorted() { return current(); }
+
+    // Size of the published index; inserts not yet merged are not counted
+    long heapBytes() { return index.heapBytes(); }
+
+    // Sorts the batch outside the lock, so shards built on different threads
+    // only serialize on the linear merge into the live index.
+    public void insertAll(Collection<Movie> ms) {
+        Movie[] batch = ms.toArray(new Movie[0]);
+        String[] lower = sortBatch(batch);
+        synchronized (this) { index = merge(index, lower, batch); }
+    }
+
+    private Index current() {
+        if (!dirty) return index;
+        synchronized (this) {
+            if (!dirty) return index;
+            Movie[] batch = pending.toArray(new Movie[0]);
+            index = merge(index, sortBatch(batch), batch);
+            pending.clear();
+            dirty = false;
+            return index;
+        }
+    }
+
+    // Sorts movies in place by lowercase title and returns the keys
+    private static String[] sortBatch(Movie[] batch) {
+        int n = batch.length;
+        String[] lower = new String[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) { lower[i] = batch[i].title().toLowerCase(Locale.ROOT); order[i] = i; }
+        Arrays.parallelSort(order, (a, b) -> lower[a].compareTo(lower[b]));
+        Movie[] ms = batch.clone();
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) { batch[i] = ms[order[i]]; keys[i] = lower[order[i]]; }
+        return keys;
+    }
+
+    private static int compareKey(Index idx, int i, String s) {
+        int a = idx.start[i], len = idx.start[i + 1] - a, n = Math.min(len, s.length());
+        for (int j = 0; j < n; j++) {
+            int d = idx.keys[a + j] - s.charAt(j);
+            if (d != 0) return d;
+        }
+        return len - s.length();
+    }
+
+    private static Index merge(Index old, String[] lower, Movie[] added) {
+        if (added.length == 0) return old;
+        CatalogStore store = added[0].store;
+        for (Movie m : added) {
+            if (m.store != store || (old.store != null && old.store != store)) {
+                throw new IllegalArgumentException("movies from more than one catalog");
+            }
+        }
+        int n = old.size() + added.length, total = old.keys.length;
+        for (String s : lower) total += s.length();
+        char[] keys = new char[total];
+        int[] start = new int[n + 1];
+        int[] ids = new int[n];
+        int i = 0, j = 0, pos = 0;
+        for (int k = 0; k < n; k++) {
+            start[k] = pos;
+            if (j >= added.length || (i < old.size() && compareKey(old, i, lower[j]) <= 0)) {
+                int a = old.start[i], len = old.start[i + 1] - a;
+                System.arraycopy(old.keys, a, keys, pos, len);
+                pos += len;
+                ids[k] = old.ids[i++];
+            } else {
+                lower[j].getChars(0, lower[j].length(), keys, pos);
+                pos += lower[j].length();
+                ids[k] = added[j++].id;
+            }
+        }
+        start[n] = total;
+        return new Index(keys, start, store, ids);
+    }
+
+    public int size() { return current().size(); }
+
+    // Folds buffered inserts now rather than on the first query
+    public void prepare() { current(); }
+
+    Index snapshot() { return current(); }
+
+    // Replaces the index with one read from a snapshot; buffered inserts
+    // are folded in on top as usual.
+    public synchronized void restore(Index idx) { index = idx; }
+
+    // Top k titles starting with the prefix, best rated first
+    public List<Movie> search(String pre, int k) {
+        Index idx = current();
+        String p = pre.toLowerCase(Locale.ROOT);
+        int lo = idx.bound(p, false), hi = idx.bound(p, true);
+        List<Movie> res = new ArrayList<>(Math.min(k, hi - lo));
+        if (lo >= hi || k <= 0) return res;
+
+        // Each heap entry is {best, lo, hi}; popping one splits its range
+        PriorityQueue<int[]> heap = new PriorityQueue<>((a, b) -> a[0] == b[0] ? 0 : idx.better(a[0], b[0]) == a[0] ? -1 : 1);
+        heap.add(new int[] {idx.best(lo, hi), lo, hi});
+        while (!heap.isEmpty() && res.size() < k) {
+            int[] top = heap.poll();
+            res.add(idx.store.movie(idx.ids[top[0]]));
+            if (top[1] < top[0]) heap.add(new int[] {idx.best(top[1], top[0]), top[1], top[0]});
+            if (top[0] + 1 < top[2]) heap.add(new int[] {idx.best(top[0] + 1, top[2]), top[0] + 1, top[2]});
+        }
+        return res;
+    }
+}
+
+// Second search engine for everything the prefix index cannot answer:
+// substrings anywhere in the title ("dark knight") via a trigram inverted
+// index, whole-word matches via a token index, and typos ("intersteller")
+// via a BK-tree over the title vocabulary. Posting lists are sorted int
+// arrays of movie ids; results are scored and cut to the top k with a
+// bounded heap. Same buffering and snapshot scheme as Trie.
+class FuzzySearchEngine {
+    // Tokens in more titles than this ("the", "of") only re-score candidates
+    static final int COMMON_TOKEN = 50_000;
+
+    static final class BKTree {
+        String[] words = new String[16];
+        int[] firstChild = new int[16], nextSibling = new int[16], dist = new int[16];
+        int size = 0;
+
+        // The words themselves are the token map's keys and counted there
+        long heapBytes() { return 4L * words.length + 12L * firstChild.length; }
+
+        void add(String w) {
+            if (size == 0) { append(w, 0); return; }
+            int node = 0;
+            outer:
+            while (true) {
+                int d = distance(w, words[node], Integer.MAX_VALUE);
+                if (d == 0) return;
+                for (int c = firstChild[node]; c >= 0; c = nextSibling[c]) {
+                    if (dist[c] == d) { node = c; continue outer; }
+                }
+                int child = append(w, d);
+                nextSibling[child] = firstChild[node];
+                firstChild[node] = child;
+                return;
+            }
+        }
+
+        private int append(String w, int d) {
+            if (size == words.length) {
+                int n = size * 2;
+                words = Arrays.copyOf(words, n);
+                firstChild = Arrays.copyOf(firstChild, n);
+                nextSibling = Arrays.copyOf(nextSibling, n);
+                dist = Arrays.copyOf(dist, n);
+            }
+            words[size] = w; firstChild[size] = -1; nextSibling[size] = -1; dist[size] = d;
+            return size++;
+        }
+
+        void search(String q, int max, java.util.function.ObjIntConsumer<String> out) {
+            if (size == 0) return;
+            int[] stack = new int[64];
+            int sp = 0;
+            stack[sp++] = 0;
+            while (sp > 0) {
+                int node = stack[--sp];
+                int d = distance(q, words[node], Integer.MAX_VALUE);
+                if (d <= max) out.accept(words[node], d);
+                for (int c = firstChild[node]; c >= 0; c = nextSibling[c]) {
+                    if (Math.abs(dist[c] - d) > max) continue;
+                    if (sp == stack.length) stack = Arrays.copyOf(stack, sp * 2);
+                    stack[sp++] = c;
+                }
+            }
+        }
+    }
+
+    // Levenshtein distance; gives up with max + 1 once every path exceeds max
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] prev = new int[b.length() + 1], cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] t = prev; prev = cur; cur = t;
+        }
+        return prev[b.length()];
+    }
+
+    static String normalize(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean space = true;
+        for (int i = 0; i < s.length(); i++) {
+            char c = Character.toLowerCase(s.charAt(i));
+            if (Character.isLetterOrDigit(c)) { sb.append(c); space = false; }
+            else if (!space) { sb.append(' '); space = true; }
+        }
+        int n = sb.length();
+        if (n > 0 && sb.charAt(n - 1) == ' ') sb.setLength(n - 1);
+        return sb.toString();
+    }
+
+    static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    // Open-addressing long -> int map, so trigram keys are never boxed
+    static final class GramTable {
+        long[] keys = new long[1024];
+        int[] slots = new int[1024];
+        int size = 0;
+
+        GramTable() { Arrays.fill(slots, -1); }
+
+        long heapBytes() { return 8L * keys.length + 4L * slots.length; }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask; ; i = (i + 1) & mask) {
+                if (slots[i] < 0) return -1;
+                if (keys[i] == key) return slots[i];
+            }
+        }
+
+        int getOrAdd(long key) {
+            if (size * 2 >= keys.length) grow();
+            int mask = keys.length - 1;
+            for (int i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask; ; i = (i + 1) & mask) {
+                if (slots[i] < 0) { keys[i] = key; return slots[i] = size++; }
+                if (keys[i] == key) return slots[i];
+            }
+        }
+
+        private void grow() {
+            long[] k = keys;
+            int[] v = slots;
+            keys = new long[k.length * 2];
+            slots = new int[k.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = keys.length - 1;
+            for (int j = 0; j < k.length; j++) {
+                if (v[j] < 0) continue;
+                int i = Long.hashCode(k[j] * 0x9E3779B97F4A7C15L) & mask;
+                while (slots[i] >= 0) i = (i + 1) & mask;
+                keys[i] = k[j];
+                slots[i] = v[j];
+            }
+        }
+    }
+
+    static final class Index {
+        final CatalogStore store;
+        final int[] rows;      // posting id -> catalog row
+        final String[] norm;
+        final GramTable gramSlots = new GramTable();
+        int[][] grams = new int[0][];
+        final Map<String, int[]> tokens = new HashMap<>();
+        final BKTree vocab = new BKTree();
+
+        Index(CatalogStore store, int[] rows) {
+            this.store = store;
+            this.rows = rows;
+            norm = new String[rows.length];
+            // Two passes: count postings, then fill exactly sized arrays.
+            // last[] remembers the last id per key so repeats inside one
+            // title are counted once; ids arrive in increasing order.
+            int[] count = new int[1024], last = new int[1024];
+            Map<String, int[]> tokenCount = new HashMap<>();
+            for (int id = 0; id < rows.length; id++) {
+                String n = norm[id] = normalize(store.title(rows[id]));
+                for (int i = 0; i + 3 <= n.length(); i++) {
+                    int slot = gramSlots.getOrAdd(gram(n, i));
+                    if (slot >= count.length) {
+                        count = Arrays.copyOf(count, count.length * 2);
+                        last = Arrays.copyOf(last, last.length * 2);
+                    }
+                    if (count[slot] > 0 && last[slot] == id) continue;
+                    last[slot] = id;
+                    count[slot]++;
+                }
+                for (String t : n.split(" ")) {
+                    if (t.isEmpty()) continue;
+                    int[] c = tokenCount.computeIfAbsent(t, k -> new int[] {0, -1});
+                    if (c[1] == id) continue;
+                    c[1] = id;
+                    c[0]++;
+                }
+            }
+            grams = new int[gramSlots.size][];
+            for (int g = 0; g < grams.length; g++) grams[g] = new int[count[g]];
+            for (Map.Entry<String, int[]> e : tokenCount.entrySet()) {
+                tokens.put(e.getKey(), new int[e.getValue()[0]]);
+                e.getValue()[0] = 0;
+                e.getValue()[1] = -1;
+                vocab.add(e.getKey());
+            }
+            Arrays.fill(count, 0);
+            for (int id = 0; id < rows.length; id++) {
+                String n = norm[id];
+                for (int i = 0; i + 3 <= n.length(); i++) {
+                    int slot = gramSlots.get(gram(n, i));
+                    if (count[slot] > 0 && last[slot] == id) continue;
+                    last[slot] = id;
+                    grams[slot][count[slot]++] = id;
+                }
+                for (String t : n.split(" ")) {
+                    if (t.isEmpty()) continue;
+                    int[] c = tokenCount.get(t);
+                    if (c[1] == id) continue;
+                    c[1] = id;
+                    tokens.get(t)[c[0]++] = id;
+                }
+            }
+        }
+
+        // Strings count as Latin-1 with 40 bytes of header, map entries as
+        // 48 bytes of node and table slot; estimates, not measurements
+        long heapBytes() {
+            long bytes = 4L * rows.length + 4L * norm.length + gramSlots.heapBytes() + vocab.heapBytes();
+            for (String n : norm) if (n != null) bytes += 40 + n.length();
+            for (int[] g : grams) bytes += 16 + 4L * g.length;
+            for (Map.Entry<String, int[]> e : tokens.entrySet()) {
+                bytes += 48 + 40 + e.getKey().length() + 16 + 4L * e.getValue().length;
+            }
+            return bytes;
+        }
+
+        int[] gramPostings(long key) {
+            int slot = gramSlots.get(key);
+            return slot < 0 ? null : grams[slot];
+        }
+    }
+
+    // Dense per-thread score arrays; only the touched ids are reset
+    static final class Scores {
+        float[] val = new float[0];
+        int[] touched = new int[16];
+        int n = 0;
+
+        void ensure(int size) { if (val.length < size) val = new float[size]; }
+
+        void max(int id, float v) {
+            if (val[id] == 0) touch(id);
+            if (v > val[id]) val[id] = v;
+        }
+
+        void add(int id, float v) {
+            if (val[id] == 0) touch(id);
+            val[id] += v;
+        }
+
+        private void touch(int id) {
+            if (n == touched.length) touched = Arrays.copyOf(touched, n * 2);
+            touched[n++] = id;
+        }
+
+        void clear() {
+            for (int i = 0; i < n; i++) val[touched[i]] = 0;
+            n = 0;
+        }
+    }
+
+    private static final ThreadLocal<Scores[]> scratch = ThreadLocal.withInitial(() -> new Scores[] {new Scores(), new Scores()});
+
+    private final List<Movie> pending = new ArrayList<>();
+    private volatile boolean dirty = false;
+    private volatile Index index = new Index(null, new int[0]);
+
+    public synchronized void insert(Movie m) { pending.add(m); dirty = true; }
+
+    public synchronized void insertAll(Collection<Movie> ms) { pending.addAll(ms); dirty = true; }
+
+    // Builds the index now rather than on the first query
+    public void prepare() { current(); }
+
+    // Size of the published index; inserts not yet prepared are not counted
+    long heapBytes() { return index.heapBytes(); }
+
+    private Index current() {
+        if (!dirty) return index;
+        synchronized (this) {
+            if (!dirty) return index;
+            dirty = false;
+            if (pending.isEmpty()) return index;
+            CatalogStore store = index.store != null ? index.store : pending.get(0).store;
+            int[] rows = Arrays.copyOf(index.rows, index.rows.length + pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                Movie m = pending.get(i);
+                if (m.store != store) throw new IllegalArgumentException("movies from more than one catalog");
+                rows[index.rows.length + i] = m.id;
+            }
+            pending.clear();
+            index = new Index(store, rows);
+            return index;
+        }
+    }
+
+    static int maxTypos(String token) {
+        return token.length() <= 3 ? 0 : token.length() <= 6 ? 1 : 2;
+    }
+
+    public List<Movie> search(String query, int k) {
+        Index idx = current();
+        String q = normalize(query);
+        if (q.isEmpty() || k <= 0) return new ArrayList<>();
+        Scores score = scratch.get()[0], word = scratch.get()[1];
+        score.ensure(idx.rows.length);
+        word.ensure(idx.rows.length);
+        try {
+            // 1. Substring: intersect the trigram postings, then verify
+            if (q.length() >= 3) {
+                List<int[]> lists = new ArrayList<>();
+                for (int i = 0; i + 3 <= q.length(); i++) {
+                    int[] p = idx.gramPostings(gram(q, i));
+                    if (p == null) { lists = null; break; }
+                    lists.add(p);
+                }
+                if (lists != null) {
+                    lists.sort(Comparator.comparingInt(a -> a.length));
+                    int[] cand = lists.get(0);
+                    for (int i = 1; i < lists.size() && cand.length > 0; i++) cand = intersect(cand, lists.get(i));
+                    for (int id : cand) {
+                        int at = idx.norm[id].indexOf(q);
+                        if (at >= 0) score.add(id, at == 0 ? 4f : 3f);
+                    }
+                }
+            }
+
+            // 2. Words, exact or within a few typos. Each word counts once per
+            // title (its best spelling); very common words only re-score
+            // titles that something rarer already found.
+            for (String t : q.split(" ")) {
+                if (t.length() < 2) continue;
+                idx.vocab.search(t, maxTypos(t), (w, d) -> {
+                    float v = d == 0 ? 2f : 1.5f / (1 + d);
+                    for (int id : idx.tokens.get(w)) word.max(id, v);
+                });
+                boolean common = word.n > COMMON_TOKEN && score.n > 0;
+                for (int i = 0; i < word.n; i++) {
+                    int id = word.touched[i];
+                    if (!common || score.val[id] != 0) score.add(id, word.val[id]);
+                }
+                word.clear();
+            }
+
+            // 3. Top k by score, then rating
+            IntComparator order = (a, b) -> {
+                int c = Float.compare(score.val[a], score.val[b]);
+                return c != 0 ? c : idx.store.ratingHundredths(idx.rows[a]) - idx.store.ratingHundredths(idx.rows[b]);
+            };
+            PriorityQueue<Integer> heap = new PriorityQueue<>(k, order::compare);
+            for (int i = 0; i < score.n; i++) {
+                int id = score.touched[i];
+                if (heap.size() < k) heap.add(id);
+                else if (order.compare(id, heap.peek()) > 0) { heap.poll(); heap.add(id); }
+            }
+            List<Movie> res = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) res.add(idx.store.movie(idx.rows[heap.poll()]));
+            Collections.reverse(res);
+            return res;
+        } finally {
+            score.clear();
+            word.clear();
+        }
+    }
+
+    interface IntComparator { int compare(int a, int b); }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { out[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
+
+// Runs search-as-you-type queries on one background thread. When the new
+// text only extends the previous query and that answer was not cut off by
+// the limit, the previous hits are narrowed instead of asking the index.
+// Prefix hits come first; the fuzzy engine fills whatever room is left.
+class IncrementalSearch {
+    private final Trie trie;
+    private final FuzzySearchEngine fuzzy;
+    private final int limit;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> running;
+
+    // Touched only on the worker thread
+    private String lastQuery = null;
+    private List<Movie> lastHits = Collections.emptyList();
+
+    final LongAdder narrowed = new LongAdder();
+    final LongAdder indexed = new LongAdder();
+    final LongAdder stale = new LongAdder();
+    final LongAdder fuzzyHits = new LongAdder();
+    static final Metrics.Timer latency = Metrics.timer("search.query");
+
+    public IncrementalSearch(Trie trie, FuzzySearchEngine fuzzy, int limit) {
+        this.trie = trie;
+        this.fuzzy = fuzzy;
+        this.limit = limit;
+    }
+
+    // Supersedes whatever query is still pending; onResult runs on the EDT
+    // and only for the newest query.
+    public void submit(String text, java.util.function.Consumer<List<Movie>> onResult) {
+        long gen = generation.incrementAndGet();
+        if (running != null) running.cancel(false);
+        running = worker.submit(() -> {
+            if (generation.get() != gen) { stale.increment(); return; }
+            List<Movie> hits = query(text);
+            SwingUtilities.invokeLater(() -> {
+                if (generation.get() == gen) onResult.accept(hits);
+                else stale.increment();
+            });
+        });
+    }
+
+    private List<Movie> query(String text) {
+        PerfEvents.Search event = new PerfEvents.Search();
+        event.begin();
+        long start = System.nanoTime();
+        List<Movie> hits = match(text, event);
+        latency.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.query = text;
+            event.hits = hits.size();
+            event.commit();
+        }
+        return hits;
+    }
+
+    private List<Movie> match(String text, PerfEvents.Search event) {
+        String q = text.toLowerCase(Locale.ROOT);
+        List<Movie> hits;
+        if (lastQuery != null && q.startsWith(lastQuery) && lastHits.size() < limit) {
+            hits = new ArrayList<>();
+            for (Movie m : lastHits) if (m.title().toLowerCase(Locale.ROOT).startsWith(q)) hits.add(m);
+            narrowed.increment();
+            event.narrowed = true;
+        } else {
+            hits = trie.search(q, limit);
+            indexed.increment();
+        }
+        lastQuery = q;
+        lastHits = hits;
+        if (hits.size() >= limit || q.trim().length() < 2) return hits;
+        fuzzyHits.increment();
+        return withFuzzy(hits, fuzzy, q, limit);
+    }
+
+    // Tops prefix hits up to limit with fuzzy matches not already present
+    static List<Movie> withFuzzy(List<Movie> hits, FuzzySearchEngine fuzzy, String q, int limit) {
+        if (hits.size() >= limit || q.trim().length() < 2) return hits;
+        List<Movie> all = new ArrayList<>(hits);
+        Set<Movie> seen = new HashSet<>(hits);
+        for (Movie m : fuzzy.search(q, limit)) {
+            if (all.size() >= limit) break;
+            if (seen.add(m)) all.add(m);
+        }
+        return all;
+    }
+
+    // The index changed under us, so the next query must not narrow
+    public void invalidate() {
+        worker.execute(() -> { lastQuery = null; lastHits = Collections.emptyList(); });
+    }
+
+    // Lets a pending query finish, then stops the worker
+    public void close() { worker.shutdown(); }
+}
+
+// Set of catalog row ids, compressed the way Roaring bitmaps are: ids are
+// split on their high 16 bits into chunks, and a chunk is a sorted char
+// array while it holds at most 4096 ids (the size of its bit set) and a
+// 1024-word bit set once it holds more. Sparse facet values stay small,
+// dense ones stay fast, and OR goes chunk by chunk without expanding
+// anything. Immutable; chunks are shared between results, never modified.
+final class IdBitmap {
+    static final int ARRAY_MAX = 4096;
+    static final IdBitmap EMPTY = new IdBitmap(new char[0], new Object[0], new int[0]);
+
+    private final char[] keys;       // high 16 bits, ascending
+    private final Object[] chunks;   // char[] of low bits, or long[1024]
+    private final int[] counts;
+
+    private IdBitmap(char[] keys, Object[] chunks, int[] counts) {
+        this.keys = keys;
+        this.chunks = chunks;
+        this.counts = counts;
+    }
+
+    // Collects chunks in key order; ids within a chunk must come ascending
+    static final class Builder {
+        private char[] keys = new char[4];
+        private Object[] chunks = new Object[4];
+        private int[] counts = new int[4];
+        private int n, last = -1;
+
+        Builder add(int id) {
+            if (id <= last) throw new IllegalArgumentException("ids must be added in ascending order");
+            last = id;
+            char key = (char) (id >>> 16), low = (char) id;
+            if (n == 0 || keys[n - 1] != key) chunk(key, new char[16], 0);
+            int c = n - 1;
+            if (chunks[c] instanceof char[]) {
+                char[] a = (char[]) chunks[c];
+                if (counts[c] < ARRAY_MAX) {
+                    if (counts[c] == a.length) chunks[c] = a = Arrays.copyOf(a, Math.min(ARRAY_MAX, a.length * 2));
+                    a[counts[c]++] = low;
+                    return this;
+                }
+                chunks[c] = toBits(a, counts[c]);
+            }
+            ((long[]) chunks[c])[low >>> 6] |= 1L << low;
+            counts[c]++;
+            return this;
+        }
+
+        private void chunk(char key, Object chunk, int count) {
+            if (n == keys.length) {
+                keys = Arrays.copyOf(keys, n * 2);
+                chunks = Arrays.copyOf(chunks, n * 2);
+                counts = Arrays.copyOf(counts, n * 2);
+            }
+            keys[n] = key;
+            chunks[n] = chunk;
+            counts[n++] = count;
+        }
+
+        IdBitmap build() {
+            for (int c = 0; c < n; c++) {
+                if (chunks[c] instanceof char[] && ((char[]) chunks[c]).length != counts[c]) {
+                    chunks[c] = Arrays.copyOf((char[]) chunks[c], counts[c]);
+                }
+            }
+            return n == 0 ? EMPTY : new IdBitmap(Arrays.copyOf(keys, n), Arrays.copyOf(chunks, n), Arrays.copyOf(counts, n));
+        }
+    }
+
+    // Ascending, one chunk at a time, without materializing anything
+    PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            int c = -1, i, high;
+            long word;
+            int w = 1024;
+            char[] array;
+            long[] bits;
+
+            public boolean hasNext() {
+                while (true) {
+                    if (array != null && i < array.length) return true;
+                    if (bits != null) {
+                        while (word == 0 && ++w < 1024) word = bits[w];
+                        if (word != 0) return true;
+                    }
+                    if (++c >= keys.length) return false;
+                    high = keys[c] << 16;
+                    array = chunks[c] instanceof char[] ? (char[]) chunks[c] : null;
+                    bits = array == null ? (long[]) chunks[c] : null;
+                    i = 0;
+                    w = -1;
+                    word = 0;
+                }
+            }
+
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                if (array != null) return high | array[i++];
+                int bit = Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return high | w << 6 | bit;
+            }
+        };
+    }
+
+    IdBitmap or(IdBitmap o) {
+        Builder out = new Builder();
+        int i = 0, j = 0;
+        while (i < keys.length || j < o.keys.length) {
+            if (j == o.keys.length || (i < keys.length && keys[i] < o.keys[j])) {
+                out.chunk(keys[i], chunks[i], counts[i]);
+                i++;
+                continue;
+            }
+            if (i == keys.length || keys[i] > o.keys[j]) {
+                out.chunk(o.keys[j], o.chunks[j], o.counts[j]);
+                j++;
+                continue;
+            }
+            Object a = chunks[i], b = o.chunks[j];
+            int count;
+            Object r;
+            if (a instanceof char[] && b instanceof char[] && counts[i] + o.counts[j] <= ARRAY_MAX) {
+                char[] x = (char[]) a, y = (char[]) b, m = new char[x.length + y.length];
+                int p = 0, q = 0;
+                count = 0;
+                while (p < x.length || q < y.length) {
+                    if (q == y.length || (p < x.length && x[p] < y[q])) m[count++] = x[p++];
+                    else if (p == x.length || x[p] > y[q]) m[count++] = y[q++];
+                    else { m[count++] = x[p++]; q++; }
+                }
+                r = Arrays.copyOf(m, count);
+            } else {
+                long[] bits = a instanceof long[] ? ((long[]) a).clone() : toBits((char[]) a, counts[i]);
+                if (b instanceof long[]) {
+                    long[] y = (long[]) b;
+                    for (int w = 0; w < 1024; w++) bits[w] |= y[w];
+                } else {
+                    for (char v : (char[]) b) bits[v >>> 6] |= 1L << v;
+                }
+                count = 0;
+                for (long w : bits) count += Long.bitCount(w);
+                r = count > ARRAY_MAX ? bits : toArray(bits, count);
+            }
+            out.chunk(keys[i], r, count);
+            i++;
+            j++;
+        }
+        return out.build();
+    }
+
+    static IdBitmap or(Collection<IdBitmap> all) {
+        IdBitmap r = EMPTY;
+        for (IdBitmap b : all) r = r == EMPTY ? b : r.or(b);
+        return r;
+    }
+
+    long heapBytes() {
+        long bytes = 2L * keys.length + 8L * chunks.length + 4L * counts.length;
+        for (Object c : chunks) bytes += c instanceof long[] ? 8192 : 2L * ((char[]) c).length;
+        return bytes;
+    }
+
+    private static long[] toBits(char[] a, int n) {
+        long[] bits = new long[1024];
+        for (int i = 0; i < n; i++) bits[a[i] >>> 6] |= 1L << a[i];
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int count) {
+        char[] a = new char[count];
+        int k = 0;
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) a[k++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+        }
+        return a;
+    }
+}
+
+// Faceted browse over the catalog: filter by category and rating range,
+// order by up to three keys, page lazily. Built from one prefix-index
+// snapshot, whose rows already come in title order:
+//  - byRating and byTitle are permutations of the indexed rows, each sorted
+//    on its key and then on the other, so either key can be primary with
+//    the other as tie-break in either direction (runs of equal primary key
+//    are walked one way, rows inside a run the other way). Both come out
+//    of stable counting sorts, O(n).
+//  - per category, its rows in byRating order, so a category within a
+//    rating range is one contiguous slice: exact counts come from two
+//    binary searches per category, and the matching rows are that slice.
+//  - per category, an IdBitmap of its rows for catalog-order browsing.
+// A sorted query either walks the primary permutation, skipping rows that
+// fail the filter, or sorts just the matching rows by their position in
+// it, whichever is cheaper for the first page. Results are Lists whose rows
+// are only produced as far as something reads them.
+class FacetIndex {
+    enum Key { RATING, TITLE, CATEGORY }
+
+    // One sort key; "-rating" sorts descending
+    static final class Order {
+        final Key key;
+        final boolean descending;
+        Order(Key key, boolean descending) { this.key = key; this.descending = descending; }
+
+        static List<Order> parse(String spec) {
+            List<Order> out = new ArrayList<>();
+            for (String part : spec.split(",")) {
+                String p = part.trim();
+                if (p.isEmpty()) continue;
+                boolean desc = p.startsWith("-");
+                out.add(new Order(Key.valueOf((desc ? p.substring(1) : p).toUpperCase(Locale.ROOT)), desc));
+            }
+            return out;
+        }
+
+        @Override public String toString() { return (descending ? "-" : "") + key.name().toLowerCase(Locale.ROOT); }
+    }
+
+    static final class Query {
+        final Set<String> categories = new HashSet<>();     // empty: every category
+        int minRating = Integer.MIN_VALUE, maxRating = Integer.MAX_VALUE;   // hundredths, inclusive
+        final List<Order> order = new ArrayList<>();
+
+        Query category(String name) { categories.add(name); return this; }
+
+        Query rating(double min, double max) {
+            minRating = (int) Math.round(min * 100);
+            maxRating = (int) Math.round(max * 100);
+            return this;
+        }
+
+        Query orderBy(String spec) { order.addAll(Order.parse(spec)); return this; }
+    }
+
+    static final int PAGE = 64;             // rows a first read is assumed to want
+
+    final CatalogStore store;
+    final Trie.Index source;
+    private final int n, rows;
+    private final int[] byRating, byTitle;      // rows, see above
+    private final int[] ratingPos, titlePos;    // row -> position in each
+    private final int[] titleGroup;             // row -> rank of its title; equal titles share one
+    private final Map<String, Integer> ordinals = new TreeMap<>();
+    private final int[][] categoryByRating = new int[256][];
+    private final IdBitmap[] categoryRows = new IdBitmap[256];
+    private final IdBitmap all;
+
+    FacetIndex(CatalogStore store, Trie.Index titles) {
+        this.store = store;
+        this.source = titles;
+        int[] order = titles.ids;
+        n = order.length;
+        int r = 0;
+        for (int id : order) r = Math.max(r, id + 1);
+        rows = r;
+
+        titleGroup = new int[rows];
+        int g = 0;
+        for (int k = 0; k < n; k++) {
+            if (k > 0 && !sameKey(titles, k - 1, k)) g++;
+            titleGroup[order[k]] = g;
+        }
+        int lo = 0, hi = 0;
+        for (int id : order) {
+            lo = Math.min(lo, store.ratingHundredths(id));
+            hi = Math.max(hi, store.ratingHundredths(id));
+        }
+        int minRating = lo;
+        // Stable: title order survives inside each rating, rating order
+        // inside each title
+        byRating = countingSort(order, id -> store.ratingHundredths(id) - minRating, hi - lo + 1);
+        byTitle = countingSort(byRating, id -> titleGroup[id], g + 1);
+        ratingPos = new int[rows];
+        titlePos = new int[rows];
+        for (int k = 0; k < n; k++) {
+            ratingPos[byRating[k]] = k;
+            titlePos[byTitle[k]] = k;
+        }
+
+        int[] sizes = new int[256];
+        for (int id : byRating) sizes[store.categoryOrdinal(id)]++;
+        for (int c = 0; c < 256; c++) if (sizes[c] > 0) categoryByRating[c] = new int[sizes[c]];
+        Arrays.fill(sizes, 0);
+        for (int id : byRating) {
+            int c = store.categoryOrdinal(id);
+            if (sizes[c] == 0) ordinals.put(store.category(id), c);
+            categoryByRating[c][sizes[c]++] = id;
+        }
+        BitSet indexed = new BitSet(rows);
+        for (int id : order) indexed.set(id);
+        IdBitmap.Builder everything = new IdBitmap.Builder();
+        IdBitmap.Builder[] byCategory = new IdBitmap.Builder[256];
+        for (int id = indexed.nextSetBit(0); id >= 0; id = indexed.nextSetBit(id + 1)) {
+            everything.add(id);
+            int c = store.categoryOrdinal(id);
+            if (byCategory[c] == null) byCategory[c] = new IdBitmap.Builder();
+            byCategory[c].add(id);
+        }
+        all = everything.build();
+        for (int c = 0; c < 256; c++) if (byCategory[c] != null) categoryRows[c] = byCategory[c].build();
+    }
+
+    private static boolean sameKey(Trie.Index t, int a, int b) {
+        int la = t.start[a + 1] - t.start[a];
+        return la == t.start[b + 1] - t.start[b]
+                && Arrays.equals(t.keys, t.start[a], t.start[a] + la, t.keys, t.start[b], t.start[b] + la);
+    }
+
+    private static int[] countingSort(int[] rows, java.util.function.IntUnaryOperator key, int range) {
+        int[] start = new int[range + 1];
+        for (int id : rows) start[key.applyAsInt(id) + 1]++;
+        for (int i = 0; i < range; i++) start[i + 1] += start[i];
+        int[] out = new int[rows.length];
+        for (int id : rows) out[start[key.applyAsInt(id)]++] = id;
+        return out;
+    }
+
+    int size() { return n; }
+
+    Set<String> categories() { return Collections.unmodifiableSet(ordinals.keySet()); }
+
+    // First position in rows (in byRating order) rated at least r
+    private int lowerBound(int[] sorted, int r) {
+        int a = 0, b = sorted.length;
+        while (a < b) {
+            int mid = (a + b) >>> 1;
+            if (store.ratingHundredths(sorted[mid]) < r) a = mid + 1; else b = mid;
+        }
+        return a;
+    }
+
+    Result query(Query q) {
+        int lo = q.minRating, hi = q.maxRating;
+        List<Integer> cats = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : ordinals.entrySet()) {
+            if (q.categories.isEmpty() || q.categories.contains(e.getKey())) cats.add(e.getValue());
+        }
+        // CATEGORY orders whole groups, so it only counts as the first key;
+        // RATING and TITLE count once each
+        boolean byCategory = !q.order.isEmpty() && q.order.get(0).key == Key.CATEGORY;
+        if (byCategory && q.order.get(0).descending) Collections.reverse(cats);
+        List<Order> order = new ArrayList<>();
+        for (Order o : q.order) {
+            if (o.key != Key.CATEGORY && order.stream().noneMatch(x -> x.key == o.key)) order.add(o);
+        }
+        List<Segment> segments = new ArrayList<>();
+        if (byCategory) {
+            for (int c : cats) segments.add(new Segment(new int[] {c}, lo, hi, order));
+        } else if (!cats.isEmpty()) {
+            int[] cs = new int[cats.size()];
+            for (int i = 0; i < cs.length; i++) cs[i] = cats.get(i);
+            segments.add(new Segment(cs, lo, hi, order));
+        }
+        return new Result(segments);
+    }
+
+    // Rows of some categories within a rating range, in one key order
+    private final class Segment {
+        final int[] cats;
+        final int[] from, to;           // per category, its slice of categoryByRating
+        final boolean[] mask;           // null when every category is in
+        final int lo, hi, count;
+        final List<Order> order;
+
+        Segment(int[] cats, int lo, int hi, List<Order> order) {
+            this.cats = cats;
+            this.lo = lo;
+            this.hi = hi;
+            this.order = order;
+            from = new int[cats.length];
+            to = new int[cats.length];
+            int m = 0;
+            for (int i = 0; i < cats.length; i++) {
+                int[] rs = categoryByRating[cats[i]];
+                from[i] = lowerBound(rs, lo);
+                to[i] = hi == Integer.MAX_VALUE ? rs.length : Math.max(from[i], lowerBound(rs, hi + 1));
+                m += to[i] - from[i];
+            }
+            count = m;
+            if (cats.length == ordinals.size()) {
+                mask = null;
+            } else {
+                mask = new boolean[256];
+                for (int c : cats) mask[c] = true;
+            }
+        }
+
+        boolean matches(int id) {
+            if (mask != null && !mask[store.categoryOrdinal(id)]) return false;
+            int r = store.ratingHundredths(id);
+            return r >= lo && r <= hi;
+        }
+
+        // Walking to the want-th match tests about want * span / count rows;
+        // sorting the matches costs about count * log(count)
+        Cursor open(int want) {
+            Order primary = order.isEmpty() ? null : order.get(0);
+            boolean rated = primary != null && primary.key == Key.RATING;
+            boolean innerDescending = order.size() > 1 && order.get(1).descending;
+            java.util.function.IntUnaryOperator group = primary == null ? null
+                    : rated ? store::ratingHundredths : id -> titleGroup[id];
+            if (rated && cats.length == 1) {    // the slice is the answer, already in order
+                return new PermutationCursor(categoryByRating[cats[0]], from[0], to[0], null, group, primary.descending, innerDescending);
+            }
+            int spanFrom = 0, span = primary == null ? rows : n;
+            if (rated) {
+                spanFrom = lowerBound(byRating, lo);
+                span = (hi == Integer.MAX_VALUE ? n : lowerBound(byRating, hi + 1)) - spanFrom;
+                if (mask == null) return new PermutationCursor(byRating, spanFrom, spanFrom + span, null, group, primary.descending, innerDescending);
+            }
+            double scan = (double) Math.max(want, PAGE) * span / Math.max(1, count);
+            double sort = count * (Math.log(count + 1) / Math.log(2) + 4);
+            if (sort < scan) {
+                int[] pos = primary == null ? null : rated ? ratingPos : titlePos;
+                int[] ranks = new int[count];
+                int k = 0;
+                for (int i = 0; i < cats.length; i++) {
+                    int[] rs = categoryByRating[cats[i]];
+                    for (int j = from[i]; j < to[i]; j++) ranks[k++] = pos == null ? rs[j] : pos[rs[j]];
+                }
+                Arrays.sort(ranks);
+                if (primary == null) return new PermutationCursor(ranks, 0, count, null, null, false, false);
+                int[] perm = rated ? byRating : byTitle;
+                for (int i = 0; i < count; i++) ranks[i] = perm[ranks[i]];
+                return new PermutationCursor(ranks, 0, count, null, group, primary.descending, innerDescending);
+            }
+            if (primary == null) {
+                IdBitmap rowsIn = all;
+                if (mask != null) {
+                    List<IdBitmap> parts = new ArrayList<>();
+                    for (int c : cats) parts.add(categoryRows[c]);
+                    rowsIn = IdBitmap.or(parts);
+                }
+                PrimitiveIterator.OfInt it = rowsIn.iterator();
+                return () -> {
+                    while (it.hasNext()) {
+                        int id = it.nextInt();
+                        int r = store.ratingHundredths(id);
+                        if (r >= lo && r <= hi) return id;
+                    }
+                    return -1;
+                };
+            }
+            return new PermutationCursor(rated ? byRating : byTitle, spanFrom, spanFrom + span, this, group, primary.descending, innerDescending);
+        }
+    }
+
+    interface Cursor { int next(); }     // -1 when done
+
+    // Walks seq[from, to) run by run (a run is equal primary key), runs in
+    // one direction and rows inside each run in the other as asked, skipping
+    // rows the filter rejects
+    private static final class PermutationCursor implements Cursor {
+        final int[] seq;
+        final int from, to;
+        final Segment filter;
+        final java.util.function.IntUnaryOperator group;
+        final boolean runsDescending, rowsDescending;
+        int gs, ge, next;       // current run [gs, ge) and the next position in it
+
+        PermutationCursor(int[] seq, int from, int to, Segment filter, java.util.function.IntUnaryOperator group,
+                          boolean runsDescending, boolean rowsDescending) {
+            this.seq = seq;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            this.group = group;
+            this.runsDescending = runsDescending;
+            this.rowsDescending = rowsDescending;
+            if (runsDescending == rowsDescending) {
+                gs = from;          // one plain pass over everything
+                ge = to;
+            } else {
+                gs = ge = runsDescending ? to : from;
+            }
+            next = rowsDescending ? ge - 1 : gs;
+        }
+
+        public int next() {
+            while (true) {
+                while (rowsDescending ? next >= gs : next < ge) {
+                    int id = seq[rowsDescending ? next-- : next++];
+                    if (filter == null || filter.matches(id)) return id;
+                }
+                if (runsDescending == rowsDescending || !advance()) return -1;
+            }
+        }
+
+        private boolean advance() {
+            if (runsDescending) {
+                if (gs <= from) return false;
+                ge = gs;
+                int key = group.applyAsInt(seq[ge - 1]);
+                for (gs = ge - 1; gs > from && group.applyAsInt(seq[gs - 1]) == key; gs--) { }
+            } else {
+                if (ge >= to) return false;
+                gs = ge;
+                int key = group.applyAsInt(seq[gs]);
+                for (ge = gs + 1; ge < to && group.applyAsInt(seq[ge]) == key; ge++) { }
+            }
+            next = rowsDescending ? ge - 1 : gs;
+            return true;
+        }
+    }
+
+    // The rows of a query as a List<Movie>. size() is exact from the start;
+    // rows are produced the first time anything reads that far, so a grid
+    // showing the first screenful never orders the rest.
+    final class Result extends AbstractList<Movie> implements RandomAccess {
+        private final List<Segment> segments;
+        private final int total;
+        private int[] ids = new int[PAGE];
+        private int produced, segment, left;    // left: rows the open segment still owes
+        private Cursor cursor;
+
+        Result(List<Segment> segments) {
+            this.segments = segments;
+            int t = 0;
+            for (Segment s : segments) t += s.count;
+            total = t;
+        }
+
+        @Override public int size() { return total; }
+
+        @Override public Movie get(int i) { return store.movie(id(i)); }
+
+        synchronized int id(int i) {
+            if (i < 0 || i >= total) throw new IndexOutOfBoundsException(i);
+            while (produced <= i) {
+                if (cursor == null) {
+                    Segment s = segments.get(segment);
+                    left = s.count;
+                    if (left == 0) { segment++; continue; }
+                    cursor = s.open(i + 1 - produced);
+                }
+                int id = cursor.next();
+                if (id < 0) throw new IllegalStateException("facet walk ended before its count");
+                if (--left == 0) { cursor = null; segment++; }
+                if (produced == ids.length) ids = Arrays.copyOf(ids, Math.max(ids.length * 2, Math.min(total, i + 1)));
+                ids[produced++] = id;
+            }
+            return ids[i];
+        }
+
+        List<Movie> page(int offset, int limit) {
+            int from = Math.min(Math.max(0, offset), total), to = (int) Math.min(total, (long) from + Math.max(0, limit));
+            List<Movie> out = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) out.add(get(i));
+            return out;
+        }
+    }
+
+    long heapBytes() {
+        long bytes = 4L * (byRating.length + byTitle.length + ratingPos.length + titlePos.length + titleGroup.length + n);
+        bytes += all.heapBytes();
+        for (IdBitmap b : categoryRows) if (b != null) bytes += b.heapBytes();
+        return bytes;
+    }
+}
+
+// Streams the backend's pipe-delimited catalog (ID|Title|Category|Rating|URL,
+// same format DataLoader.h reads). The file is split at line boundaries into
+// one mapped chunk per core and the chunks are parsed in parallel straight
+// from the mapping. Each line is read into one reused buffer and its title
+// and URL bytes are copied from there into the chunk's arenas, never
+// decoded; a line allocates only when it brings a new category (interned
+// through a tiny per-chunk table) or a URL prefix unlike the line before.
+class CatalogLoader {
+    static final String[] CANDIDATES = {"movies.txt", "../Backend_CPP/movies.txt", "Backend_CPP/movies.txt"};
+
+    static Path locate() {
+        String configured = System.getProperty("filmforge.catalog");
+        if (configured != null) return Files.isReadable(Paths.get(configured)) ? Paths.get(configured) : null;
+        for (String c : CANDIDATES) {
+            Path p = Paths.get(c);
+            if (Files.isReadable(p)) return p;
+        }
+        return null;
+    }
+
+    // Appends the file to the store and returns the new rows grouped by
+    // category, categories and movies in file order. Nothing is appended
+    // unless every chunk parsed and all of them fit the store together.
+    static Map<String, MovieList> parse(Path file, CatalogStore into) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            int parts = (int) Math.max(1, Math.min(ForkJoinPool.commonPool().getParallelism() + 1, size >> 20));
+            long[] cut = new long[parts + 1];
+            cut[parts] = size;
+            for (int i = 1; i < parts; i++) cut[i] = nextLine(ch, Math.max(cut[i - 1], size * i / parts), size);
+
+            List<ForkJoinTask<CatalogStore>> tasks = new ArrayList<>();
+            for (int i = 0; i < parts; i++) {
+                long from = cut[i], to = cut[i + 1];
+                tasks.add(ForkJoinPool.commonPool().submit(() -> parseChunk(ch.map(FileChannel.MapMode.READ_ONLY, from, to - from))));
+            }
+            List<CatalogStore> chunks = new ArrayList<>();
+            for (ForkJoinTask<CatalogStore> t : tasks) chunks.add(t.join());
+            int from = -1, to;
+            synchronized (into) {
+                into.checkCategories(chunks);
+                for (CatalogStore c : chunks) {
+                    int base = into.addAll(c);
+                    if (from < 0) from = base;
+                }
+                to = into.size();
+            }
+            return into.byCategory(from, to);
+        }
+    }
+
+    private static long nextLine(FileChannel ch, long pos, long size) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(4096);
+        while (pos < size) {
+            b.clear();
+            int n = ch.read(b, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) if (b.get(i) == '\n') return pos + i + 1;
+            pos += n;
+        }
+        return size;
+    }
+
+    static CatalogStore parseChunk(ByteBuffer buf) {
+        CatalogStore out = new CatalogStore();
+        byte[] line = new byte[512];
+        int[] bar = new int[4];
+        List<byte[]> catBytes = new ArrayList<>();
+        List<String> catNames = new ArrayList<>();
+        while (buf.hasRemaining()) {
+            int len = 0, bars = 0;
+            while (buf.hasRemaining()) {
+                byte b = buf.get();
+                if (b == '\n') break;
+                if (len == line.length) line = Arrays.copyOf(line, len * 2);
+                if (b == '|' && bars < 4) bar[bars++] = len;
+                line[len++] = b;
+            }
+            while (len > 0 && (line[len - 1] == '\r' || line[len - 1] == ' ')) len--;
+            if (bars < 4) continue;
+
+            String category = intern(line, bar[1] + 1, bar[2], catBytes, catNames);
+            double rating = parseRating(line, bar[2] + 1, bar[3]);
+            if (category == null || Double.isNaN(rating)) continue;
+            out.add(line, bar[0] + 1, bar[1], category, rating, bar[3] + 1, len);
+        }
+        return out;
+    }
+
+    private static String intern(byte[] line, int from, int to, List<byte[]> bytes, List<String> names) {
+        while (from < to && line[from] == ' ') from++;
+        while (to > from && line[to - 1] == ' ') to--;
+        if (from == to) return null;
+        for (int i = 0; i < bytes.size(); i++) {
+            if (Arrays.equals(bytes.get(i), 0, bytes.get(i).length, line, from, to)) return names.get(i);
+        }
+        bytes.add(Arrays.copyOfRange(line, from, to));
+        String name = new String(line, from, to - from, StandardCharsets.UTF_8).intern();
+        names.add(name);
+        return name;
+    }
+
+    // Plain decimal ratings like "8.6"; anything else is NaN
+    static double parseRating(byte[] s, int from, int to) {
+        while (from < to && s[from] == ' ') from++;
+        while (to > from && s[to - 1] == ' ') to--;
+        long whole = 0, frac = 0, scale = 1;
+        boolean dot = false, digits = false;
+        for (int i = from; i < to; i++) {
+            byte b = s[i];
+            if (b == '.' && !dot) { dot = true; continue; }
+            if (b < '0' || b > '9') return Double.NaN;
+            digits = true;
+            if (dot) { frac = frac * 10 + (b - '0'); scale *= 10; }
+            else whole = whole * 10 + (b - '0');
+        }
+        return digits ? whole + (double) frac / scale : Double.NaN;
+    }
+}
+
+// Binary image of the built catalog and prefix index, so a restart with an
+// unchanged movies.txt skips parsing and sorting. The file is mapped and
+// every column comes back with one bulk copy; nothing is parsed per record.
+// Layout (little-endian):
+//   [MAGIC][VERSION][sourceSize:8][sourceMtime:8][bodyLen:8][crc:8]
+//   body: CatalogStore columns, then the Trie index arrays
+// Arrays are [length:4][elements]. The source size and mtime decide whether
+// the snapshot is current; the CRC catches torn or foreign files. Anything
+// unexpected means "rebuild", never an error for the user.
+class CatalogSnapshot {
+    static final int MAGIC = 0x46464353;        // "FFCS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+
+    static Path defaultPath() {
+        return Paths.get(System.getProperty("filmforge.snapshot",
+                System.getProperty("user.home") + File.separator + ".filmforge" + File.separator + "catalog.snap"));
+    }
+
+    // Loads the snapshot into an empty store and the trie if it matches the
+    // source file; false means the caller has to build from the source.
+    static boolean read(Path snap, Path source, CatalogStore into, Trie trie) {
+        if (!Files.isReadable(snap)) return false;
+        try (FileChannel ch = FileChannel.open(snap, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_SIZE || ch.size() > Integer.MAX_VALUE) return false;
+            ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (b.getInt() != MAGIC || b.getInt() != VERSION) return false;
+            long[] stamp = stamp(source);
+            if (b.getLong() != stamp[0] || b.getLong() != stamp[1]) return false;
+            long bodyLen = b.getLong(), crc = b.getLong();
+            if (bodyLen != ch.size() - HEADER_SIZE) return false;
+            CRC32 sum = new CRC32();
+            sum.update(b.duplicate());
+            if (sum.getValue() != crc) return false;
+            CatalogStore loaded = CatalogStore.readFrom(b);
+            Trie.Index idx = new Trie.Index(b, into);
+            if (idx.ids.length != loaded.size()) return false;
+            into.replaceWith(loaded);
+            trie.restore(idx);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[CatalogSnapshot] ignoring " + snap + ": " + e);
+            return false;
+        }
+    }
+
+    // Size and mtime of the source, taken before it is parsed so a file
+    // edited mid-build never gets a snapshot claiming the new version
+    static long[] stamp(Path source) throws IOException {
+        return new long[] {Files.size(source), Files.getLastModifiedTime(source).toMillis()};
+    }
+
+    // Writes to a temporary file and renames it over the old snapshot
+    static void write(Path snap, long[] stamp, CatalogStore store, Trie trie) throws IOException {
+        Trie.Index idx = trie.snapshot();
+        long bodyLen = store.snapshotBytes() + idx.snapshotBytes();
+        if (HEADER_SIZE + bodyLen > Integer.MAX_VALUE) throw new IOException("catalog too large for a snapshot");
+        ByteBuffer b = ByteBuffer.allocate((int) (HEADER_SIZE + bodyLen)).order(ByteOrder.LITTLE_ENDIAN);
+        b.position(HEADER_SIZE);
+        store.writeTo(b);
+        idx.writeTo(b);
+        if (b.hasRemaining()) throw new IllegalStateException("snapshot size mismatch: " + b.remaining());
+        CRC32 sum = new CRC32();
+        sum.update(b.duplicate().position(HEADER_SIZE));
+        b.position(0);
+        b.putInt(MAGIC).putInt(VERSION)
+                .putLong(stamp[0]).putLong(stamp[1])
+                .putLong(bodyLen).putLong(sum.getValue());
+        b.position(0);
+
+        Files.createDirectories(snap.toAbsolutePath().getParent());
+        Path tmp = snap.resolveSibling(snap.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (b.hasRemaining()) ch.write(b);
+            ch.force(true);
+        }
+        Files.move(tmp, snap, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void putBytes(ByteBuffer b, byte[] a, int n) { b.putInt(n).put(a, 0, n); }
+
+    static void putShorts(ByteBuffer b, short[] a, int n) {
+        b.putInt(n);
+        b.asShortBuffer().put(a, 0, n);
+        b.position(b.position() + 2 * n);
+    }
+
+    static void putChars(ByteBuffer b, char[] a, int n) {
+        b.putInt(n);
+        b.asCharBuffer().put(a, 0, n);
+        b.position(b.position() + 2 * n);
+    }
+
+    static void putInts(ByteBuffer b, int[] a, int n) {
+        b.putInt(n);
+        b.asIntBuffer().put(a, 0, n);
+        b.position(b.position() + 4 * n);
+    }
+
+    static void putStrings(ByteBuffer b, List<String> ss) {
+        b.putInt(ss.size());
+        for (String s : ss) {
+            byte[] u = s.getBytes(StandardCharsets.UTF_8);
+            putBytes(b, u, u.length);
+        }
+    }
+
+    static long stringsBytes(List<String> ss) {
+        long n = 4;
+        for (String s : ss) n += 4 + s.getBytes(StandardCharsets.UTF_8).length;
+        return n;
+    }
+
+    static byte[] getBytes(ByteBuffer b) {
+        byte[] a = new byte[b.getInt()];
+        b.get(a);
+        return a;
+    }
+
+    static short[] getShorts(ByteBuffer b) {
+        short[] a = new short[b.getInt()];
+        b.asShortBuffer().get(a);
+        b.position(b.position() + 2 * a.length);
+        return a;
+    }
+
+    static char[] getChars(ByteBuffer b) {
+        char[] a = new char[b.getInt()];
+        b.asCharBuffer().get(a);
+        b.position(b.position() + 2 * a.length);
+        return a;
+    }
+
+    static int[] getInts(ByteBuffer b) {
+        int[] a = new int[b.getInt()];
+        b.asIntBuffer().get(a);
+        b.position(b.position() + 4 * a.length);
+        return a;
+    }
+
+    static List<String> getStrings(ByteBuffer b) {
+        int n = b.getInt();
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(new String(getBytes(b), StandardCharsets.UTF_8));
+        return out;
+    }
+}
+
+// History and watchlist that survive restarts. The EDT works on in-memory
+// structures (an access-ordered, bounded LinkedHashMap for history and a
+// LinkedHashMap for the watchlist, both O(1) per action) and hands every
+// change to a writer thread as a journal record. The writer group-commits:
+// it drains whatever has queued up, appends it and fsyncs once per batch.
+// It also applies the records to its own key-level mirror, and every
+// COMPACT_EVERY records writes the mirror out as snapshot-<gen+1> and
+// starts journal-<gen+1>, so recovery reads one snapshot plus a short
+// journal however many events came before. Movies are stored by category
+// and title because catalog row ids change between runs.
+//   journal: [MAGIC][VERSION] then [len][crc][op:1][at:8][key utf-8]...
+//   snapshot: [MAGIC][VERSION][n][at:8][len:2][key]...[n][...]...[crc]
+class UserStateStore {
+    static final int JOURNAL_MAGIC = 0x46465544;    // "FFUJ"
+    static final int SNAPSHOT_MAGIC = 0x46465553;   // "FFUS"
+    static final int VERSION = 1;
+    static final byte WATCHED = 1, LIST_ADD = 2, LIST_REMOVE = 3;
+    static final int COMPACT_EVERY = 10_000;
+
+    private static final class Op {
+        final byte type;
+        final long at;
+        final String key;
+        final java.util.concurrent.CountDownLatch done;
+        Op(byte type, long at, String key) { this(type, at, key, null); }
+        Op(byte type, long at, String key, java.util.concurrent.CountDownLatch done) {
+            this.type = type; this.at = at; this.key = key; this.done = done;
+        }
+    }
+
+    // Key-level state: what the journal and snapshots describe
+    static final class Mirror {
+        final LinkedHashMap<String, Long> history;
+        final LinkedHashMap<String, Long> watchlist = new LinkedHashMap<>();
+
+        Mirror(int limit) {
+            history = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override protected boolean removeEldestEntry(Map.Entry<String, Long> e) { return size() > limit; }
+            };
+        }
+
+        Mirror copy() {
+            Mirror m = new Mirror(Integer.MAX_VALUE);
+            m.history.putAll(history);
+            m.watchlist.putAll(watchlist);
+            return m;
+        }
+
+        private void apply(Op op) {
+            if (op.type == WATCHED) history.put(op.key, op.at);
+            else if (op.type == LIST_ADD) watchlist.putIfAbsent(op.key, op.at);
+            else if (op.type == LIST_REMOVE) watchlist.remove(op.key);
+        }
+    }
+
+    private final Path dir;
+    private final int historyLimit;
+    private Mirror mirror;                          // writer thread only
+    private final CompletableFuture<Mirror> recovered = new CompletableFuture<>();
+    private final java.util.concurrent.LinkedBlockingQueue<Op> queue = new java.util.concurrent.LinkedBlockingQueue<>();
+    private FileChannel journal;
+    private int generation, journaled;
+    private volatile boolean failed;
+
+    // EDT state
+    private final LinkedHashMap<Movie, Long> history;
+    private final LinkedHashMap<Movie, Long> watchlist = new LinkedHashMap<>();
+
+    final LongAdder records = new LongAdder();
+    final LongAdder commits = new LongAdder();
+    final LongAdder commitNanos = new LongAdder();
+    final LongAdder compactions = new LongAdder();
+    volatile long recoveredEvents, recoveryNanos;
+
+    // Recovery runs on the writer thread, so opening the store does no I/O;
+    // actions taken before it finishes queue up behind it.
+    UserStateStore(Path dir, int historyLimit) {
+        this.dir = dir;
+        this.historyLimit = historyLimit;
+        history = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Movie, Long> e) { return size() > historyLimit; }
+        };
+        Thread writer = new Thread(this::writeLoop, "user-state-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    static UserStateStore openDefault() {
+        Path dir = Paths.get(System.getProperty("filmforge.userDir",
+                System.getProperty("user.home") + File.separator + ".filmforge" + File.separator + "user"));
+        UserStateStore store = new UserStateStore(dir, Integer.getInteger("filmforge.historyLimit", 500));
+        Runtime.getRuntime().addShutdownHook(new Thread(store::flush, "user-state-flush"));
+        return store;
+    }
+
+    static String key(Movie m) { return m.category() + '\t' + m.title(); }
+
+    static String categoryOf(String key) { return key.substring(0, key.indexOf('\t')); }
+
+    private Path journalFile(int gen) { return dir.resolve("journal-" + gen + ".log"); }
+    private Path snapshotFile(int gen) { return dir.resolve("snapshot-" + gen + ".bin"); }
+
+    // ---- EDT side ----
+
+    // What was on disk at startup, history oldest first; empty if the store
+    // could not be read
+    CompletableFuture<Mirror> recovered() { return recovered; }
+
+    // Brings recovered entries into the live state once movies can be looked
+    // up; anything done since startup stays newer. Keys the catalog no
+    // longer has are dropped.
+    void resolve(Mirror rec, Map<String, Movie> movies) {
+        LinkedHashMap<Movie, Long> live = new LinkedHashMap<>(history);
+        history.clear();
+        for (Map.Entry<String, Long> e : rec.history.entrySet()) {
+            Movie m = movies.get(e.getKey());
+            if (m != null && !live.containsKey(m)) history.put(m, e.getValue());
+        }
+        history.putAll(live);
+        LinkedHashMap<Movie, Long> added = new LinkedHashMap<>(watchlist);
+        watchlist.clear();
+        for (Map.Entry<String, Long> e : rec.watchlist.entrySet()) {
+            Movie m = movies.get(e.getKey());
+            if (m != null) watchlist.put(m, e.getValue());
+        }
+        for (Map.Entry<Movie, Long> e : added.entrySet()) watchlist.putIfAbsent(e.getKey(), e.getValue());
+    }
+
+    void watched(Movie m) {
+        long now = System.currentTimeMillis();
+        history.put(m, now);
+        log(WATCHED, now, m);
+    }
+
+    boolean addToWatchlist(Movie m) {
+        if (watchlist.containsKey(m)) return false;
+        long now = System.currentTimeMillis();
+        watchlist.put(m, now);
+        log(LIST_ADD, now, m);
+        return true;
+    }
+
+    boolean removeFromWatchlist(Movie m) {
+        if (watchlist.remove(m) == null) return false;
+        log(LIST_REMOVE, System.currentTimeMillis(), m);
+        return true;
+    }
+
+    boolean inWatchlist(Movie m) { return watchlist.containsKey(m); }
+
+    // Most recent first
+    List<Movie> history() {
+        List<Movie> out = new ArrayList<>(history.keySet());
+        Collections.reverse(out);
+        return out;
+    }
+
+    List<Movie> watchlist() { return new ArrayList<>(watchlist.keySet()); }
+
+    Set<Movie> seen() {
+        Set<Movie> s = new HashSet<>(history.keySet());
+        s.addAll(watchlist.keySet());
+        return s;
+    }
+
+    private void log(byte type, long at, Movie m) {
+        if (!failed) queue.add(new Op(type, at, key(m)));
+    }
+
+    // ---- writer thread ----
+
+    private void writeLoop() {
+        List<Op> batch = new ArrayList<>();
+        List<java.util.concurrent.CountDownLatch> waiting = new ArrayList<>();
+        long t0 = System.nanoTime();
+        try {
+            Files.createDirectories(dir);
+            mirror = recover();
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            queue.clear();
+            mirror = new Mirror(historyLimit);
+            System.err.println("[UserState] not persisted: " + e);
+        }
+        recoveryNanos = System.nanoTime() - t0;
+        recovered.complete(mirror.copy());
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            for (Iterator<Op> it = batch.iterator(); it.hasNext(); ) {
+                Op op = it.next();
+                if (op.done != null) { waiting.add(op.done); it.remove(); }
+            }
+            commit(batch);
+            for (java.util.concurrent.CountDownLatch l : waiting) l.countDown();
+            batch.clear();
+            waiting.clear();
+        }
+    }
+
+    private void commit(List<Op> batch) {
+        if (failed || batch.isEmpty()) return;
+        long t0 = System.nanoTime();
+        try {
+            ByteBuffer b = ByteBuffer.allocate(batch.size() * 64);
+            for (Op op : batch) {
+                byte[] k = op.key.getBytes(StandardCharsets.UTF_8);
+                int len = 1 + 8 + k.length;
+                if (b.remaining() < 8 + len) b = ByteBuffer.allocate(Math.max(b.capacity() * 2, b.position() + 8 + len)).put(b.flip());
+                CRC32 crc = new CRC32();
+                int start = b.position();
+                b.putInt(len).putInt(0).put(op.type).putLong(op.at).put(k);
+                crc.update(b.array(), start + 8, len);
+                b.putInt(start + 4, (int) crc.getValue());
+                mirror.apply(op);
+            }
+            b.flip();
+            while (b.hasRemaining()) journal.write(b);
+            journal.force(false);
+            records.add(batch.size());
+            commits.increment();
+            journaled += batch.size();
+            if (journaled >= COMPACT_EVERY) compact();
+        } catch (IOException e) {
+            failed = true;
+            System.err.println("[UserState] journal disabled: " + e);
+        } finally {
+            commitNanos.add(System.nanoTime() - t0);
+        }
+    }
+
+    // Waits for everything queued so far to be on disk
+    void flush() {
+        if (failed) return;
+        java.util.concurrent.CountDownLatch done = new java.util.concurrent.CountDownLatch(1);
+        queue.add(new Op((byte) 0, 0, null, done));
+        try {
+            done.await(5, java.util.concurrent.TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void compact() throws IOException {
+        writeSnapshot(generation + 1);
+        FileChannel next = openJournal(generation + 1);
+        journal.close();
+        journal = next;
+        Files.deleteIfExists(journalFile(generation));
+        Files.deleteIfExists(snapshotFile(generation));
+        generation++;
+        journaled = 0;
+        compactions.increment();
+    }
+
+    private void writeSnapshot(int gen) throws IOException {
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(VERSION);
+        for (Map<String, Long> m : List.of(mirror.history, mirror.watchlist)) {
+            out.writeInt(m.size());
+            for (Map.Entry<String, Long> e : m.entrySet()) {
+                out.writeLong(e.getValue());
+                out.writeUTF(e.getKey());
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        Path tmp = dir.resolve("snapshot.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+            while (b.hasRemaining()) ch.write(b);
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotFile(gen), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private FileChannel openJournal(int gen) throws IOException {
+        FileChannel ch = FileChannel.open(journalFile(gen), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (ch.size() == 0) writeHeader(ch);
+        ch.position(ch.size());
+        return ch;
+    }
+
+    // Starts the journal over with just its header, on disk before anything
+    // is appended after it
+    private static void writeHeader(FileChannel ch) throws IOException {
+        ch.truncate(0);
+        ByteBuffer h = ByteBuffer.allocate(8).putInt(JOURNAL_MAGIC).putInt(VERSION).flip();
+        while (h.hasRemaining()) ch.write(h, h.position());
+        ch.force(true);
+    }
+
+    // ---- recovery ----
+
+    // Newest snapshot plus its journal; a torn journal tail is cut off
+    private Mirror recover() throws IOException {
+        generation = -1;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "snapshot-*.bin")) {
+            for (Path p : ds) {
+                String n = p.getFileName().toString();
+                try { generation = Math.max(generation, Integer.parseInt(n.substring(9, n.length() - 4))); }
+                catch (NumberFormatException ignored) { }
+            }
+        }
+        Mirror m = new Mirror(historyLimit);
+        if (generation >= 0 && !readSnapshot(snapshotFile(generation), m)) {
+            throw new IOException("corrupt snapshot " + snapshotFile(generation));
+        }
+        generation = Math.max(generation, 0);
+
+        journal = openJournal(generation);
+        // Read onto the heap, not mapped: Windows refuses to truncate or
+        // delete a file while a mapping of it is alive, and the mapping
+        // lives until the GC gets round to it
+        ByteBuffer b = ByteBuffer.allocate(Math.toIntExact(journal.size()));
+        while (b.hasRemaining() && journal.read(b, b.position()) >= 0) { }
+        b.flip();
+        long good = 8;
+        if (b.remaining() < 8 || b.getInt() != JOURNAL_MAGIC || b.getInt() != VERSION) {
+            // A torn or foreign header: records appended after it would be
+            // dropped at every later recovery, so start the file over
+            System.err.println("[UserState] journal header unreadable, dropping " + journal.size() + " bytes");
+            writeHeader(journal);
+        } else {
+            CRC32 crc = new CRC32();
+            while (b.remaining() >= 8) {
+                int len = b.getInt(), sum = b.getInt();
+                if (len < 9 || len > b.remaining()) break;
+                byte[] rec = new byte[len];
+                b.get(rec);
+                crc.reset();
+                crc.update(rec);
+                if ((int) crc.getValue() != sum) break;
+                ByteBuffer r = ByteBuffer.wrap(rec);
+                byte type = r.get();
+                long at = r.getLong();
+                m.apply(new Op(type, at, new String(rec, 9, len - 9, StandardCharsets.UTF_8)));
+                recoveredEvents++;
+                journaled++;
+                good = b.position();
+            }
+        }
+        if (good < journal.size()) {
+            System.err.println("[UserState] dropping " + (journal.size() - good) + " torn journal bytes");
+            journal.truncate(good);
+        }
+        journal.position(journal.size());
+        deleteOtherGenerations();
+        return m;
+    }
+
+    private boolean readSnapshot(Path p, Mirror m) throws IOException {
+        byte[] all = Files.readAllBytes(p);
+        if (all.length < 16) return false;
+        CRC32 crc = new CRC32();
+        crc.update(all, 0, all.length - 8);
+        java.io.DataInputStream in = new java.io.DataInputStream(new ByteArrayInputStream(all));
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) return false;
+        if (ByteBuffer.wrap(all, all.length - 8, 8).getLong() != crc.getValue()) return false;
+        for (Map<String, Long> target : List.of(m.history, m.watchlist)) {
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                long at = in.readLong();
+                target.put(in.readUTF(), at);
+                recoveredEvents++;
+            }
+        }
+        return true;
+    }
+
+    private void deleteOtherGenerations() throws IOException {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "{journal,snapshot}-*")) {
+            for (Path p : ds) {
+                if (!p.equals(journalFile(generation)) && !p.equals(snapshotFile(generation))) Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    String stats() {
+        long c = commits.sum();
+        return String.format("%d records in %d commits (avg %.2f ms), %d compactions; recovered %d events in %d ms",
+                records.sum(), c, c == 0 ? 0 : commitNanos.sum() / 1e6 / c, compactions.sum(),
+                recoveredEvents, recoveryNanos / 1_000_000);
+    }
+}
+
+// Client for a long-lived `filmforge --serve` process (Backend_CPP). Requests
+// are framed as in RequestHandler.h and tagged with a correlation id, so any
+// number can be in flight on one pipe; the reader thread completes each
+// future as its response arrives. A request that outlives the timeout kills
+// the session, since the backend answers in order and is evidently stuck;
+// everything else in flight on it fails and the next call starts a fresh
+// process (at most once per RESTART_BACKOFF_MS).
+class BackendClient implements AutoCloseable {
+    static final byte PING = 0, SEARCH = 1, CATEGORY = 2;
+    static final int OK = 0, NOT_FOUND = 1, BAD_REQUEST = 2;
+    static final int MAX_FRAME = 1 << 24;
+    static final long RESTART_BACKOFF_MS = 1000;
+    static final String[] CANDIDATES = {"filmforge", "filmforge.exe", "../Backend_CPP/filmforge",
+            "../Backend_CPP/filmforge.exe", "Backend_CPP/filmforge", "Backend_CPP/filmforge.exe"};
+
+    private final List<String> command;
+    private final long timeoutMs;
+    private final java.util.concurrent.atomic.AtomicInteger ids = new java.util.concurrent.atomic.AtomicInteger();
+    private Session session;                        // guarded by this
+    private long lastStart;
+    private boolean closed;
+
+    final LongAdder requests = new LongAdder();
+    final LongAdder timeouts = new LongAdder();
+    final LongAdder failures = new LongAdder();
+    final LongAdder restarts = new LongAdder();
+
+    private final class Session {
+        final Process process;
+        final java.io.DataOutputStream out;
+        final ConcurrentHashMap<Integer, CompletableFuture<CatalogStore>> pending = new ConcurrentHashMap<>();
+        volatile boolean dead;
+
+        Session(Process process) {
+            this.process = process;
+            this.out = new java.io.DataOutputStream(new java.io.BufferedOutputStream(process.getOutputStream(), 8192));
+            Thread reader = new Thread(this::readLoop, "backend-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void readLoop() {
+            try (java.io.DataInputStream in = new java.io.DataInputStream(
+                    new java.io.BufferedInputStream(process.getInputStream(), 65536))) {
+                while (true) {
+                    int len = in.readInt();
+                    if (len < 9 || len > MAX_FRAME) throw new IOException("bad frame length " + len);
+                    int id = in.readInt();
+                    int status = in.readUnsignedByte();
+                    int count = in.readInt();
+                    CatalogStore rows = new CatalogStore();
+                    for (int i = 0; i < count; i++) {
+                        double rating = in.readUnsignedShort() / 100.0;
+                        String title = readString(in), cat = readString(in), url = readString(in);
+                        rows.add(title, cat, rating, url);
+                    }
+                    CompletableFuture<CatalogStore> f = pending.remove(id);
+                    if (f == null) continue;        // timed out already
+                    if (status == BAD_REQUEST) f.completeExceptionally(new IllegalArgumentException("backend rejected request " + id));
+                    else f.complete(rows);
+                }
+            } catch (IOException e) {
+                fail(new IOException("backend session ended: " + e.getMessage(), e));
+            }
+        }
+
+        // u16 length then standard UTF-8, which readUTF does not accept
+        private String readString(java.io.DataInputStream in) throws IOException {
+            byte[] b = new byte[in.readUnsignedShort()];
+            in.readFully(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        void fail(IOException cause) {
+            dead = true;
+            process.destroy();
+            for (Integer id : pending.keySet()) {
+                CompletableFuture<CatalogStore> f = pending.remove(id);
+                if (f != null) f.completeExceptionally(cause);
+            }
+        }
+    }
+
+    BackendClient(List<String> command, long timeoutMs) {
+        this.command = List.copyOf(command);
+        this.timeoutMs = timeoutMs;
+    }
+
+    // filmforge.backend names the executable; otherwise the usual build
+    // locations are tried. Returns null if none exists.
+    static List<String> locate(Path catalog) {
+        String configured = System.getProperty("filmforge.backend");
+        Path exe = null;
+        if (configured != null) {
+            exe = Files.isExecutable(Paths.get(configured)) ? Paths.get(configured) : null;
+        } else {
+            for (String c : CANDIDATES) {
+                Path p = Paths.get(c);
+                if (Files.isExecutable(p) && !Files.isDirectory(p)) { exe = p; break; }
+            }
+        }
+        if (exe == null) return null;
+        List<String> cmd = new ArrayList<>(List.of(exe.toAbsolutePath().toString()));
+        if (catalog != null) cmd.addAll(List.of("--data", catalog.toAbsolutePath().toString()));
+        return cmd;
+    }
+
+    CompletableFuture<CatalogStore> search(String prefix, int limit) { return call(SEARCH, prefix, limit); }
+
+    CompletableFuture<CatalogStore> category(String name, int limit) { return call(CATEGORY, name, limit); }
+
+    CompletableFuture<CatalogStore> ping() { return call(PING, "", 0); }
+
+    CompletableFuture<CatalogStore> call(byte op, String arg, int limit) {
+        requests.increment();
+        int id = ids.incrementAndGet();
+        byte[] a = arg.getBytes(StandardCharsets.UTF_8);
+        CompletableFuture<CatalogStore> f = new CompletableFuture<>();
+        Session s;
+        synchronized (this) {
+            try {
+                s = session();
+                s.pending.put(id, f);
+                s.out.writeInt(7 + a.length);
+                s.out.writeInt(id);
+                s.out.writeByte(op);
+                s.out.writeShort(Math.min(limit, 0xFFFF));
+                s.out.write(a);
+                s.out.flush();
+            } catch (IOException e) {
+                failures.increment();
+                if (session != null) session.fail(e);
+                f.completeExceptionally(e);
+                return f;
+            }
+        }
+        f.orTimeout(timeoutMs, java.util.concurrent.TimeUnit.MILLISECONDS).whenComplete((r, e) -> {
+            if (e instanceof java.util.concurrent.TimeoutException) {
+                timeouts.increment();
+                s.pending.remove(id);
+                s.fail(new IOException("backend timed out on request " + id));
+            } else if (e != null) {
+                failures.increment();
+            }
+        });
+        return f;
+    }
+
+    private Session session() throws IOException {
+        if (closed) throw new IOException("backend client closed");
+        if (session != null && !session.dead) return session;
+        long now = System.currentTimeMillis();
+        if (session != null && now - lastStart < RESTART_BACKOFF_MS) throw new IOException("backend restarting");
+        lastStart = now;
+        if (session != null) restarts.increment();
+        List<String> cmd = new ArrayList<>(command);
+        cmd.add("--serve");
+        session = new Session(new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+        return session;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (session != null) {
+            session.fail(new IOException("backend client closed"));
+            session = null;
+        }
+    }
+
+    String stats() {
+        return String.format("%d requests, %d timeouts, %d failures, %d restarts",
+                requests.sum(), timeouts.sum(), failures.sum(), restarts.sum());
+    }
+
+    // The old integration: one process per command, text on stdout
+    static List<String> spawnOnce(List<String> command, String verb, String arg) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>(command);
+        cmd.add(verb);
+        cmd.add(arg);
+        Process p = new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        List<String> lines = new ArrayList<>();
+        try (java.io.BufferedReader r = new java.io.BufferedReader(
+                new java.io.InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line; (line = r.readLine()) != null; ) lines.add(line);
+        }
+        p.waitFor();
+        return lines;
+    }
+
+    // Round-trip latency for spawn-per-call vs. the persistent session, and
+    // throughput of the session with up to `window` requests in flight
+    static void benchmark(List<String> command, List<String> prefixes, int n, int window) throws Exception {
+        int spawns = Math.min(n, 200);
+        long[] lat = new long[spawns];
+        for (int i = 0; i < spawns; i++) {
+            long t = System.nanoTime();
+            spawnOnce(command, "search", prefixes.get(i % prefixes.size()));
+            lat[i] = System.nanoTime() - t;
+        }
+        report("spawn-per-call", lat, spawns);
+
+        try (BackendClient client = new BackendClient(command, 5000)) {
+            client.ping().get();
+            lat = new long[n];
+            for (int i = 0; i < n; i++) {
+                long t = System.nanoTime();
+                client.search(prefixes.get(i % prefixes.size()), 60).get();
+                lat[i] = System.nanoTime() - t;
+            }
+            report("session round-trip", lat, n);
+
+            java.util.concurrent.Semaphore inFlight = new java.util.concurrent.Semaphore(window);
+            long t = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                inFlight.acquire();
+                client.search(prefixes.get(i % prefixes.size()), 60).whenComplete((r, e) -> inFlight.release());
+            }
+            inFlight.acquire(window);
+            double secs = (System.nanoTime() - t) / 1e9;
+            System.out.printf("[Backend] session pipelined x%d: %d requests in %.0f ms, %.0f req/s (%s)%n",
+                    window, n, secs * 1000, n / secs, client.stats());
+        }
+    }
+
+    private static void report(String what, long[] lat, int n) {
+        Arrays.sort(lat, 0, n);
+        long sum = 0;
+        for (int i = 0; i < n; i++) sum += lat[i];
+        System.out.printf("[Backend] %s: %d calls, mean %.3f ms, p50 %.3f ms, p99 %.3f ms, %.0f req/s%n",
+                what, n, sum / 1e6 / n, lat[n / 2] / 1e6, lat[Math.min(n - 1, n * 99 / 100)] / 1e6, n / (sum / 1e9));
+    }
+}
+
+// Category -> movies. Loading appends from pool threads while the UI and
+// server read, so the map is copy-on-write: writers republish a new map with
+// a new list for the category, and lists handed out are never appended to.
+class Graph {
+    final CatalogStore store;
+    private volatile Map<String, MovieList> adjList = Collections.emptyMap();
+    public Graph(CatalogStore store) { this.store = store; }
+    public void addMovie(Movie m) {
+        addMovies(m.category(), List.of(m));
+    }
+    public synchronized void addMovies(String cat, List<Movie> ms) {
+        Map<String, MovieList> next = new LinkedHashMap<>(adjList);
+        MovieList list = next.containsKey(cat) ? next.get(cat).copy() : new MovieList(store);
+        list.addAll(ms);
+        next.put(cat, list);
+        adjList = Collections.unmodifiableMap(next);
+    }
+    public Set<String> categories() { return adjList.keySet(); }
+    public MovieList getMovies(String cat) { return adjList.getOrDefault(cat, new MovieList(store)); }
+    public Movie findMovie(String t) {
+        for(List<Movie> l : adjList.values()) for(Movie m : l) if(m.title().equalsIgnoreCase(t)) return m;
+        return null;
+    }
+}
+
+// ==========================================
+// PHYSICS GRAPH NODE
+// ==========================================
+class GraphNode {
+    double x, y;    // starting position; ForceLayout owns the live one
+    String label;
+    boolean isCategory;
+    Movie movieData; 
+    Color nodeColor; 
+    Image sprite, labelImage;   // rendered once by AdvancedGraphPanel
+
+    public GraphNode(double x, double y, String label, boolean isCategory, Movie m, Color c) {
+        this.x = x; this.y = y;
+        this.label = label;
+        this.isCategory = isCategory;
+        this.movieData = m;
+        this.nodeColor = c;
+    }
+}
+
+// Force-directed layout for the interest graph, simulated on its own thread.
+// Repulsion uses a Barnes-Hut quadtree (O(n log n) per step instead of all
+// pairs); every other node is sprung to node 0, which is pulled to the
+// middle of the panel. Speeds are capped by a temperature that cools every
+// step and is reset by wake(), so even dense graphs come to rest. Positions go out through three rotating Frames, so
+// the painter always has a complete one and neither side ever waits. The
+// thread sleeps once the kinetic energy per node drops under SETTLED and
+// while paused, and wakes on wake() (new graph, drag, panel shown again).
+class ForceLayout {
+    static final double REPULSION = 4000, SPRING_LENGTH = 140, SPRING = 0.05, DAMPING = 0.90;
+    static final double THETA = 0.8;        // cell width / distance below which a cell is one body
+    static final double SETTLED = 0.01;     // kinetic energy per node
+    static final double MAX_SPEED = 40;     // px per step right after a wake
+    static final double COOLING = 0.985;    // per step; large graphs never settle on damping alone
+    static final int BASE_NODES = 25;       // REPULSION is tuned for this many; more nodes share it
+    static final long STEP_INTERVAL_NANOS = 16_000_000;
+    static final Metrics.Timer STEP = Metrics.timer("graph.layoutStep");
+
+    // Called on the layout thread after each published step with the area
+    // the step changed (node centres, old and new); min > max when nothing moved
+    interface Listener { void frameReady(double minX, double minY, double maxX, double maxY); }
+
+    // One published step; owned by whichever side last swapped it out
+    static final class Frame {
+        final float[] x, y;
+        long seq;
+        long stepNanos;
+        boolean settled;
+        Frame(int n) { x = new float[n]; y = new float[n]; }
+    }
+
+    private final int n;
+    private final double[] x, y, vx, vy;
+    private final boolean[] anchored;        // pulled to the panel centre, not sprung to node 0
+    private final Quadtree tree;
+    private final double[] f = new double[2];
+    private final double repulsion;
+    private double temperature = MAX_SPEED;  // simulation thread only
+    private volatile boolean reheat;
+    private final Listener onFrame;
+    private double dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY;  // simulation thread only
+
+    private Frame back;                      // simulation thread only
+    private final AtomicReference<Frame> middle;
+    private Frame front;                     // painter only
+
+    private volatile double width, height;
+    private volatile int dragged = -1;
+    private volatile double dragX, dragY;
+    private volatile boolean paused, stopped;
+    private boolean asleep;                  // guarded by this
+    private int wakeups;                     // guarded by this; a wake during a step cancels the sleep
+    private final Thread thread;
+
+    ForceLayout(double[] x0, double[] y0, boolean[] anchored, Listener onFrame) {
+        this(x0, y0, anchored, onFrame, true);
+    }
+
+    // Without a simulation thread the caller drives step() itself
+    // (benchmarks); frame() then never advances.
+    static ForceLayout detached(double[] x0, double[] y0, boolean[] anchored) {
+        return new ForceLayout(x0, y0, anchored, (a, b, c, d) -> { }, false);
+    }
+
+    private ForceLayout(double[] x0, double[] y0, boolean[] anchored, Listener onFrame, boolean threaded) {
+        n = x0.length;
+        x = x0.clone();
+        y = y0.clone();
+        vx = new double[n];
+        vy = new double[n];
+        this.anchored = anchored.clone();
+        this.onFrame = onFrame;
+        tree = new Quadtree(n);
+        repulsion = REPULSION * Math.min(1.0, (double) BASE_NODES / Math.max(1, n));
+        back = new Frame(n);
+        middle = new AtomicReference<>(new Frame(n));
+        front = new Frame(n);
+        for (Frame f : new Frame[] {back, middle.get(), front}) copyPositions(f);
+        thread = new Thread(this::run, "graph-layout");
+        thread.setDaemon(true);
+        if (threaded) thread.start();
+    }
+
+    int size() { return n; }
+
+    void setBounds(double w, double h) { width = w; height = h; wake(); }
+
+    void drag(int i, double px, double py) { dragX = px; dragY = py; dragged = i; wake(); }
+
+    void release() { dragged = -1; wake(); }
+
+    void setPaused(boolean p) {
+        paused = p;
+        if (!p) wake();
+    }
+
+    synchronized void wake() {
+        wakeups++;
+        reheat = true;
+        asleep = false;
+        notifyAll();
+    }
+
+    void stop() { stopped = true; wake(); }
+
+    // Newest complete positions; call from the painting thread only
+    Frame frame() {
+        if (middle.get().seq > front.seq) front = middle.getAndSet(front);
+        return front;
+    }
+
+    private void run() {
+        long seq = 0;
+        while (!stopped) {
+            int seen;
+            synchronized (this) {
+                while (!stopped && (paused || asleep)) {
+                    try { wait(); } catch (InterruptedException e) { return; }
+                }
+                seen = wakeups;
+            }
+            long t0 = System.nanoTime();
+            double energy = step();
+            back.stepNanos = System.nanoTime() - t0;
+            STEP.record(back.stepNanos);
+            boolean settled = energy < SETTLED * n && dragged < 0;
+            back.settled = settled;
+            back.seq = ++seq;
+            copyPositions(back);
+            back = middle.getAndSet(back);
+            if (settled) for (int i = 0; i < n; i++) dirty(x[i], y[i]);  // sweep up sub-threshold drift
+            onFrame.frameReady(dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY);
+            if (settled) {
+                synchronized (this) { if (wakeups == seen && dragged < 0) asleep = true; }
+            }
+            long rest = STEP_INTERVAL_NANOS - (System.nanoTime() - t0);
+            if (rest > 0) {
+                try { Thread.sleep(rest / 1_000_000, (int) (rest % 1_000_000)); } catch (InterruptedException e) { return; }
+            }
+        }
+    }
+
+    private void copyPositions(Frame f) {
+        for (int i = 0; i < n; i++) { f.x[i] = (float) x[i]; f.y[i] = (float) y[i]; }
+    }
+
+    // One integration step; returns the total kinetic energy
+    double step() {
+        dirtyMinX = dirtyMinY = Double.MAX_VALUE;
+        dirtyMaxX = dirtyMaxY = -Double.MAX_VALUE;
+        if (n == 0) return 0;
+        int d = dragged;
+        if (d >= 0 && d < n) {
+            dirty(x[d], y[d]);
+            x[d] = dragX; y[d] = dragY; vx[d] = 0; vy[d] = 0;
+            dirty(x[d], y[d]);
+        }
+        if (reheat) { reheat = false; temperature = MAX_SPEED; }
+        tree.build(x, y);
+        double cx = width / 2, cy = height / 2, energy = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == d) continue;
+            tree.repulsion(i, x[i], y[i], f);
+            double fx = f[0] * repulsion, fy = f[1] * repulsion;
+            if (anchored[i]) {
+                fx += (cx - x[i]) * 0.05;
+                fy += (cy - y[i]) * 0.05;
+            } else {
+                double dx = x[0] - x[i], dy = y[0] - y[i];
+                double dist = Math.max(1e-6, Math.sqrt(dx * dx + dy * dy));
+                double s = (dist - SPRING_LENGTH) * SPRING / dist;
+                fx += dx * s;
+                fy += dy * s;
+            }
+            vx[i] = (vx[i] + fx) * DAMPING;
+            vy[i] = (vy[i] + fy) * DAMPING;
+            double speedSq = vx[i] * vx[i] + vy[i] * vy[i];
+            if (speedSq > temperature * temperature) {
+                double k = temperature / Math.sqrt(speedSq);
+                vx[i] *= k;
+                vy[i] *= k;
+            }
+        }
+        temperature *= COOLING;
+        for (int i = 0; i < n; i++) {
+            if (i == d) continue;
+            boolean moved = Math.abs(vx[i]) + Math.abs(vy[i]) > 0.25;
+            if (moved) dirty(x[i], y[i]);
+            x[i] += vx[i];
+            y[i] += vy[i];
+            if (moved) dirty(x[i], y[i]);
+            energy += vx[i] * vx[i] + vy[i] * vy[i];
+        }
+        if (dirtyMinX <= dirtyMaxX) dirty(x[0], y[0]);   // every edge ends at node 0
+        return energy;
+    }
+
+    private void dirty(double px, double py) {
+        dirtyMinX = Math.min(dirtyMinX, px); dirtyMaxX = Math.max(dirtyMaxX, px);
+        dirtyMinY = Math.min(dirtyMinY, py); dirtyMaxY = Math.max(dirtyMaxY, py);
+    }
+
+    // Array-backed quadtree rebuilt every step. Cell c has four children at
+    // child[4c..4c+3] (0 = none); a leaf holds one body, or several once
+    // cells get too small to split (coincident nodes).
+    static final class Quadtree {
+        static final double MIN_HALF = 1e-3;
+        private int cells;
+        private double[] midX, midY, half, mass, sumX, sumY;
+        private int[] child, body;
+        private int[] stack;
+
+        Quadtree(int n) { ensure(Math.max(4, 4 * n + 1)); stack = new int[64]; }
+
+        private void ensure(int cap) {
+            if (midX != null && cap <= midX.length) return;
+            int c = Math.max(cap, midX == null ? 0 : midX.length * 2);
+            midX = grow(midX, c); midY = grow(midY, c); half = grow(half, c);
+            mass = grow(mass, c); sumX = grow(sumX, c); sumY = grow(sumY, c);
+            body = body == null ? new int[c] : Arrays.copyOf(body, c);
+            child = child == null ? new int[4 * c] : Arrays.copyOf(child, 4 * c);
+        }
+
+        private static double[] grow(double[] a, int c) { return a == null ? new double[c] : Arrays.copyOf(a, c); }
+
+        private int newCell(double mx, double my, double h) {
+            if (cells == midX.length) ensure(cells + 1);
+            int c = cells++;
+            midX[c] = mx; midY[c] = my; half[c] = h;
+            mass[c] = 0; sumX[c] = 0; sumY[c] = 0;
+            body[c] = -1;
+            Arrays.fill(child, 4 * c, 4 * c + 4, 0);
+            return c;
+        }
+
+        void build(double[] x, double[] y) {
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < x.length; i++) {
+                minX = Math.min(minX, x[i]); maxX = Math.max(maxX, x[i]);
+                minY = Math.min(minY, y[i]); maxY = Math.max(maxY, y[i]);
+            }
+            cells = 0;
+            newCell((minX + maxX) / 2, (minY + maxY) / 2, Math.max(maxX - minX, maxY - minY) / 2 + 1);
+            for (int i = 0; i < x.length; i++) insert(i, x[i], y[i], x, y);
+        }
+
+        private void insert(int i, double px, double py, double[] x, double[] y) {
+            int c = 0;
+            while (true) {
+                mass[c]++; sumX[c] += px; sumY[c] += py;
+                if (mass[c] == 1) { body[c] = i; return; }         // was empty: now a leaf
+                if (body[c] >= 0) {                                 // leaf: push its body down
+                    if (half[c] < MIN_HALF) { body[c] = -2; return; }
+                    int b = body[c];
+                    body[c] = -1;
+                    int q = quadrant(c, x[b], y[b]);
+                    int k = childOf(c, q);
+                    mass[k] = 1; sumX[k] = x[b]; sumY[k] = y[b]; body[k] = b;
+                } else if (body[c] == -2) {
+                    return;                                         // unsplittable cluster
+                }
+                c = childOf(c, quadrant(c, px, py));
+            }
+        }
+
+        private int quadrant(int c, double px, double py) {
+            return (px >= midX[c] ? 1 : 0) | (py >= midY[c] ? 2 : 0);
+        }
+
+        private int childOf(int c, int q) {
+            int k = child[4 * c + q];
+            if (k == 0) {
+                double h = half[c] / 2;
+                k = newCell(midX[c] + ((q & 1) != 0 ? h : -h), midY[c] + ((q & 2) != 0 ? h : -h), h);
+                child[4 * c + q] = k;
+            }
+            return k;
+        }
+
+        // Sum over cells of mass * unit(d) / |d|^2, treating distant cells as
+        // one body at their centre of mass
+        void repulsion(int self, double px, double py, double[] out) {
+            double fx = 0, fy = 0;
+            int sp = 0;
+            stack[sp++] = 0;
+            while (sp > 0) {
+                int c = stack[--sp];
+                if (mass[c] == 0 || body[c] == self) continue;
+                double dx = px - sumX[c] / mass[c], dy = py - sumY[c] / mass[c];
+                double distSq = dx * dx + dy * dy;
+                boolean leaf = body[c] != -1;
+                double w = 2 * half[c];
+                if (leaf || w * w < THETA * THETA * distSq) {
+                    if (distSq < 1) distSq = 1;
+                    double dist = Math.sqrt(distSq);
+                    double s = mass[c] / (distSq * dist);
+                    fx += dx * s;
+                    fy += dy * s;
+                } else {
+                    if (sp + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                    for (int q = 0; q < 4; q++) if (child[4 * c + q] != 0) stack[sp++] = child[4 * c + q];
+                }
+            }
+            out[0] = fx;
+            out[1] = fy;
+        }
+    }
+}
+
+// Process-wide metrics: latency timers with fixed log-linear histograms,
+// plus named gauges over the counters components already keep. Recording
+// is lock-free and allocation-free, so it is safe on the EDT and in paint.
+// The overlay and the exit report read it; JFR gets the same hot paths as
+// events (PerfEvents) for recordings with stack and thread context.
+final class Metrics {
+    // 16 linear sub-buckets per power of two: at most ~6% error on a percentile
+    static final int SUB_BITS = 4, SUB = 1 << SUB_BITS, BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+    static final class Timer {
+        final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        Timer(String name) { this.name = name; }
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(bucket(nanos));
+            count.increment();
+            total.add(nanos);
+            if (nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+        }
+
+        long count() { return count.sum(); }
+        long totalNanos() { return total.sum(); }
+        long maxNanos() { return max.get(); }
+
+        // Cumulative bucket counts; subtract an older copy for a window
+        long[] snapshot() {
+            long[] s = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) s[i] = buckets.get(i);
+            return s;
+        }
+
+        String summary() {
+            long[] s = snapshot();
+            long n = count();
+            return String.format("%s n=%d avg=%.3f p50=%.3f p95=%.3f p99=%.3f max=%.3f ms", name, n,
+                    n == 0 ? 0 : totalNanos() / 1e6 / n, percentile(s, 0.50) / 1e6,
+                    percentile(s, 0.95) / 1e6, percentile(s, 0.99) / 1e6, maxNanos() / 1e6);
+        }
+    }
+
+    static int bucket(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        return (exp - SUB_BITS + 1) * SUB + (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+    }
+
+    // Midpoint of the values that land in bucket i
+    static long value(int i) {
+        if (i < SUB) return i;
+        int exp = i / SUB + SUB_BITS - 1;
+        long lo = (long) (SUB + i % SUB) << (exp - SUB_BITS);
+        return lo + (1L << (exp - SUB_BITS)) / 2;
+    }
+
+    static long percentile(long[] counts, double p) {
+        long n = 0;
+        for (long c : counts) n += c;
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(p * n), seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) return value(i);
+        }
+        return value(counts.length - 1);
+    }
+
+    private static final Map<String, Timer> timers = new java.util.concurrent.ConcurrentSkipListMap<>();
+    private static final Map<String, java.util.function.LongSupplier> gauges = new java.util.concurrent.ConcurrentSkipListMap<>();
+    private static final Map<String, LongAdder> warnings = new ConcurrentHashMap<>();
+
+    static Timer timer(String name) { return timers.computeIfAbsent(name, Timer::new); }
+
+    static LongAdder counter(String name) {
+        LongAdder c = new LongAdder();
+        gauge(name, c::sum);
+        return c;
+    }
+
+    static void gauge(String name, java.util.function.LongSupplier value) { gauges.put(name, value); }
+
+    static Collection<Timer> timers() { return timers.values(); }
+
+    static Map<String, Long> gauges() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (Map.Entry<String, java.util.function.LongSupplier> e : gauges.entrySet()) out.put(e.getKey(), e.getValue().getAsLong());
+        return out;
+    }
+
+    // For failures that used to be swallowed: counted per kind, and logged
+    // the first few times and then every hundredth so a dead network or a
+    // bad disk does not flood stderr
+    static void warn(String kind, String message) {
+        LongAdder n = warnings.computeIfAbsent(kind, k -> counter("errors." + k));
+        n.increment();
+        long seen = n.sum();
+        if (seen <= 5 || seen % 100 == 0) System.err.println("[" + kind + "] " + message + (seen > 5 ? " (" + seen + " so far)" : ""));
+    }
+
+    static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Timer t : timers()) if (t.count() > 0) sb.append(t.summary()).append('\n');
+        for (Map.Entry<String, Long> e : gauges().entrySet()) sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+        return sb.toString();
+    }
+}
+
+// Custom JFR events for the hot paths (category "FilmForge"). They cost
+// nothing unless a recording enables them, e.g.
+//   java -XX:StartFlightRecording:filename=ff.jfr,settings=profile ...
+final class PerfEvents {
+    private PerfEvents() { }
+
+    @jdk.jfr.Name("filmforge.Search") @jdk.jfr.Label("Search") @jdk.jfr.Category("FilmForge")
+    static final class Search extends jdk.jfr.Event {
+        @jdk.jfr.Label("Query") String query;
+        @jdk.jfr.Label("Hits") int hits;
+        @jdk.jfr.Label("Narrowed") boolean narrowed;
+    }
+
+    @jdk.jfr.Name("filmforge.CardLayout") @jdk.jfr.Label("Card Layout") @jdk.jfr.Category("FilmForge")
+    static final class CardLayout extends jdk.jfr.Event {
+        @jdk.jfr.Label("View") String view;
+        @jdk.jfr.Label("Cards Bound") int binds;
+        @jdk.jfr.Label("Cards Moved") int moves;
+    }
+
+    @jdk.jfr.Name("filmforge.PosterFetch") @jdk.jfr.Label("Poster Fetch") @jdk.jfr.Category("FilmForge")
+    static final class PosterFetch extends jdk.jfr.Event {
+        @jdk.jfr.Label("URL") String url;
+        @jdk.jfr.Label("Status") int status;
+        @jdk.jfr.Label("Bytes") @jdk.jfr.DataAmount int bytes;
+        @jdk.jfr.Label("Error") String error;
+    }
+
+    @jdk.jfr.Name("filmforge.PosterDecode") @jdk.jfr.Label("Poster Decode") @jdk.jfr.Category("FilmForge")
+    static final class PosterDecode extends jdk.jfr.Event {
+        @jdk.jfr.Label("Bytes") @jdk.jfr.DataAmount int bytes;
+        @jdk.jfr.Label("Error") String error;
+    }
+
+    @jdk.jfr.Name("filmforge.GraphFrame") @jdk.jfr.Label("Graph Frame") @jdk.jfr.Category("FilmForge")
+    @jdk.jfr.Threshold("1 ms")
+    static final class GraphFrame extends jdk.jfr.Event {
+        @jdk.jfr.Label("Nodes") int nodes;
+    }
+
+    // Graph frames paint continuously, so no event is created while off
+    static final jdk.jfr.EventType GRAPH_FRAME = jdk.jfr.EventType.getEventType(GraphFrame.class);
+
+    @jdk.jfr.Name("filmforge.EdtStall") @jdk.jfr.Label("EDT Stall") @jdk.jfr.Category("FilmForge")
+    @jdk.jfr.StackTrace(false)
+    static final class EdtStall extends jdk.jfr.Event {
+        @jdk.jfr.Label("Event") String event;
+        @jdk.jfr.Label("EDT Stack") String stack;
+    }
+}
+
+// Times every event the EDT dispatches. A dispatch longer than the
+// threshold (filmforge.edtStallMs, default 100) is a stall: it is counted,
+// committed as a JFR event and logged. A watchdog samples the EDT's stack
+// while a stall is still in progress, so the log says where it was stuck
+// and not just that it was.
+final class EdtMonitor extends EventQueue {
+    static final long THRESHOLD_NANOS = Long.getLong("filmforge.edtStallMs", 100) * 1_000_000;
+
+    private final Metrics.Timer dispatch = Metrics.timer("edt.dispatch");
+    private final LongAdder stalls = Metrics.counter("edt.stalls");
+    private volatile long started;          // 0 when idle
+    private volatile Thread edt;
+    private volatile String stuckAt;        // stack sampled during the current dispatch
+    private int depth;                      // EDT only
+    private long dispatches;                // EDT only
+
+    static void install() {
+        EdtMonitor m = new EdtMonitor();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(m);
+        Thread watchdog = new Thread(m::watch, "edt-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    // A modal dialog runs a nested event loop inside the dispatch that
+    // opened it. That dispatch is not a stall, so it is not timed; the
+    // watchdog clock restarts whenever a nested dispatch ends.
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long t0 = System.nanoTime(), mark = ++dispatches;
+        edt = Thread.currentThread();
+        stuckAt = null;
+        started = t0;
+        depth++;
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            depth--;
+            long now = System.nanoTime();
+            started = depth > 0 ? now : 0;
+            String where = stuckAt;
+            stuckAt = null;
+            if (dispatches == mark) {
+                dispatch.record(now - t0);
+                if (now - t0 > THRESHOLD_NANOS) stalled(event, now - t0, where);
+            }
+        }
+    }
+
+    private void stalled(AWTEvent event, long took, String where) {
+        stalls.increment();
+        String what = event.getClass().getSimpleName() + "[" + event.paramString() + "]";
+        PerfEvents.EdtStall jfr = new PerfEvents.EdtStall();
+        if (jfr.isEnabled()) {
+            jfr.event = what;
+            jfr.stack = where;
+            jfr.commit();
+        }
+        Metrics.warn("edt-stall", String.format("%.0f ms in %s%s", took / 1e6, what, where != null ? "\n" + where : ""));
+    }
+
+    private void watch() {
+        long period = Math.max(1, THRESHOLD_NANOS / 2_000_000);
+        while (true) {
+            try { Thread.sleep(period); } catch (InterruptedException e) { return; }
+            long s = started;
+            Thread t = edt;
+            if (s == 0 || t == null || stuckAt != null || System.nanoTime() - s < THRESHOLD_NANOS) continue;
+            StringBuilder sb = new StringBuilder();
+            StackTraceElement[] stack = t.getStackTrace();
+            for (int i = 0; i < Math.min(stack.length, 12); i++) sb.append("    at ").append(stack[i]).append('\n');
+            if (started == s) stuckAt = sb.toString();
+        }
+    }
+}
+
+// Live view of Metrics over the app (F12 or -Dfilmforge.overlay=true):
+// per-timer percentiles over the last WINDOW seconds, then the gauges.
+// Refreshes once a second while visible and costs nothing while hidden.
+class MetricsOverlay extends JComponent {
+    static final int WINDOW = 5;
+    static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+    static final Color BACKDROP = new Color(0, 0, 0, 190);
+
+    private final Map<String, ArrayDeque<long[]>> history = new HashMap<>();
+    private final List<String> lines = new ArrayList<>();
+    private final javax.swing.Timer refresh = new javax.swing.Timer(1000, e -> sample());
+
+    MetricsOverlay() {
+        setOpaque(false);
+        setVisible(false);
+    }
+
+    void toggle() {
+        setVisible(!isVisible());
+        if (isVisible()) { sample(); refresh.start(); } else refresh.stop();
+    }
+
+    private void sample() {
+        lines.clear();
+        lines.add(String.format("%-22s %7s %9s %9s %9s %9s", "last " + WINDOW + " s", "n", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (Metrics.Timer t : Metrics.timers()) {
+            long[] now = t.snapshot();
+            ArrayDeque<long[]> past = history.computeIfAbsent(t.name, k -> new ArrayDeque<>());
+            long[] window = now.clone();
+            if (!past.isEmpty()) {
+                long[] old = past.peekFirst();
+                for (int i = 0; i < window.length; i++) window[i] -= old[i];
+            }
+            past.addLast(now);
+            if (past.size() > WINDOW) past.removeFirst();
+            long n = 0, maxBucket = -1;
+            for (int i = 0; i < window.length; i++) if (window[i] > 0) { n += window[i]; maxBucket = i; }
+            if (t.count() == 0) continue;
+            lines.add(String.format("%-22s %7d %9.2f %9.2f %9.2f %9.2f", t.name, n, Metrics.percentile(window, 0.50) / 1e6,
+                    Metrics.percentile(window, 0.95) / 1e6, Metrics.percentile(window, 0.99) / 1e6,
+                    maxBucket < 0 ? 0 : Metrics.value((int) maxBucket) / 1e6));
+        }
+        StringBuilder row = new StringBuilder();
+        for (Map.Entry<String, Long> e : Metrics.gauges().entrySet()) {
+            String item = e.getKey() + "=" + e.getValue();
+            if (row.length() + item.length() > 80) { lines.add(row.toString()); row.setLength(0); }
+            row.append(row.length() == 0 ? "" : "  ").append(item);
+        }
+        if (row.length() > 0) lines.add(row.toString());
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setFont(FONT);
+        FontMetrics fm = g.getFontMetrics();
+        int lh = fm.getHeight(), w = 0;
+        for (String l : lines) w = Math.max(w, fm.stringWidth(l));
+        int x = getWidth() - w - 24, y = 12;
+        g.setColor(BACKDROP);
+        g.fillRoundRect(x, y, w + 16, lines.size() * lh + 12, 10, 10);
+        g.setColor(Color.GREEN);
+        for (int i = 0; i < lines.size(); i++) g.drawString(lines.get(i), x + 8, y + 6 + fm.getAscent() + i * lh);
+    }
+}
+
+// Single place views are refreshed from. Model changes mark views dirty
+// (from any thread); the EDT runs each dirty view's refresher at most once
+// per frame, however many changes arrived in between. Marks that land on
+// an already-pending refresh are counted as rebuilds avoided.
+class UiScheduler {
+    static final int FRAME_MS = 16;
+
+    private final Map<String, Runnable> refreshers = new LinkedHashMap<>();   // registered on the EDT
+    private final Set<String> dirty = new LinkedHashSet<>();                  // guarded by this
+    private boolean scheduled;                                                // guarded by this
+    private long lastFlush;                                                   // EDT only
+
+    final LongAdder marks = new LongAdder();
+    final LongAdder flushes = new LongAdder();
+    final LongAdder refreshes = new LongAdder();
+    final LongAdder avoided = new LongAdder();
+
+    void register(String view, Runnable refresher) { refreshers.put(view, refresher); }
+
+    void markDirty(String... views) {
+        marks.increment();
+        boolean schedule;
+        synchronized (this) {
+            for (String v : views) if (!dirty.add(v)) avoided.increment();
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) SwingUtilities.invokeLater(this::scheduleFlush);
+    }
+
+    // A refresh skipped because nothing on screen needed it
+    void skipped() { avoided.increment(); }
+
+    private void scheduleFlush() {
+        long waitMs = FRAME_MS - (System.nanoTime() - lastFlush) / 1_000_000;
+        if (waitMs <= 0) { flush(); return; }
+        javax.swing.Timer t = new javax.swing.Timer((int) waitMs, e -> flush());
+        t.setRepeats(false);
+        t.start();
+    }
+
+    private void flush() {
+        List<String> views;
+        synchronized (this) {
+            views = new ArrayList<>(dirty);
+            dirty.clear();
+            scheduled = false;
+        }
+        lastFlush = System.nanoTime();
+        flushes.increment();
+        for (String v : views) {
+            Runnable r = refreshers.get(v);
+            if (r == null) continue;
+            refreshes.increment();
+            r.run();
+        }
+    }
+
+    String stats() {
+        return String.format("%d marks, %d flushes, %d view refreshes, %d rebuilds avoided",
+                marks.sum(), flushes.sum(), refreshes.sum(), avoided.sum());
+    }
+}
+
+// ==========================================
+// MAIN APPLICATION
+// ==========================================
+
+// The catalog, search indexes, category graph, analytics and recommender
+// without any Swing. Every method is safe to call from any thread: the
+// indexes publish immutable snapshots, the graph is copy-on-write and the
+// analytics and recommender synchronize internally. The desktop app and
+// FilmForgeServer are both just clients of one of these.
+class FilmForgeService {
+    // Called on loader or pool threads as the catalog comes in
+    interface LoadListener {
+        void categoryLoaded(String category, MovieList movies);
+        // Prefix and fuzzy indexes are complete
+        default void indexed() { }
+    }
+
+    final CatalogStore catalog = new CatalogStore();
+    final Trie trie = new Trie();
+    final FuzzySearchEngine fuzzy = new FuzzySearchEngine();
+    final Graph graph = new Graph(catalog);
+    final AnalyticsEngine analytics = new AnalyticsEngine();
+    final Recommender recommender = new Recommender(catalog, () -> this.facets);
+    final TrendingTracker trending = new TrendingTracker();
+    private volatile FacetIndex facets;
+
+    // Parses the catalog, then indexes each category shard on the fork-join
+    // pool, reporting each shard as it lands; the fuzzy index is built once
+    // at the end because it is not incremental. A current snapshot replaces
+    // both the parse and the prefix index build, and a fresh one is written
+    // after every full build. Throws if the file cannot be read at all.
+    void load(Path file, LoadListener listener) throws IOException {
+        long start = System.nanoTime();
+        Path snap = CatalogSnapshot.defaultPath();
+        if (CatalogSnapshot.read(snap, file, catalog, trie)) {
+            long opened = System.nanoTime();
+            Map<String, MovieList> shards = catalog.byCategory(0, catalog.size());
+            for (Map.Entry<String, MovieList> e : shards.entrySet()) {
+                graph.addMovies(e.getKey(), e.getValue());
+                listener.categoryLoaded(e.getKey(), e.getValue());
+            }
+            long fuzzyStart = System.nanoTime();
+            fuzzy.insertAll(new MovieList(catalog, allRows(catalog.size()), catalog.size()));
+            fuzzy.prepare();
+            long facetStart = System.nanoTime();
+            long facetKb = facets().heapBytes() >> 10;
+            System.out.printf("[Catalog] %d titles in %d categories from snapshot: open %d ms (prefix index %d KB), fuzzy index %d ms (%d KB), facets %d ms (%d KB)%n",
+                    catalog.size(), shards.size(), (opened - start) / 1_000_000, trie.heapBytes() >> 10,
+                    (facetStart - fuzzyStart) / 1_000_000, fuzzy.heapBytes() >> 10,
+                    (System.nanoTime() - facetStart) / 1_000_000, facetKb);
+            listener.indexed();
+            return;
+        }
+        long[] stamp = CatalogSnapshot.stamp(file);
+        Map<String, MovieList> shards = CatalogLoader.parse(file, catalog);
+        long parsed = System.nanoTime();
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        List<Movie> all = new MovieList(catalog);
+        for (Map.Entry<String, MovieList> e : shards.entrySet()) {
+            all.addAll(e.getValue());
+            parts.add(CompletableFuture.runAsync(() -> {
+                trie.insertAll(e.getValue());
+                graph.addMovies(e.getKey(), e.getValue());
+                listener.categoryLoaded(e.getKey(), e.getValue());
+            }, ForkJoinPool.commonPool()));
+        }
+        CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).join();
+        long indexed = System.nanoTime();
+        fuzzy.insertAll(all);
+        fuzzy.prepare();
+        long facetStart = System.nanoTime();
+        long facetKb = facets().heapBytes() >> 10;
+        System.out.printf("[Catalog] %d titles in %d categories (%d KB columnar): parse %d ms, prefix index %d ms (%d KB), fuzzy index %d ms (%d KB), facets %d ms (%d KB)%n",
+                all.size(), shards.size(), catalog.heapBytes() >> 10, (parsed - start) / 1_000_000,
+                (indexed - parsed) / 1_000_000, trie.heapBytes() >> 10, (facetStart - indexed) / 1_000_000, fuzzy.heapBytes() >> 10,
+                (System.nanoTime() - facetStart) / 1_000_000, facetKb);
+        listener.indexed();
+        try {
+            long t = System.nanoTime();
+            CatalogSnapshot.write(snap, stamp, catalog, trie);
+            System.out.printf("[Catalog] snapshot %s written in %d ms%n", snap, (System.nanoTime() - t) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[Catalog] snapshot not written: " + e);
+        }
+    }
+
+    private static int[] allRows(int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) ids[i] = i;
+        return ids;
+    }
+
+    Movie add(String title, String cat, double rating, String url) {
+        Movie m = catalog.movie(catalog.add(title, cat, rating, url));
+        trie.insert(m);
+        fuzzy.insert(m);
+        graph.addMovie(m);
+        return m;
+    }
+
+    // The demo list used when no catalog file is found
+    void loadBuiltIn() {
+        add("Inception", "Hollywood", 8.8, "https://m.media-amazon.com/images/M/MV5BMjAxMzY3NjcxNF5BMl5BanBnXkFtZTcwNTI5OTM0Mw@@._V1_.jpg");
+        add("The Dark Knight", "Hollywood", 9.0, "https://m.media-amazon.com/images/M/MV5BMTMxNTMwODM0NF5BMl5BanBnXkFtZTcwODAyMTk2Mw@@._V1_.jpg");
+        add("Interstellar", "Hollywood", 8.6, "https://m.media-amazon.com/images/M/MV5BZjdkOTU3MDktN2IxOS00OGEyLWFmMjktY2FiMmZkNWIyODZiXkEyXkFqcGdeQXVyMTMxODk2OTU@._V1_.jpg");
+        add("Avengers Endgame", "Hollywood", 8.4, "https://m.media-amazon.com/images/M/MV5BMTc5MDE2ODcwNV5BMl5BanBnXkFtZTgwMzI2NzQ2NzM@._V1_.jpg");
+        add("Spider-Man NWH", "Hollywood", 8.2, "https://m.media-amazon.com/images/M/MV5BZWMyYzFjYTYtNTRjYi00OGExLWE2YzgtOGRmYjAxZTU3NzBiXkEyXkFqcGdeQXVyMzQ0MzA0NTM@._V1_.jpg");
+        add("Avatar", "Hollywood", 7.8, "https://m.media-amazon.com/images/M/MV5BZDA0OGQxNTItMDZkMC00N2UyLTg3MzMtYTJmNjg3Nzk5MzRiXkEyXkFqcGdeQXVyMjUzOTY1NTc@._V1_.jpg");
+        add("Titanic", "Hollywood", 7.9, "https://m.media-amazon.com/images/M/MV5BMDdmZGU3NDQtY2E5My00ZTliLWIzOTUtMTY4ZGI1YjdiNjk3XkEyXkFqcGdeQXVyNTA4NzY1MzY@._V1_.jpg");
+        add("Joker", "Hollywood", 8.1, "https://m.media-amazon.com/images/M/MV5BNGVjNWI4ZGUtNzE0MS00ZmJmLTljNzgtNDIyNjTkZmYyN2NmXkEyXkFqcGdeQXVyMDM2NDM2MQ@@._V1_.jpg");
+        add("Iron Man", "Hollywood", 7.9, "https://m.media-amazon.com/images/M/MV5BMTczNTI2ODUwOF5BMl5BanBnXkFtZTcwMTU0NTIzMw@@._V1_.jpg");
+        add("The Matrix", "Hollywood", 8.7, "https://m.media-amazon.com/images/M/MV5BNzQzOTk3OTAtNDQ0Zi00ZTVkLWI0MTEtMDllZjNkYzNjNTc4L2ltYWdlXkEyXkFqcGdeQXVyNjU0OTQ0OTY@._V1_.jpg");
+
+        add("3 Idiots", "Bollywood", 8.4, "https://m.media-amazon.com/images/M/MV5BNTkyOGVjMGEtNmQzZi00NzFlLTlhOWQtODYyMDc2ZGJmYzFhXkEyXkFqcGdeQXVyNjU0OTQ0OTY@._V1_.jpg");
+        add("Dangal", "Bollywood", 8.3, "https://m.media-amazon.com/images/M/MV5BMTQ4MzQzMzM2Nl5BMl5BanBnXkFtZTgwMTQ1NzU3MDI@._V1_.jpg");
+        add("Pathaan", "Bollywood", 7.0, "https://m.media-amazon.com/images/M/MV5BM2QzM2JiNTMtYjU4Ny00MDZkLTk3MmUtYTRjMzVkZGJlNmYyXkEyXkFqcGdeQXVyMTE0MzY0NjE1._V1_.jpg");
+        add("Jawan", "Bollywood", 7.2, "https://m.media-amazon.com/images/M/MV5BMmJlNTBmZDYtNzBjZi00MnlleLWJmMjktNWNiODAxNzdlOTYxXkEyXkFqcGdeQXVyMTE0MzY0NjE1._V1_.jpg");
+        add("PK", "Bollywood", 8.1, "https://m.media-amazon.com/images/M/MV5BMTYzOTE2NjkxN15BMl5BanBnXkFtZTgwMDgzMTg0MzE@._V1_.jpg");
+        add("Sholay", "Bollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BNjFkMzA2MjItZTM4MC00MjM2LWI3YzYtMTAzZDI2NTA3ZTA5XkEyXkFqcGdeQXVyODE5NzE3OTE@._V1_.jpg"); 
+        add("Bajrangi Bhaijaan", "Bollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BMTY0MzI3Mzg1MF5BMl5BanBnXkFtZTgwOTMzMDYwNTE@._V1_.jpg"); 
+        add("Lagaan", "Bollywood", 8.1, "https://m.media-amazon.com/images/M/MV5BNDYxNWUzZmYtOGQxMC00MTdkLTkxOTctYzkyOGIwNWQxZjhmXkEyXkFqcGdeQXVyNjU0OTQ0OTY@._V1_.jpg"); 
+        add("DDLJ", "Bollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BMjY4ODkzNjE0OV5BMl5BanBnXkFtZTgwMTc0NTMwMDI@._V1_.jpg");
+        add("Drishyam", "Bollywood", 8.2, "https://m.media-amazon.com/images/M/MV5BYmJhZmJlYTItZmZlNy00MGY0LTg0ZGMtNWFkYWU5N2Y1YjdmXkEyXkFqcGdeQXVyMTEzNzg0Mjkx._V1_.jpg"); 
+
+        add("Parasite", "Korean", 8.5, "https://m.media-amazon.com/images/M/MV5BYWZjMjk3ZTItODQ2ZC00NTY5LWE0ZDYtZTI3MjcwN2Q5NTVkXkEyXkFqcGdeQXVyODk4OTc3MTY@._V1_.jpg");
+        add("Train to Busan", "Korean", 7.6, "https://m.media-amazon.com/images/M/MV5BMTkwOTQ4OTg0OV5BMl5BanBnXkFtZTgwMzQyOTM0OTE@._V1_.jpg");
+        add("Oldboy", "Korean", 8.4, "https://m.media-amazon.com/images/M/MV5BMTI3NTQyMzU5M15BMl5BanBnXkFtZTcwMTM2MjgyMQ@@._V1_.jpg"); 
+        add("Squid Game", "Korean", 8.0, "https://m.media-amazon.com/images/M/MV5BYWE3MDVkN2EtNjQ5MS00ZDQ4LTliNzYtMjc2YWMzODA1YmI1XkEyXkFqcGdeQXVyODk4OTc3MTY@._V1_.jpg"); 
+        add("Minari", "Korean", 7.5, "https://m.media-amazon.com/images/M/MV5BNjRkZjJiYWQtMTZmYS00ZmJjLWExMGMtYmNlYzhlNTQ5ZGPTXkEyXkFqcGdeQXVyODc0OTEyNDU@._V1_.jpg"); 
+        add("The Host", "Korean", 7.1, "https://m.media-amazon.com/images/M/MV5BMTkwOTQ4OTg0OV5BMl5BanBnXkFtZTgwMzQyOTM0OTE@._V1_.jpg"); 
+        add("Memories", "Korean", 8.1, "https://m.media-amazon.com/images/M/MV5BOGViNTQ4ODUtZGU2Yi00OTc3LTk0YzQtNWY2YWUyNmY0NTcwXkEyXkFqcGdeQXVyODc0OTEyNDU@._V1_.jpg"); 
+        add("Okja", "Korean", 7.3, "https://m.media-amazon.com/images/M/MV5BM2YxYmFjYWMtMzQ0My00MzQ2LTljYWMtM2E0Y2M2MTY2YWU4XkEyXkFqcGdeQXVyMTMxODk2OTU@._V1_.jpg"); 
+        add("Burning", "Korean", 7.5, "https://m.media-amazon.com/images/M/MV5BMTQ0ODQ3MzQ0Ml5BMl5BanBnXkFtZTgwOTIyODg2NTM@._V1_.jpg"); 
+        add("I Saw the Devil", "Korean", 7.8, "https://m.media-amazon.com/images/M/MV5BMjA1Nzc2ODk3NV5BMl5BanBnXkFtZTgwMjY3MjcwMTE@._V1_.jpg"); 
+
+        add("RRR", "Tollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BODUwNDNjYzctODUxNy00ZTA2LWIyYTEtMDc5Y2E5ZjBmNTMzXkEyXkFqcGdeQXVyODE5NzE3OTE@._V1_.jpg");
+        add("Baahubali", "Tollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BYWVlMjVhZWYtNWViNC00ODFkLTk1MmItYjU1MDY5ZDdhMTU3XkEyXkFqcGdeQXVyODIwMDI1NjM@._V1_.jpg");
+        add("Baahubali 2", "Tollywood", 8.2, "https://m.media-amazon.com/images/M/MV5BOGNlMmRkODYtMWRhZS00MzlpLWI2MGEtMzRiMWRlYjNmZGRmXkEyXkFqcGdeQXVyMTQxNzMzNDI@._V1_.jpg"); 
+        add("KGF 1", "Tollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BZDNlNzBjMGUtYTA0Yy00OTI2LWJmZjMtODliYmUyYTI0OGFmXkEyXkFqcGdeQXVyODIwMDI1NjM@._V1_.jpg"); 
+        add("KGF 2", "Tollywood", 8.2, "https://m.media-amazon.com/images/M/MV5BMjA2M2Y4MzItZDBiMS00YTc5LThjMjQtMzA0NWM1ZjI1MWY5XkEyXkFqcGdeQXVyMTEzNzg0Mjkx._V1_.jpg"); 
+        add("Pushpa", "Tollywood", 7.6, "https://m.media-amazon.com/images/M/MV5BMmQ4YmM3NjgtNTExNC00ZTZhLWEwZTctYjdhOWI4ZWFlZjA2XkEyXkFqcGdeQXVyMTI1NDEyNTM5._V1_.jpg"); 
+        add("Eega", "Tollywood", 7.8, "https://m.media-amazon.com/images/M/MV5BOGE3ZWRkOTQtZDk1Mi00ZGU2LWEzNTItZTNkY2JmOTM4NjUyXkEyXkFqcGdeQXVyODIwMDI1NjM@._V1_.jpg"); 
+        add("Magadheera", "Tollywood", 7.7, "https://m.media-amazon.com/images/M/MV5BZmVjYWY1ZWMtZjA0MC00Yjg5LWIxN2ItOGU2MWMwY2E1MTc3XkEyXkFqcGdeQXVyNDY5MTUyNjU@._V1_.jpg"); 
+        add("Arjun Reddy", "Tollywood", 7.9, "https://m.media-amazon.com/images/M/MV5BZWYxYjI4OGQtNjI3YS00ZTk1LTk0YmQtNWRlNDIyMTE2ZjZlXkEyXkFqcGdeQXVyMTI1NDEyNTM5._V1_.jpg"); 
+        add("Vikram", "Tollywood", 8.3, "https://m.media-amazon.com/images/M/MV5BOTFkMTgxZmEtMWZkZS00NjAyLTg2ZjctYTE4M2U4YjY5NTM5XkEyXkFqcGdeQXVyMTI1NDEyNTM5._V1_.jpg"); 
+        facets();
+    }
+
+    // Prefix matches first, topped up with fuzzy matches
+    List<Movie> search(String query, int limit) {
+        long start = System.nanoTime();
+        String q = query.toLowerCase(Locale.ROOT);
+        List<Movie> hits = IncrementalSearch.withFuzzy(trie.search(q, limit), fuzzy, q, limit);
+        IncrementalSearch.latency.record(System.nanoTime() - start);
+        return hits;
+    }
+
+    List<String> categories() { return new ArrayList<>(graph.categories()); }
+
+    // One page of a category in catalog order
+    List<Movie> category(String name, int offset, int limit) {
+        MovieList all = graph.getMovies(name);
+        int from = Math.min(Math.max(0, offset), all.size());
+        return all.subList(from, Math.min(all.size(), from + Math.max(0, limit)));
+    }
+
+    Movie movie(int id) { return id >= 0 && id < catalog.size() ? catalog.movie(id) : null; }
+
+    // Rebuilt on first use after the prefix index has moved on, so a burst
+    // of adds costs one rebuild
+    FacetIndex facets() {
+        Trie.Index titles = trie.sorted();
+        FacetIndex f = facets;
+        if (f != null && f.source == titles) return f;
+        synchronized (this) {
+            f = facets;
+            if (f == null || f.source != titles) facets = f = new FacetIndex(catalog, titles);
+            return f;
+        }
+    }
+
+    FacetIndex.Result browse(FacetIndex.Query q) { return facets().query(q); }
+
+    // The desktop user
+    void watched(Movie m, float weight) {
+        analytics.logAction(m.category());
+        recommender.record(m, weight);
+        trending.record(m.id, weight);
+    }
+
+    // A remote user; their events are only paired with their own
+    void watched(String user, Movie m, float weight) {
+        recommender.record(user, m, weight);
+        trending.record(m.id, weight);
+    }
+
+    List<Movie> trending(TrendingTracker.Span span, int k) {
+        List<Movie> out = new ArrayList<>();
+        for (TrendingTracker.Entry e : trending.top(span, k)) {
+            Movie m = movie(e.id);
+            if (m != null) out.add(m);
+        }
+        return out;
+    }
+
+    // For the local user, whose history the recommender has been fed
+    List<Movie> recommend(int k, Set<Movie> exclude) { return recommender.recommend(k, exclude); }
+
+    // For a caller that brings its own history, most recent first
+    List<Movie> recommend(List<Movie> history, int k) {
+        return recommender.recommendFor(history, k, new HashSet<>(history));
+    }
+}
+
+// Headless HTTP front end for a FilmForgeService (com.sun.net.httpserver).
+// Responses are JSON written straight to a chunked body as results are
+// walked, so nothing is buffered per request beyond the result list.
+//   GET  /search?q=&limit=
+//   GET  /categories
+//   GET  /category?name=&offset=&limit=
+//   GET  /browse?category=&category=...&min=&max=&sort=-rating,title&offset=&limit=
+//   GET  /recommend?id=&id=...&limit=     (ids from earlier responses)
+//   GET  /trending?window=hour|day&limit=
+//   POST /watch?user=&id=                 (user: any stable session id)
+//   GET  /stats
+class FilmForgeServer {
+    static final int MAX_LIMIT = 500;
+
+    private final FilmForgeService service;
+    private final com.sun.net.httpserver.HttpServer http;
+    private final ExecutorService pool;
+
+    final LongAdder requests = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+    private final Metrics.Timer latency = Metrics.timer("http.request");
+
+    // Java 17 has no virtual threads, so handlers run on a fixed pool sized
+    // for CPU-bound work; every handler only reads in-memory indexes.
+    FilmForgeServer(FilmForgeService service, int port, int threads) throws IOException {
+        this.service = service;
+        http = com.sun.net.httpserver.HttpServer.create(new java.net.InetSocketAddress(port), 256);
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "http");
+            t.setDaemon(true);
+            return t;
+        });
+        http.setExecutor(pool);
+        Metrics.gauge("http.queue", ((java.util.concurrent.ThreadPoolExecutor) pool).getQueue()::size);
+        http.createContext("/search", x -> handle(x, "GET", this::search));
+        http.createContext("/categories", x -> handle(x, "GET", this::categories));
+        http.createContext("/category", x -> handle(x, "GET", this::category));
+        http.createContext("/browse", x -> handle(x, "GET", this::browse));
+        http.createContext("/recommend", x -> handle(x, "GET", this::recommend));
+        http.createContext("/trending", x -> handle(x, "GET", this::trending));
+        http.createContext("/watch", x -> handle(x, "POST", this::watch));
+        http.createContext("/stats", x -> handle(x, "GET", this::stats));
+    }
+
+    static int threads() {
+        return Integer.getInteger("filmforge.httpThreads", Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    void start() {
+        http.start();
+        System.out.println("[Server] listening on " + http.getAddress());
+    }
+
+    void stop() {
+        http.stop(1);
+        pool.shutdown();
+    }
+
+    int port() { return http.getAddress().getPort(); }
+
+    // Parses and queries up front, so a bad request can still get a 400;
+    // the returned body then streams the result
+    private interface Endpoint {
+        Body respond(Map<String, List<String>> params);
+    }
+
+    private interface Body {
+        void write(JsonOut out) throws IOException;
+    }
+
+    private void handle(com.sun.net.httpserver.HttpExchange x, String method, Endpoint endpoint) throws IOException {
+        long t0 = System.nanoTime();
+        requests.increment();
+        try (x) {
+            if (!x.getRequestMethod().equals(method)) {
+                errors.increment();
+                x.sendResponseHeaders(405, -1);
+                return;
+            }
+            Body body;
+            int status = 200;
+            try {
+                body = endpoint.respond(query(x.getRequestURI().getRawQuery()));
+            } catch (IllegalArgumentException e) {
+                errors.increment();
+                status = 400;
+                body = out -> {
+                    out.raw("{\"error\":");
+                    out.string(String.valueOf(e.getMessage()));
+                    out.raw('}');
+                };
+            }
+            x.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            x.sendResponseHeaders(status, 0);
+            try (JsonOut out = new JsonOut(x.getResponseBody())) {
+                body.write(out);
+            }
+        } finally {
+            nanos.add(System.nanoTime() - t0);
+            latency.record(System.nanoTime() - t0);
+        }
+    }
+
+    private Body search(Map<String, List<String>> p) {
+        List<Movie> hits = service.search(param(p, "q", ""), limit(p, 20));
+        return out -> out.movies(hits);
+    }
+
+    private Body categories(Map<String, List<String>> p) {
+        List<String> cats = service.categories();
+        return out -> {
+            out.raw('[');
+            for (int i = 0; i < cats.size(); i++) {
+                if (i > 0) out.raw(',');
+                out.string(cats.get(i));
+            }
+            out.raw(']');
+        };
+    }
+
+    private Body category(Map<String, List<String>> p) {
+        List<Movie> page = service.category(param(p, "name", ""), Integer.parseInt(param(p, "offset", "0")), limit(p, 50));
+        return out -> out.movies(page);
+    }
+
+    private Body browse(Map<String, List<String>> p) {
+        FacetIndex.Query q = new FacetIndex.Query()
+                .rating(Double.parseDouble(param(p, "min", "0")), Double.parseDouble(param(p, "max", "10")))
+                .orderBy(param(p, "sort", ""));
+        for (String c : p.getOrDefault("category", List.of())) q.category(c);
+        FacetIndex.Result result = service.browse(q);
+        List<Movie> page = result.page(Integer.parseInt(param(p, "offset", "0")), limit(p, 50));
+        return out -> {
+            out.raw("{\"total\":" + result.size() + ",\"movies\":");
+            out.movies(page);
+            out.raw('}');
+        };
+    }
+
+    private Body recommend(Map<String, List<String>> p) {
+        List<Movie> history = new ArrayList<>();
+        for (String id : p.getOrDefault("id", List.of())) history.add(movie(id));
+        List<Movie> picks = service.recommend(history, limit(p, 20));
+        return out -> out.movies(picks);
+    }
+
+    private Body trending(Map<String, List<String>> p) {
+        String window = param(p, "window", "hour");
+        TrendingTracker.Span span;
+        if (window.equals("hour")) span = TrendingTracker.Span.HOUR;
+        else if (window.equals("day")) span = TrendingTracker.Span.DAY;
+        else throw new IllegalArgumentException("window must be hour or day");
+        List<Movie> top = service.trending(span, limit(p, 10));
+        return out -> out.movies(top);
     }
 
-    private static ImageIcon createTitlePlaceholder(String title) {
-        int w = 140; int h = 200;
-        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = img.createGraphics();
-        g2.setColor(new Color(30, 30, 30));
-        g2.fillRect(0, 0, w, h);
-        g2.setColor(new Color(229, 9, 20)); 
-        g2.setStroke(new BasicStroke(4));
-        g2.drawRect(0, 0, w, h);
-        g2.setColor(Color.WHITE);
-        g2.setFont(new Font("Arial", Font.BOLD, 14));
-        FontMetrics fm = g2.getFontMetrics();
-        int y = h / 2 - 10;
-        String[] words = title.split(" ");
-        for (String word : words) {
-            int x = (w - fm.stringWidth(word)) / 2;
-            g2.drawString(word, x, y);
-            y += 20;
-        }
-        g2.dispose();
-        return new ImageIcon(img);
+    private Body watch(Map<String, List<String>> p) {
+        String user = param(p, "user", "");
+        if (user.isEmpty()) throw new IllegalArgumentException("user is required");
+        service.watched(user, movie(param(p, "id", "")), Recommender.WATCH);
+        return out -> out.raw("{\"ok\":true}");
     }
-}
 
-class TrieNode {
-    Map<Character, TrieNode> children = new HashMap<>();
-    boolean isEndOfWord = false;
-    String movieTitle;
-}
+    private Body stats(Map<String, List<String>> p) {
+        long n = requests.sum();
+        String head = "{\"requests\":" + n + ",\"errors\":" + errors.sum()
+                + ",\"avgMs\":" + (n == 0 ? 0 : nanos.sum() / 1e6 / n)
+                + ",\"titles\":" + service.catalog.size() + ",\"recommender\":";
+        String rec = service.recommender.stats();
+        String trend = service.trending.stats();
+        String metrics = Metrics.report();
+        return out -> {
+            out.raw(head);
+            out.string(rec);
+            out.raw(",\"trending\":");
+            out.string(trend);
+            out.raw(",\"metrics\":");
+            out.string(metrics);
+            out.raw('}');
+        };
+    }
 
-class Trie {
-    private TrieNode root = new TrieNode();
-    public void insert(String title) {
-        TrieNode curr = root;
-        for (char c : title.toLowerCase().toCharArray()) {
-            curr.children.putIfAbsent(c, new TrieNode());
-            curr = curr.children.get(c);
-        }
-        curr.isEndOfWord = true;
-        curr.movieTitle = title;
-    }
-    public List<String> search(String pre) {
-        List<String> res = new ArrayList<>();
-        TrieNode curr = root;
-        for (char c : pre.toLowerCase().toCharArray()) {
-            if (!curr.children.containsKey(c)) return res;
-            curr = curr.children.get(c);
-        }
-        dfs(curr, res);
-        return res;
+    private Movie movie(String id) {
+        Movie m = service.movie(Integer.parseInt(id));
+        if (m == null) throw new IllegalArgumentException("no movie " + id);
+        return m;
     }
-    private void dfs(TrieNode n, List<String> r) {
-        if (n.isEndOfWord) r.add(n.movieTitle);
-        for (TrieNode c : n.children.values()) dfs(c, r);
+
+    private static String param(Map<String, List<String>> p, String name, String def) {
+        List<String> v = p.get(name);
+        return v == null || v.isEmpty() ? def : v.get(0);
     }
-}
 
-class Graph {
-    Map<String, List<Movie>> adjList = new HashMap<>();
-    public void addMovie(Movie m) {
-        adjList.putIfAbsent(m.category, new ArrayList<>());
-        adjList.get(m.category).add(m);
+    private static int limit(Map<String, List<String>> p, int def) {
+        return Math.max(0, Math.min(MAX_LIMIT, Integer.parseInt(param(p, "limit", String.valueOf(def)))));
     }
-    public List<Movie> getMovies(String cat) { return adjList.getOrDefault(cat, new ArrayList<>()); }
-    public Movie findMovie(String t) {
-        for(List<Movie> l : adjList.values()) for(Movie m : l) if(m.title.equalsIgnoreCase(t)) return m;
-        return null;
+
+    private static Map<String, List<String>> query(String raw) {
+        Map<String, List<String>> out = new HashMap<>();
+        if (raw == null || raw.isEmpty()) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = java.net.URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String v = eq < 0 ? "" : java.net.URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            out.computeIfAbsent(k, key -> new ArrayList<>()).add(v);
+        }
+        return out;
     }
-}
 
-// ==========================================
-// PHYSICS GRAPH NODE
-// ==========================================
-class GraphNode {
-    double x, y;
-    double vx, vy; 
-    String label;
-    boolean isCategory;
-    Movie movieData; 
-    Color nodeColor; 
+    // Minimal streaming JSON writer over the response body
+    static final class JsonOut implements AutoCloseable {
+        private final java.io.Writer w;
 
-    public GraphNode(double x, double y, String label, boolean isCategory, Movie m, Color c) {
-        this.x = x; this.y = y;
-        this.label = label;
-        this.isCategory = isCategory;
-        this.movieData = m;
-        this.nodeColor = c;
+        JsonOut(java.io.OutputStream body) {
+            w = new java.io.BufferedWriter(new java.io.OutputStreamWriter(body, StandardCharsets.UTF_8), 8192);
+        }
+
+        void raw(char c) throws IOException { w.write(c); }
+
+        void raw(String s) throws IOException { w.write(s); }
+
+        void string(String s) throws IOException {
+            w.write('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') { w.write('\\'); w.write(c); }
+                else if (c < 0x20) w.write(String.format("\\u%04x", (int) c));
+                else w.write(c);
+            }
+            w.write('"');
+        }
+
+        void movies(List<Movie> ms) throws IOException {
+            w.write('[');
+            for (int i = 0; i < ms.size(); i++) {
+                Movie m = ms.get(i);
+                if (i > 0) w.write(',');
+                w.write("{\"id\":");
+                w.write(Integer.toString(m.id));
+                w.write(",\"title\":");
+                string(m.title());
+                w.write(",\"category\":");
+                string(m.category());
+                w.write(",\"rating\":");
+                w.write(Double.toString(m.rating()));
+                w.write(",\"imageUrl\":");
+                string(m.imageUrl());
+                w.write('}');
+            }
+            w.write(']');
+        }
+
+        @Override
+        public void close() throws IOException { w.close(); }
     }
 }
 
-// ==========================================
-// MAIN APPLICATION
-// ==========================================
-
 public class FilmForgeApp {
-    private Trie trie = new Trie();
-    private Graph graph = new Graph();
-    private AnalyticsEngine analytics = new AnalyticsEngine();
+    // Replaced (on the EDT) only when a failed load falls back to the built-in list
+    private FilmForgeService service = new FilmForgeService();
+    private CatalogStore catalog = service.catalog;
+    private Trie trie = service.trie;
+    private Graph graph = service.graph;
+    private Recommender recommender = service.recommender;
+    private AnalyticsEngine analytics = service.analytics;
+    private TrendingTracker trending = service.trending;
+    private final UserStateStore userState = UserStateStore.openDefault();
+    static final String TITLE = "FilmForge - Advanced DSA Movie App";
+    static final int SEARCH_LIMIT = 60;
+    static final int TRENDING_ROW = 10;
+    static final int SEARCH_DEBOUNCE_MS = 120;
+    static final int RECOMMEND_LIMIT = 30;
+    static final String HOME = "home", HISTORY = "history", WATCHLIST = "watchlist", RECOMMENDATIONS = "recommendations";
+    static final String POSTERS = "posters";
+    static final String BROWSE = "browse";
+    private final UiScheduler ui = new UiScheduler();
+    private boolean recommendationsStale = true;
+    private boolean browseStale = true;
+    static final int GRAPH_NODES = Integer.getInteger("filmforge.graphNodes", 25);
+    private FuzzySearchEngine fuzzy = service.fuzzy;
+    private IncrementalSearch search = new IncrementalSearch(trie, fuzzy, SEARCH_LIMIT);
     
     private JFrame frame;
-    private JPanel watchlistPanel;
-    private List<Movie> myWatchList = new ArrayList<>();
-    private JPanel historyPanel;
-    private List<Movie> myHistory = new ArrayList<>();
+    private CardGridView homeGrid;
+    private final List<Section> homeSections = new ArrayList<>();
+    private List<Movie> shownTrending = List.of();
+    private CardGridView watchGrid;
+    private CardGridView historyGrid;
+    private CardGridView browseGrid;
+    private final DefaultListModel<String> browseCategories = new DefaultListModel<>();
+    private JList<String> browseCategoryList;
+    private JSpinner browseMin, browseMax;
+    private JComboBox<String> browseSort;
+    private JLabel browseCount;
+    private boolean browseUpdating;
+    private final AtomicLong browseGeneration = new AtomicLong();
     
     private AdvancedGraphPanel advancedGraphPanel;
-    private JPanel recListPanel;
+    private CardGridView recGrid;
     private BarChartPanel barChartPanel; 
 
     Color BG = new Color(18, 18, 18);
@@ -224,10 +5201,32 @@ public class FilmForgeApp {
     Color COLOR_KOREAN = new Color(255, 193, 7); 
     Color COLOR_TOLLYWOOD = new Color(76, 175, 80); 
 
+    // Card grid geometry and the styling every card shares
+    static final int CARD_W = 140, CARD_H = 240, GRID_GAP = 15, GRID_PAD = 15, HEADER_H = 46;
+    static final Font HEADER_FONT = new Font("Arial", Font.BOLD, 22);
+    static final Font CARD_TITLE_FONT = new Font("SansSerif", Font.PLAIN, 11);
+    static final Font CARD_BUTTON_FONT = new Font("SansSerif", Font.BOLD, 10);
+    static final javax.swing.border.Border CARD_BORDER = BorderFactory.createLineBorder(Color.BLACK);
+    static final Cursor HAND = Cursor.getPredefinedCursor(Cursor.HAND_CURSOR);
+
+    // Shared by the graph and chart painters, which run 60 times a second
+    static final Font GRAPH_FONT = new Font("Arial", Font.BOLD, 12);
+    static final Font CHART_TITLE_FONT = new Font("Arial", Font.BOLD, 14);
+    static final Font CHART_LABEL_FONT = new Font("Arial", Font.PLAIN, 11);
+    static final Stroke EDGE_STROKE = new BasicStroke(2);
+    static final Color EDGE_COLOR = new Color(100, 100, 100);
+    static final AlphaComposite GLOW_COMPOSITE = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f);
+
+    static final Metrics.Timer CARD_LAYOUT = Metrics.timer("cards.layout");
+    static final Metrics.Timer GRAPH_PAINT = Metrics.timer("graph.paint");
+    static final LongAdder CARDS_BOUND = Metrics.counter("cards.bound");
+    static final LongAdder CARDS_MOVED = Metrics.counter("cards.moved");
+
     public FilmForgeApp() {
-        loadData(); 
+        Path catalogFile = CatalogLoader.locate();
+        if (catalogFile == null) loadData(); 
 
-        frame = new JFrame("FilmForge - Advanced DSA Movie App");
+        frame = new JFrame(TITLE);
         frame.setSize(1280, 850);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setLayout(new BorderLayout());
@@ -242,15 +5241,182 @@ public class FilmForgeApp {
         tabs.addTab("Search", createSearchTab());
         tabs.addTab("My Watchlist", createWatchTab());
         tabs.addTab("History", createHistoryTab());
+        tabs.addTab("Browse", createBrowseTab());
 
         tabs.addChangeListener(e -> {
             if(tabs.getSelectedIndex() == 1) { 
-                updateRecommendationView();
+                if (recommendationsStale) updateRecommendationView();
+                else ui.skipped();
             }
+            if (browseStale && browseGrid.isShowing()) runBrowse();
+            ui.markDirty(POSTERS);
+        });
+
+        ui.register(POSTERS, ImageLoader::promoteVisible);
+        ui.register(HOME, this::refreshHome);
+        // Plays mark Home dirty themselves; this catches titles sliding out of the window
+        new javax.swing.Timer(60_000, e -> { if (!trendingRow().equals(shownTrending)) ui.markDirty(HOME); }).start();
+        ui.register(HISTORY, this::refreshHistory);
+        ui.register(WATCHLIST, this::refreshWatchlist);
+        // The graph and its layout are only rebuilt while someone can see them
+        ui.register(RECOMMENDATIONS, () -> {
+            recommendationsStale = true;
+            if (advancedGraphPanel.isShowing()) updateRecommendationView();
+            else ui.skipped();
+        });
+        ui.register(BROWSE, () -> {
+            browseStale = true;
+            if (browseGrid.isShowing()) runBrowse();
+            else ui.skipped();
         });
 
         frame.add(tabs, BorderLayout.CENTER);
+        installMetrics();
         frame.setVisible(true);
+        if (catalogFile != null) loadCatalog(catalogFile);
+        Integer httpPort = Integer.getInteger("filmforge.httpPort");
+        if (httpPort != null) {
+            try {
+                new FilmForgeServer(service, httpPort, FilmForgeServer.threads()).start();
+            } catch (IOException e) {
+                System.err.println("[Server] not started on port " + httpPort + ": " + e);
+            }
+        }
+    }
+
+    // F12 toggles the live metrics overlay; -Dfilmforge.metricsReport=true
+    // also dumps every timer and gauge to stdout on exit.
+    private void installMetrics() {
+        Metrics.gauge("ui.refreshes", ui.refreshes::sum);
+        Metrics.gauge("ui.avoided", ui.avoided::sum);
+        MetricsOverlay overlay = new MetricsOverlay();
+        frame.setGlassPane(overlay);
+        JRootPane root = frame.getRootPane();
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F12, 0), "metrics");
+        root.getActionMap().put("metrics", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) { overlay.toggle(); }
+        });
+        if (Boolean.getBoolean("filmforge.overlay")) overlay.toggle();
+        if (Boolean.getBoolean("filmforge.metricsReport")) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.print(Metrics.report()), "metrics-report"));
+        }
+    }
+
+    // Loads the catalog through the service off the EDT; Home fills in as
+    // each category shard is indexed.
+    private void loadCatalog(Path file) {
+        frame.setTitle(TITLE + " (loading " + file.getFileName() + "...)");
+        Thread loader = new Thread(() -> {
+            try {
+                service.load(file, new FilmForgeService.LoadListener() {
+                    @Override public void categoryLoaded(String cat, MovieList movies) {
+                        SwingUtilities.invokeLater(() -> publishCategory(cat, movies));
+                    }
+
+                    @Override public void indexed() {
+                        search.invalidate();
+                        ui.markDirty(BROWSE);
+                        SwingUtilities.invokeLater(() -> frame.setTitle(TITLE));
+                        restoreUserState();
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                // e.g. more categories than the store can number. Whatever
+                // the failed load left behind, and any sections already
+                // shown from it, are dropped with its service.
+                System.err.println("[Catalog] " + file + " unreadable, using built-in list: " + e);
+                SwingUtilities.invokeLater(() -> {
+                    useService(new FilmForgeService());
+                    homeSections.clear();
+                    loadData();
+                    for (String c : graph.categories()) publishCategory(c, graph.getMovies(c));
+                    frame.setTitle(TITLE);
+                });
+            }
+        }, "catalog-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void useService(FilmForgeService s) {
+        service = s;
+        catalog = s.catalog;
+        trie = s.trie;
+        graph = s.graph;
+        recommender = s.recommender;
+        analytics = s.analytics;
+        trending = s.trending;
+        fuzzy = s.fuzzy;
+        search.close();
+        search = new IncrementalSearch(trie, fuzzy, SEARCH_LIMIT);
+    }
+
+    // Matches what the user-state store recovered against the loaded
+    // catalog and replays it into the recommender and analytics, all off the
+    // EDT; only the final merge into the live history and watchlist runs on it.
+    private void restoreUserState() {
+        userState.recovered().thenAcceptAsync(rec -> {
+            Set<String> keys = new HashSet<>(rec.history.keySet());
+            keys.addAll(rec.watchlist.keySet());
+            if (keys.isEmpty()) return;
+            Set<String> titles = new HashSet<>();
+            for (String k : keys) titles.add(k.substring(k.indexOf('\t') + 1));
+            Map<String, Movie> movies = new HashMap<>();
+            for (int id = 0, n = catalog.size(); id < n; id++) {
+                if (titles.contains(catalog.title(id))) {
+                    Movie m = catalog.movie(id);
+                    String k = UserStateStore.key(m);
+                    if (keys.contains(k)) movies.putIfAbsent(k, m);
+                }
+            }
+            replay(rec.history, movies, Recommender.WATCH);
+            replay(rec.watchlist, movies, Recommender.WATCHLIST);
+            System.out.printf("[UserState] %d of %d saved titles restored; %s%n", movies.size(), keys.size(), userState.stats());
+            SwingUtilities.invokeLater(() -> {
+                userState.resolve(rec, movies);
+                ui.markDirty(HOME, HISTORY, WATCHLIST, RECOMMENDATIONS);
+            });
+        }, ForkJoinPool.commonPool());
+    }
+
+    private void replay(Map<String, Long> actions, Map<String, Movie> movies, float weight) {
+        for (Map.Entry<String, Long> e : actions.entrySet()) {
+            Movie m = movies.get(e.getKey());
+            if (m == null) continue;
+            analytics.logAction(m.category(), e.getValue());
+            recommender.record(m, weight);
+            trending.record(m.id, weight, e.getValue());
+        }
+    }
+
+    // "Trending Now" over the last hour, or over the day while the last hour
+    // has been quiet; left out entirely before anything has been played
+    private List<Movie> trendingRow() {
+        List<Movie> ms = service.trending(TrendingTracker.Span.HOUR, TRENDING_ROW);
+        return ms.isEmpty() ? service.trending(TrendingTracker.Span.DAY, TRENDING_ROW) : ms;
+    }
+
+    private void refreshHome() {
+        shownTrending = trendingRow();
+        if (shownTrending.isEmpty()) {
+            homeGrid.setSections(homeSections);
+            return;
+        }
+        List<Section> sections = new ArrayList<>(homeSections.size() + 1);
+        sections.add(new Section("Trending Now", ACCENT, shownTrending));
+        sections.addAll(homeSections);
+        homeGrid.setSections(sections);
+    }
+
+    // Scrolling re-ranks the poster queue once a frame, not once a pixel
+    private void trackViewport(JScrollPane scroll) {
+        scroll.getViewport().addChangeListener(e -> ui.markDirty(POSTERS));
+    }
+
+    private void publishCategory(String cat, List<Movie> ms) {
+        homeSections.add(new Section(cat, getCategoryColor(cat), ms));
+        ui.markDirty(HOME);
+        search.invalidate();
     }
 
     private Color getCategoryColor(String cat) {
@@ -264,13 +5430,11 @@ public class FilmForgeApp {
     }
 
     private void playMovie(Movie m) {
-        analytics.logAction(m.category);
-        myHistory.remove(m); 
-        myHistory.add(0, m); 
-        refreshHistory(); 
-        updateRecommendationView(); 
+        service.watched(m, Recommender.WATCH);
+        userState.watched(m);
+        ui.markDirty(HOME, HISTORY, RECOMMENDATIONS);
 
-        JOptionPane.showMessageDialog(frame, "Starting: " + m.title + "\n(Playing Dummy Video...)", "Now Playing", JOptionPane.INFORMATION_MESSAGE);
+        JOptionPane.showMessageDialog(frame, "Starting: " + m.title() + "\n(Playing Dummy Video...)", "Now Playing", JOptionPane.INFORMATION_MESSAGE);
         try {
             File videoFile = new File("dummy.mp4"); 
             if (!videoFile.exists()) videoFile = new File("../dummy.mp4");
@@ -280,39 +5444,17 @@ public class FilmForgeApp {
     }
 
     private JScrollPane createHomeTab() {
-        JPanel mainPanel = new JPanel();
-        mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.Y_AXIS));
-        mainPanel.setBackground(BG);
-
-        String[] cats = {"Hollywood", "Bollywood", "Korean", "Tollywood"};
-
-        for (String c : cats) {
-            JLabel title = new JLabel("  " + c);
-            title.setForeground(getCategoryColor(c)); 
-            title.setFont(new Font("Arial", Font.BOLD, 22));
-            title.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
-            title.setAlignmentX(Component.LEFT_ALIGNMENT);
-            
-            JPanel rowPanel = new JPanel(new GridLayout(2, 5, 15, 15)); 
-            rowPanel.setBackground(BG);
-            rowPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
-            rowPanel.setBorder(BorderFactory.createEmptyBorder(0, 15, 20, 15)); 
-
-            List<Movie> movies = graph.getMovies(c);
-            for(Movie m : movies) {
-                addCard(rowPanel, m, "ADD");
-            }
-
-            JPanel wrapper = new JPanel(new BorderLayout());
-            wrapper.setBackground(BG);
-            wrapper.add(title, BorderLayout.NORTH);
-            wrapper.add(rowPanel, BorderLayout.CENTER);
-            mainPanel.add(wrapper);
+        homeGrid = new CardGridView("ADD");
+        for (String c : graph.categories()) {
+            homeSections.add(new Section(c, getCategoryColor(c), new ArrayList<>(graph.getMovies(c))));
         }
+        homeGrid.setSections(homeSections);
 
-        JScrollPane scroll = new JScrollPane(mainPanel);
+        JScrollPane scroll = new JScrollPane(homeGrid);
         scroll.getVerticalScrollBar().setUnitIncrement(20);
         scroll.setBorder(null);
+        scroll.getViewport().setBackground(BG);
+        trackViewport(scroll);
         return scroll;
     }
 
@@ -345,11 +5487,11 @@ public class FilmForgeApp {
         gbc.insets = new Insets(0, 0, 0, 0);
         topSplitPanel.add(barChartPanel, gbc);
 
-        recListPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 20));
-        recListPanel.setBackground(BG);
-        JScrollPane scrollList = new JScrollPane(recListPanel);
+        recGrid = new CardGridView("ADD");
+        JScrollPane scrollList = new JScrollPane(recGrid);
         scrollList.setBorder(null);
         scrollList.setPreferredSize(new Dimension(1200, 280));
+        trackViewport(scrollList);
 
         main.add(topSplitPanel, BorderLayout.CENTER);
         main.add(scrollList, BorderLayout.SOUTH);
@@ -358,29 +5500,24 @@ public class FilmForgeApp {
     }
 
     private void updateRecommendationView() {
+        recommendationsStale = false;
         String topCat = analytics.getTopCategory();
         
         advancedGraphPanel.initMixedGraph(analytics, graph);
         advancedGraphPanel.startSimulation();
 
-        List<Movie> recMovies = graph.getMovies(topCat);
-        recListPanel.removeAll();
-        JLabel header = new JLabel("<html><h2>Top Recommendations (<font color='" + getHexColor(getCategoryColor(topCat)) + "'>" + topCat + "</font>)</h2></html>");
-        header.setForeground(Color.WHITE);
-        recListPanel.add(header);
-        for(Movie m : recMovies) {
-            addCard(recListPanel, m, "ADD");
-        }
-        recListPanel.revalidate();
-        recListPanel.repaint();
+        Set<Movie> seen = userState.seen();
+        List<Movie> history = userState.history();
+        List<Movie> picks = recommender.recommend(RECOMMEND_LIMIT, seen);
+        List<Section> sections = new ArrayList<>();
+        if (!picks.isEmpty()) sections.add(new Section(history.isEmpty() ? "Recommended For You"
+                : "Because You Watched " + history.get(0).title(), ACCENT, picks));
+        sections.add(new Section("Top Recommendations (" + topCat + ")", getCategoryColor(topCat), graph.getMovies(topCat)));
+        recGrid.setSections(sections);
         
         barChartPanel.repaint();
     }
     
-    private String getHexColor(Color c) {
-        return String.format("#%02x%02x%02x", c.getRed(), c.getGreen(), c.getBlue());
-    }
-
     class BarChartPanel extends JPanel {
         @Override
         protected void paintComponent(Graphics g) {
@@ -392,59 +5529,125 @@ public class FilmForgeApp {
             int padding = 40; int barWidth = 50; 
             
             g2.setColor(Color.WHITE);
-            g2.setFont(new Font("Arial", Font.BOLD, 14));
+            g2.setFont(CHART_TITLE_FONT);
             g2.drawString("User Interest Statistics (Category %)", 20, 20);
 
-            Map<String, Integer> prefs = analytics.userPreferences;
             int total = analytics.getTotalInteractions();
             if(total == 0) {
                 g2.drawString("Start adding movies to see stats!", width/2 - 100, height/2);
                 return;
             }
+            g2.setFont(CHART_LABEL_FONT);
+            g2.setColor(Color.LIGHT_GRAY);
+            g2.drawString("Last 24 h: " + analytics.getWindowTotal(24) + ", last 7 days: " + analytics.getWindowTotal(7 * 24)
+                    + ", all time: " + total + " (bars decay with a " + analytics.halfLife.toDays() + " day half-life)", 20, 38);
+            g2.setFont(CHART_TITLE_FONT);
 
-            String[] categories = {"Hollywood", "Bollywood", "Korean", "Tollywood"};
-            Color[] colors = {COLOR_HOLLYWOOD, COLOR_BOLLYWOOD, COLOR_KOREAN, COLOR_TOLLYWOOD};
-
+            List<String> categories = analytics.categories();
             int startX = padding + 20;
             int maxBarHeight = height - padding - 60;
-            int gap = (width - (2 * padding) - (categories.length * barWidth)) / (categories.length - 1);
+            int gap = categories.size() < 2 ? 0 : (width - (2 * padding) - (categories.size() * barWidth)) / (categories.size() - 1);
             if (gap < 5) gap = 5;
 
-            for(int i=0; i<categories.length; i++) {
-                String cat = categories[i];
-                int value = prefs.getOrDefault(cat, 0);
-                int barHeight = (int) ((double)value / total * maxBarHeight);
+            for(int i=0; i<categories.size(); i++) {
+                String cat = categories.get(i);
+                double share = analytics.getShare(cat);
+                int barHeight = (int) (share * maxBarHeight);
                 int x = startX + (i * (barWidth + gap));
                 int y = height - padding - barHeight;
 
-                g2.setColor(colors[i]);
+                g2.setColor(getCategoryColor(cat));
                 g2.fillRect(x, y, barWidth, barHeight);
                 g2.setColor(Color.WHITE);
                 g2.drawRect(x, y, barWidth, barHeight);
 
-                int percentage = (int)((double)value / total * 100);
+                int percentage = (int) Math.round(share * 100);
                 g2.drawString(percentage + "%", x + 10, y - 5);
-                g2.setFont(new Font("Arial", Font.PLAIN, 11));
+                g2.setFont(CHART_LABEL_FONT);
                 g2.drawString(cat, x - 5, height - padding + 15);
-                g2.setFont(new Font("Arial", Font.BOLD, 14)); 
+                g2.setFont(CHART_TITLE_FONT); 
             }
             g2.setColor(Color.GRAY);
             g2.drawLine(padding, height - padding, width - padding, height - padding);
         }
     }
 
+    // Everything a graph frame draws is prepared up front: node discs and
+    // labels are cached images, strokes, fonts and composites are shared,
+    // the settled edge star lives in a VolatileImage, and layout steps only
+    // repaint the area they changed. A paint allocates nothing once warm.
     class AdvancedGraphPanel extends JPanel implements MouseListener, MouseMotionListener {
+        static final int NODE_SIZE = 40, CATEGORY_SIZE = 70, GLOW = 10, LABEL_GAP = 15;
+        static final int DIRTY_PAD = CATEGORY_SIZE / 2 + GLOW + LABEL_GAP + 20;  // disc, glow and label around a centre
+        final char[] GRAPH_TITLE = "Interactive Force Graph (Drag Nodes)".toCharArray();
+        final boolean edgeLayerEnabled = !Boolean.getBoolean("filmforge.noEdgeLayer");
+
         List<GraphNode> nodes = new ArrayList<>();
-        javax.swing.Timer timer;
-        GraphNode draggedNode = null;
+        ForceLayout layout;
+        int draggedNode = -1;
+
+        private final Map<Integer, Image> sprites = new HashMap<>();   // by colour and kind
+        private VolatileImage edgeLayer;
+        private long edgeLayerSeq = -1;
+        private final Rectangle clip = new Rectangle();
+        private final char[] status = new char[96];
+        private final long[] frameNanos = new long[512], sorted = new long[512];
+        private int frameCount;
+        private long p50, p95, p99;
+        private int labelAscent;
         
         public AdvancedGraphPanel() {
             addMouseListener(this);
             addMouseMotionListener(this);
-            timer = new javax.swing.Timer(16, e -> { updatePhysics(); repaint(); });
+            // The layout thread only runs while the panel is on screen
+            addHierarchyListener(e -> {
+                if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0 || layout == null) return;
+                layout.setPaused(!isShowing());
+            });
+            addComponentListener(new ComponentAdapter() {
+                @Override public void componentResized(ComponentEvent e) {
+                    if (layout != null) layout.setBounds(getWidth(), getHeight());
+                }
+            });
+        }
+
+        // Replaces the running layout with one over the current nodes
+        public void startSimulation() {
+            if (layout != null) layout.stop();
+            double[] xs = new double[nodes.size()], ys = new double[nodes.size()];
+            boolean[] anchored = new boolean[nodes.size()];
+            for (int i = 0; i < nodes.size(); i++) {
+                GraphNode n = nodes.get(i);
+                xs[i] = n.x; ys[i] = n.y; anchored[i] = n.isCategory;
+            }
+            draggedNode = -1;
+            layout = new ForceLayout(xs, ys, anchored, this::repaintChanged);
+            layout.setBounds(getWidth() > 0 ? getWidth() : 850, getHeight() > 0 ? getHeight() : 450);
+            layout.setPaused(!isShowing());
+        }
+
+        // Layout thread: repaint what the step moved plus the status line
+        private void repaintChanged(double minX, double minY, double maxX, double maxY) {
+            repaint(0, 0, 600, 44);
+            if (minX <= maxX) {
+                repaint((int) minX - DIRTY_PAD, (int) minY - DIRTY_PAD,
+                        (int) (maxX - minX) + 2 * DIRTY_PAD, (int) (maxY - minY) + 2 * DIRTY_PAD);
+            }
         }
 
-        public void startSimulation() { if(!timer.isRunning()) timer.start(); }
+        // Newest layout frame, or null while it does not match nodes yet
+        private ForceLayout.Frame frame() {
+            return layout != null && layout.size() == nodes.size() ? layout.frame() : null;
+        }
+
+        private int nodeAt(int px, int py) {
+            ForceLayout.Frame f = frame();
+            for (int i = 0; i < nodes.size(); i++) {
+                double dx = px - (f != null ? f.x[i] : nodes.get(i).x), dy = py - (f != null ? f.y[i] : nodes.get(i).y);
+                if (Math.sqrt(dx*dx + dy*dy) < 30) return i;
+            }
+            return -1;
+        }
 
         public void initMixedGraph(AnalyticsEngine analytics, Graph movieGraph) {
             nodes.clear();
@@ -459,18 +5662,16 @@ public class FilmForgeApp {
 
             if (totalInteractions == 0) return; 
 
-            int targetTotalNodes = 25; 
+            int targetTotalNodes = GRAPH_NODES; 
             Random rand = new Random();
-            String[] categories = {"Hollywood", "Bollywood", "Korean", "Tollywood"};
-
-            for (String cat : categories) {
-                int count = analytics.userPreferences.getOrDefault(cat, 0);
+            for (String cat : analytics.categories()) {
+                long count = analytics.getCount(cat);
                 if (count == 0) continue;
 
-                int numNodesForCat = (int) Math.round(((double)count / totalInteractions) * targetTotalNodes);
+                int numNodesForCat = (int) Math.round(analytics.getShare(cat) * targetTotalNodes);
                 if (numNodesForCat == 0 && count > 0) numNodesForCat = 1;
 
-                List<Movie> catMovies = movieGraph.getMovies(cat);
+                List<Movie> catMovies = movieGraph.getMovies(cat).copy();
                 Collections.shuffle(catMovies);
 
                 Color catColor = getCategoryColor(cat);
@@ -481,95 +5682,194 @@ public class FilmForgeApp {
                     double dist = 100 + rand.nextInt(80); 
                     double nx = centerX + Math.cos(angle) * dist;
                     double ny = centerY + Math.sin(angle) * dist;
-                    nodes.add(new GraphNode(nx, ny, m.title, false, m, catColor));
+                    nodes.add(new GraphNode(nx, ny, m.title(), false, m, catColor));
                 }
             }
+            for (int i = 0; i < nodes.size(); i++) prepare(nodes.get(i));
+            edgeLayerSeq = -1;
         }
 
-        private void updatePhysics() {
-            double repulsion = 4000; double springLength = 140; double springStrength = 0.05;
-            if(nodes.isEmpty()) return;
-            GraphNode centerNode = nodes.get(0);
-            for (int i = 0; i < nodes.size(); i++) {
-                GraphNode n1 = nodes.get(i);
-                if (n1 == draggedNode) continue; 
-                double fx = 0, fy = 0;
-                for (int j = 0; j < nodes.size(); j++) {
-                    if (i == j) continue;
-                    GraphNode n2 = nodes.get(j);
-                    double dx = n1.x - n2.x; double dy = n1.y - n2.y;
-                    double distSq = dx*dx + dy*dy; if(distSq < 1) distSq = 1;
-                    double force = repulsion / distSq;
-                    double dist = Math.sqrt(distSq);
-                    fx += (dx/dist) * force; fy += (dy/dist) * force;
-                }
-                if (!n1.isCategory) {
-                    double dx = centerNode.x - n1.x; double dy = centerNode.y - n1.y;
-                    double dist = Math.sqrt(dx*dx + dy*dy);
-                    double force = (dist - springLength) * springStrength;
-                    fx += (dx/dist) * force; fy += (dy/dist) * force;
-                } else {
-                    double dx = (getWidth()/2.0) - n1.x; double dy = (getHeight()/2.0) - n1.y;
-                    fx += dx * 0.05; fy += dy * 0.05;
+        // Renders the node's disc (shared per colour) and label once
+        private void prepare(GraphNode n) {
+            int size = n.isCategory ? CATEGORY_SIZE : NODE_SIZE;
+            n.sprite = sprites.computeIfAbsent(n.nodeColor.getRGB() * 2 + (n.isCategory ? 1 : 0), k -> {
+                int pad = n.isCategory ? GLOW : 0, w = size + 2 * pad + 2;
+                BufferedImage img = translucentImage(w, w);
+                Graphics2D g = img.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setColor(n.nodeColor);
+                if (n.isCategory) {
+                    g.setComposite(GLOW_COMPOSITE);
+                    g.fillOval(1, 1, size + 2 * pad, size + 2 * pad);
+                    g.setComposite(AlphaComposite.SrcOver);
                 }
-                n1.vx = (n1.vx + fx) * 0.90; n1.vy = (n1.vy + fy) * 0.90;
-                n1.x += n1.vx; n1.y += n1.vy;
-            }
+                g.fillOval(pad + 1, pad + 1, size, size);
+                g.setColor(Color.WHITE);
+                g.drawOval(pad + 1, pad + 1, size, size);
+                g.dispose();
+                return img;
+            });
+            String label = n.label.length() > 10 ? n.label.substring(0,8)+".." : n.label;
+            FontMetrics fm = getFontMetrics(GRAPH_FONT);
+            labelAscent = fm.getAscent();
+            BufferedImage img = translucentImage(Math.max(1, fm.stringWidth(label)), fm.getAscent() + fm.getDescent());
+            Graphics2D g = img.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(GRAPH_FONT);
+            g.setColor(Color.WHITE);
+            g.drawString(label, 0, fm.getAscent());
+            g.dispose();
+            n.labelImage = img;
+        }
+
+        private BufferedImage translucentImage(int w, int h) {
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            return gc != null ? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+                    : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
         }
 
+        // Every frame is timed, including the early return on an empty graph
         @Override
         protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D) g;
+            long start = System.nanoTime();
+            PerfEvents.GraphFrame event = PerfEvents.GRAPH_FRAME.isEnabled() ? new PerfEvents.GraphFrame() : null;
+            if (event != null) event.begin();
+            try {
+                paintGraph((Graphics2D) g);
+            } finally {
+                recordFrame(System.nanoTime() - start);
+                if (event != null && event.shouldCommit()) {
+                    event.nodes = nodes.size();
+                    event.commit();
+                }
+            }
+        }
+
+        private void paintGraph(Graphics2D g2) {
+            g2.getClipBounds(clip);
+            if (clip.isEmpty()) clip.setBounds(0, 0, getWidth(), getHeight());
+            g2.setColor(getBackground());       // what super.paintComponent does, minus its garbage
+            g2.fillRect(clip.x, clip.y, clip.width, clip.height);
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             if(nodes.isEmpty()) return;
-            g2.setStroke(new BasicStroke(2));
-            g2.setColor(new Color(100, 100, 100));
-            GraphNode center = nodes.get(0);
-            for(int i=1; i<nodes.size(); i++) {
+            ForceLayout.Frame f = frame();
+
+            if (f != null && f.settled && edgeLayerEnabled && !GraphicsEnvironment.isHeadless()) paintEdgeLayer(g2, f);
+            else paintEdges(g2, f);
+
+            for (int i = 0; i < nodes.size(); i++) {
                 GraphNode n = nodes.get(i);
-                g2.drawLine((int)center.x, (int)center.y, (int)n.x, (int)n.y);
-            }
-            for(GraphNode n : nodes) {
-                int size = n.isCategory ? 70 : 40; 
-                int off = size / 2;
-                
-                g2.setColor(n.nodeColor);
-                
-                if(n.isCategory) {
-                    g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
-                    g2.fillOval((int)n.x - off - 10, (int)n.y - off - 10, size + 20, size + 20);
-                    g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
-                }
-                
-                g2.fillOval((int)n.x - off, (int)n.y - off, size, size);
-                g2.setColor(Color.WHITE);
-                g2.drawOval((int)n.x - off, (int)n.y - off, size, size);
-                g2.setColor(Color.WHITE);
-                g2.setFont(new Font("Arial", Font.BOLD, 12));
-                String label = n.label.length() > 10 ? n.label.substring(0,8)+".." : n.label;
-                int strW = g2.getFontMetrics().stringWidth(label);
-                g2.drawString(label, (int)n.x - strW/2, (int)n.y + size/2 + 15);
+                int nx = (int) (f != null ? f.x[i] : n.x), ny = (int) (f != null ? f.y[i] : n.y);
+                if (nx + DIRTY_PAD < clip.x || nx - DIRTY_PAD > clip.x + clip.width
+                        || ny + DIRTY_PAD < clip.y || ny - DIRTY_PAD > clip.y + clip.height) continue;
+                int sw = n.sprite.getWidth(null), lw = n.labelImage.getWidth(null);
+                int size = n.isCategory ? CATEGORY_SIZE : NODE_SIZE;
+                g2.drawImage(n.sprite, nx - sw / 2, ny - sw / 2, null);
+                g2.drawImage(n.labelImage, nx - lw / 2, ny + size / 2 + LABEL_GAP - labelAscent, null);
             }
+            g2.setFont(GRAPH_FONT);
             g2.setColor(Color.YELLOW);
-            g2.drawString("Interactive Force Graph (Drag Nodes)", 20, 20);
+            g2.drawChars(GRAPH_TITLE, 0, GRAPH_TITLE.length, 20, 20);   // drawString builds glyph objects per call
+            if (f != null) {
+                g2.setColor(Color.GRAY);
+                g2.drawChars(status, 0, formatStatus(f), 20, 36);
+            }
         }
 
-        @Override public void mousePressed(MouseEvent e) {
-            for(GraphNode n : nodes) {
-                double dx = e.getX() - n.x; double dy = e.getY() - n.y;
-                if(Math.sqrt(dx*dx + dy*dy) < 30) { draggedNode = n; break; }
+        private void paintEdges(Graphics2D g2, ForceLayout.Frame f) {
+            g2.setStroke(EDGE_STROKE);
+            g2.setColor(EDGE_COLOR);
+            int cx = (int) (f != null ? f.x[0] : nodes.get(0).x), cy = (int) (f != null ? f.y[0] : nodes.get(0).y);
+            for(int i=1; i<nodes.size(); i++) {
+                g2.drawLine(cx, cy, (int) (f != null ? f.x[i] : nodes.get(i).x), (int) (f != null ? f.y[i] : nodes.get(i).y));
             }
         }
+
+        // Settled edges are drawn once into video memory and blitted after
+        private void paintEdgeLayer(Graphics2D g2, ForceLayout.Frame f) {
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            do {
+                if (edgeLayer == null || edgeLayer.getWidth() != getWidth() || edgeLayer.getHeight() != getHeight()
+                        || edgeLayer.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    if (edgeLayer != null) edgeLayer.flush();
+                    edgeLayer = gc.createCompatibleVolatileImage(getWidth(), getHeight(), Transparency.TRANSLUCENT);
+                    edgeLayerSeq = -1;
+                }
+                if (edgeLayer.validate(gc) == VolatileImage.IMAGE_RESTORED || edgeLayerSeq != f.seq) {
+                    Graphics2D lg = edgeLayer.createGraphics();
+                    lg.setComposite(AlphaComposite.Clear);
+                    lg.fillRect(0, 0, getWidth(), getHeight());
+                    lg.setComposite(AlphaComposite.SrcOver);
+                    lg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    paintEdges(lg, f);
+                    lg.dispose();
+                    edgeLayerSeq = f.seq;
+                }
+                g2.drawImage(edgeLayer, 0, 0, null);
+            } while (edgeLayer.contentsLost());
+        }
+
+        // "<n> nodes, step <ms> ms, frame p50/p95/p99 <ms>" into status
+        private int formatStatus(ForceLayout.Frame f) {
+            int p = putInt(status, 0, nodes.size());
+            p = putText(status, p, " nodes, step ");
+            p = putMillis(status, p, f.stepNanos);
+            p = putText(status, p, " ms, paint p50/p95/p99 ");
+            p = putMillis(status, p, p50);
+            status[p++] = '/';
+            p = putMillis(status, p, p95);
+            status[p++] = '/';
+            p = putMillis(status, p, p99);
+            p = putText(status, p, " ms");
+            if (f.settled) p = putText(status, p, " (settled)");
+            return p;
+        }
+
+        private int putText(char[] buf, int p, String s) {
+            s.getChars(0, s.length(), buf, p);
+            return p + s.length();
+        }
+
+        private int putInt(char[] buf, int p, long v) {
+            int start = p;
+            do { buf[p++] = (char) ('0' + v % 10); v /= 10; } while (v > 0);
+            for (int a = start, b = p - 1; a < b; a++, b--) { char c = buf[a]; buf[a] = buf[b]; buf[b] = c; }
+            return p;
+        }
+
+        private int putMillis(char[] buf, int p, long nanos) {
+            long hundredths = (nanos + 5_000) / 10_000;
+            p = putInt(buf, p, hundredths / 100);
+            buf[p++] = '.';
+            buf[p++] = (char) ('0' + hundredths / 10 % 10);
+            buf[p++] = (char) ('0' + hundredths % 10);
+            return p;
+        }
+
+        // Paint times go into a ring; percentiles are refreshed every 64 frames
+        private void recordFrame(long nanos) {
+            GRAPH_PAINT.record(nanos);
+            frameNanos[frameCount++ % frameNanos.length] = nanos;
+            if ((frameCount & 63) != 0) return;
+            int n = Math.min(frameCount, frameNanos.length);
+            System.arraycopy(frameNanos, 0, sorted, 0, n);
+            Arrays.sort(sorted, 0, n);
+            p50 = sorted[n / 2];
+            p95 = sorted[Math.min(n - 1, n * 95 / 100)];
+            p99 = sorted[Math.min(n - 1, n * 99 / 100)];
+        }
+
+        @Override public void mousePressed(MouseEvent e) { draggedNode = layout != null ? nodeAt(e.getX(), e.getY()) : -1; }
         @Override public void mouseDragged(MouseEvent e) {
-            if(draggedNode != null) { draggedNode.x = e.getX(); draggedNode.y = e.getY(); draggedNode.vx = 0; draggedNode.vy = 0; }
+            if(draggedNode >= 0) layout.drag(draggedNode, e.getX(), e.getY());
+        }
+        @Override public void mouseReleased(MouseEvent e) {
+            if(draggedNode >= 0) layout.release();
+            draggedNode = -1;
         }
-        @Override public void mouseReleased(MouseEvent e) { draggedNode = null; }
         @Override public void mouseClicked(MouseEvent e) {
-            for(GraphNode n : nodes) {
-                double dx = e.getX() - n.x; double dy = e.getY() - n.y;
-                if(Math.sqrt(dx*dx + dy*dy) < 30) { if(!n.isCategory && n.movieData != null) playMovie(n.movieData); break; }
-            }
+            int i = nodeAt(e.getX(), e.getY());
+            if(i >= 0) { GraphNode n = nodes.get(i); if(!n.isCategory && n.movieData != null) playMovie(n.movieData); }
         }
         @Override public void mouseEntered(MouseEvent e) {}
         @Override public void mouseExited(MouseEvent e) {}
@@ -586,162 +5886,462 @@ public class FilmForgeApp {
         top.add(lbl); top.add(box);
         JPanel res = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
         res.setBackground(BG);
-        box.addKeyListener(new KeyAdapter() {
-            public void keyReleased(KeyEvent e) {
-                res.removeAll();
-                List<String> hits = trie.search(box.getText());
-                for(String t : hits) {
-                    Movie m = graph.findMovie(t);
-                    if(m!=null) addCard(res, m, "ADD");
-                }
-                res.revalidate();
-                res.repaint();
-            }
+        Map<Movie, MovieCard> shown = new HashMap<>();
+        javax.swing.Timer debounce = new javax.swing.Timer(SEARCH_DEBOUNCE_MS,
+                e -> search.submit(box.getText(), hits -> applySearchResults(res, shown, hits)));
+        debounce.setRepeats(false);
+        box.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { debounce.restart(); }
+            public void removeUpdate(DocumentEvent e) { debounce.restart(); }
+            public void changedUpdate(DocumentEvent e) { }
         });
         p.add(top, BorderLayout.NORTH);
-        p.add(new JScrollPane(res), BorderLayout.CENTER);
+        JScrollPane scroll = new JScrollPane(res);
+        trackViewport(scroll);
+        p.add(scroll, BorderLayout.CENTER);
+        return p;
+    }
+
+    // Brings the result panel in line with hits, keeping the cards of movies
+    // that are still listed (and their posters) instead of rebuilding them.
+    private void applySearchResults(JPanel res, Map<Movie, MovieCard> shown, List<Movie> hits) {
+        Set<Movie> keep = new HashSet<>(hits);
+        boolean changed = false;
+        for (Iterator<Map.Entry<Movie, MovieCard>> it = shown.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Movie, MovieCard> e = it.next();
+            if (keep.contains(e.getKey())) continue;
+            res.remove(e.getValue());
+            it.remove();
+            changed = true;
+        }
+        for (int i = 0; i < hits.size(); i++) {
+            MovieCard card = shown.get(hits.get(i));
+            if (card == null) {
+                card = createCard(hits.get(i), "ADD");
+                shown.put(hits.get(i), card);
+                res.add(card, i);
+                changed = true;
+            } else if (res.getComponent(i) != card) {
+                res.setComponentZOrder(card, i);
+                changed = true;
+            }
+        }
+        if (changed) {
+            res.revalidate();
+            res.repaint();
+        }
+    }
+
+    // Category, rating-range and sort facets over the whole catalog. The
+    // grid is handed the lazy result list itself, so only the rows that
+    // scroll into view are ever ordered.
+    static final String[][] BROWSE_SORTS = {
+            {"Top rated", "-rating,title"}, {"Lowest rated", "rating,title"},
+            {"Title A-Z", "title,-rating"}, {"Title Z-A", "-title,-rating"},
+            {"Category, then rating", "category,-rating"}, {"Category, then title", "category,title"},
+            {"Catalog order", ""}};
+
+    private JComponent createBrowseTab() {
+        JPanel p = new JPanel(new BorderLayout());
+        p.setBackground(BG);
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 6));
+        top.setBackground(BG);
+        browseMin = new JSpinner(new SpinnerNumberModel(0.0, 0.0, 10.0, 0.5));
+        browseMax = new JSpinner(new SpinnerNumberModel(10.0, 0.0, 10.0, 0.5));
+        browseSort = new JComboBox<>();
+        for (String[] s : BROWSE_SORTS) browseSort.addItem(s[0]);
+        browseCount = new JLabel();
+        browseCount.setForeground(Color.LIGHT_GRAY);
+        for (JComponent c : new JComponent[] {browseLabel("Rating"), browseMin, browseLabel("to"), browseMax,
+                browseLabel("Sort"), browseSort, browseCount}) {
+            top.add(c);
+        }
+        browseCategoryList = new JList<>(browseCategories);
+        browseCategoryList.setBackground(ITEM_BG);
+        browseCategoryList.setForeground(Color.WHITE);
+        browseCategoryList.setToolTipText("No selection shows every category");
+        JScrollPane cats = new JScrollPane(browseCategoryList);
+        cats.setPreferredSize(new Dimension(160, 0));
+        cats.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEmptyBorder(), "Categories",
+                javax.swing.border.TitledBorder.LEFT, javax.swing.border.TitledBorder.TOP, null, Color.WHITE));
+        cats.setBackground(BG);
+
+        ChangeListener rerun = e -> { if (!browseUpdating) runBrowse(); };
+        browseMin.addChangeListener(rerun);
+        browseMax.addChangeListener(rerun);
+        browseSort.addActionListener(e -> { if (!browseUpdating) runBrowse(); });
+        browseCategoryList.addListSelectionListener(e -> { if (!e.getValueIsAdjusting() && !browseUpdating) runBrowse(); });
+
+        browseGrid = new CardGridView("ADD");
+        JScrollPane scroll = new JScrollPane(browseGrid);
+        scroll.getVerticalScrollBar().setUnitIncrement(20);
+        scroll.setBorder(null);
+        scroll.getViewport().setBackground(BG);
+        trackViewport(scroll);
+        p.add(top, BorderLayout.NORTH);
+        p.add(cats, BorderLayout.WEST);
+        p.add(scroll, BorderLayout.CENTER);
         return p;
     }
 
+    private JLabel browseLabel(String text) {
+        JLabel l = new JLabel(text);
+        l.setForeground(Color.WHITE);
+        return l;
+    }
+
+    // The query runs off the EDT (the first one after a load may have to
+    // build the index); only the newest query's result is shown
+    private void runBrowse() {
+        browseStale = false;
+        FacetIndex.Query q = new FacetIndex.Query()
+                .rating((Double) browseMin.getValue(), (Double) browseMax.getValue())
+                .orderBy(BROWSE_SORTS[browseSort.getSelectedIndex()][1]);
+        for (String c : browseCategoryList.getSelectedValuesList()) q.category(c);
+        long gen = browseGeneration.incrementAndGet();
+        CompletableFuture.runAsync(() -> {
+            FacetIndex.Result result = service.browse(q);
+            List<String> names = new ArrayList<>(service.facets().categories());
+            SwingUtilities.invokeLater(() -> {
+                if (browseGeneration.get() != gen) return;
+                if (!names.equals(Collections.list(browseCategories.elements()))) {
+                    List<String> selected = browseCategoryList.getSelectedValuesList();
+                    browseUpdating = true;
+                    browseCategories.clear();
+                    names.forEach(browseCategories::addElement);
+                    for (String c : selected) {
+                        int i = names.indexOf(c);
+                        if (i >= 0) browseCategoryList.addSelectionInterval(i, i);
+                    }
+                    browseUpdating = false;
+                }
+                browseCount.setText(String.format("%,d titles", result.size()));
+                browseGrid.setMovies(result);
+                browseGrid.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+            });
+        }, ForkJoinPool.commonPool());
+    }
+
     private JComponent createWatchTab() {
-        watchlistPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
-        watchlistPanel.setBackground(BG);
-        return new JScrollPane(watchlistPanel);
+        watchGrid = new CardGridView("REMOVE");
+        JScrollPane scroll = new JScrollPane(watchGrid);
+        scroll.getViewport().setBackground(BG);
+        trackViewport(scroll);
+        return scroll;
     }
     
     private void refreshWatchlist() {
-        watchlistPanel.removeAll();
-        for(Movie m : myWatchList) {
-            addCard(watchlistPanel, m, "REMOVE");
-        }
-        watchlistPanel.revalidate();
-        watchlistPanel.repaint();
+        watchGrid.setMovies(userState.watchlist());
         if(barChartPanel != null) barChartPanel.repaint();
     }
 
+    private void addToWatchlist(Movie m) {
+        if(userState.addToWatchlist(m)) {
+            service.watched(m, Recommender.WATCHLIST);
+            ui.markDirty(HOME, WATCHLIST, RECOMMENDATIONS);
+            JOptionPane.showMessageDialog(frame, m.title() + " added to Watchlist!");
+        }
+    }
+
+    private void removeFromWatchlist(Movie m) {
+        if (userState.removeFromWatchlist(m)) ui.markDirty(WATCHLIST, RECOMMENDATIONS);
+    }
+
     private JComponent createHistoryTab() {
-        historyPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
-        historyPanel.setBackground(BG);
-        return new JScrollPane(historyPanel);
+        historyGrid = new CardGridView("NONE");
+        JScrollPane scroll = new JScrollPane(historyGrid);
+        scroll.getViewport().setBackground(BG);
+        trackViewport(scroll);
+        return scroll;
     }
 
     private void refreshHistory() {
-        historyPanel.removeAll();
-        for(Movie m : myHistory) {
-            addCard(historyPanel, m, "NONE"); 
-        }
-        historyPanel.revalidate();
-        historyPanel.repaint();
-    }
-
-    private void addCard(JPanel parent, Movie m, String buttonType) {
-        JPanel card = new JPanel(new BorderLayout());
-        card.setPreferredSize(new Dimension(140, 240));
-        card.setBackground(ITEM_BG);
-        card.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-        card.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-        card.addMouseListener(new MouseAdapter() { public void mouseClicked(MouseEvent e) { playMovie(m); } });
-
-        JLabel img = new JLabel("Loading...", SwingConstants.CENTER);
-        img.setForeground(Color.GRAY);
-        ImageLoader.load(m.imageUrl, m.title, img);
-
-        JPanel info = new JPanel(new BorderLayout());
-        info.setBackground(ITEM_BG);
-        JLabel title = new JLabel("<html><center>"+m.title+"</center></html>", SwingConstants.CENTER);
-        title.setForeground(Color.WHITE);
-        title.setFont(new Font("SansSerif", Font.PLAIN, 11));
-        info.add(title, BorderLayout.CENTER);
-
-        if (buttonType.equals("ADD")) {
-            JButton btn = new JButton("Add +");
-            btn.setBackground(ACCENT);
-            btn.setForeground(Color.WHITE);
-            btn.setFont(new Font("SansSerif", Font.BOLD, 10));
-            btn.setFocusPainted(false);
-            btn.addMouseListener(new MouseAdapter() { public void mouseClicked(MouseEvent e) { e.consume(); } });
-            btn.addActionListener(e -> {
-                if(!myWatchList.contains(m)) {
-                    myWatchList.add(m);
-                    analytics.logAction(m.category); 
-                    refreshWatchlist();
-                    JOptionPane.showMessageDialog(frame, m.title + " added to Watchlist!");
+        historyGrid.setMovies(userState.history());
+    }
+
+    private MovieCard createCard(Movie m, String buttonType) {
+        MovieCard card = new MovieCard(buttonType);
+        card.bind(m);
+        return card;
+    }
+
+    // One poster card. Fonts and listeners are shared by every card, and a
+    // card can be rebound to another movie instead of being rebuilt.
+    class MovieCard extends JPanel {
+        final String buttonType;
+        final JLabel img = new JLabel("Loading...", SwingConstants.CENTER);
+        final JLabel title = new JLabel("", SwingConstants.CENTER);
+        Movie movie;
+
+        MovieCard(String buttonType) {
+            super(new BorderLayout());
+            this.buttonType = buttonType;
+            setPreferredSize(new Dimension(CARD_W, CARD_H));
+            setBackground(ITEM_BG);
+            setBorder(CARD_BORDER);
+            setCursor(HAND);
+            addMouseListener(cardClick);
+
+            img.setForeground(Color.GRAY);
+            JPanel info = new JPanel(new BorderLayout());
+            info.setBackground(ITEM_BG);
+            title.setForeground(Color.WHITE);
+            title.setFont(CARD_TITLE_FONT);
+            info.add(title, BorderLayout.CENTER);
+
+            if (buttonType.equals("ADD") || buttonType.equals("REMOVE")) {
+                boolean add = buttonType.equals("ADD");
+                JButton btn = new JButton(add ? "Add +" : "Remove");
+                btn.setBackground(add ? ACCENT : Color.DARK_GRAY);
+                btn.setForeground(Color.WHITE);
+                btn.setFont(CARD_BUTTON_FONT);
+                btn.setFocusPainted(false);
+                btn.addMouseListener(consumeClick);
+                btn.addActionListener(cardButton);
+                info.add(btn, BorderLayout.SOUTH);
+            }
+
+            add(img, BorderLayout.CENTER);
+            add(info, BorderLayout.SOUTH);
+        }
+
+        // A spare card coming back to the movie it last showed skips the text
+        // but asks for the poster again if it never arrived: parking the
+        // card released that load
+        void bind(Movie m) {
+            if (!m.equals(movie)) {
+                movie = m;
+                title.setText("<html><center>" + m.title() + "</center></html>");
+            } else if (img.getIcon() != null) {
+                return;
+            }
+            ImageLoader.load(m.imageUrl(), m.title(), img);
+        }
+    }
+
+    private final MouseListener cardClick = new MouseAdapter() {
+        public void mouseClicked(MouseEvent e) { playMovie(((MovieCard) e.getComponent()).movie); }
+    };
+    private final MouseListener consumeClick = new MouseAdapter() {
+        public void mouseClicked(MouseEvent e) { e.consume(); }
+    };
+    private final ActionListener cardButton = e -> {
+        MovieCard card = (MovieCard) SwingUtilities.getAncestorOfClass(MovieCard.class, (Component) e.getSource());
+        if (card.buttonType.equals("ADD")) addToWatchlist(card.movie);
+        else removeFromWatchlist(card.movie);
+    };
+
+    // Where a card sits in a CardGridView: which section, showing which movie
+    static final class Slot {
+        final int section;
+        final Movie movie;
+        Slot(int section, Movie movie) { this.section = section; this.movie = movie; }
+        @Override public boolean equals(Object o) {
+            return o instanceof Slot && ((Slot) o).section == section && ((Slot) o).movie.equals(movie);
+        }
+        @Override public int hashCode() { return section * 31 + movie.hashCode(); }
+    }
+
+    static class Section {
+        final String title;
+        final Color color;
+        final List<Movie> movies;
+        Section(String title, Color color, List<Movie> movies) {
+            this.title = title;
+            this.color = color;
+            this.movies = movies;
+        }
+    }
+
+    // Scrolling grid of sections (optional header + cards) that only holds
+    // components for the rows in view, plus one row either side. Cards that
+    // scroll out are rebound to what scrolls in, so component count and
+    // layout cost follow the viewport, not the catalog.
+    class CardGridView extends JComponent implements Scrollable {
+        final String buttonType;
+        private List<Section> sections = new ArrayList<>();
+        private final Map<Slot, MovieCard> active = new HashMap<>();
+        long binds, moves;  // cards given a new movie vs. cards that kept theirs and only moved
+        private final ArrayDeque<MovieCard> spare = new ArrayDeque<>();
+        private int[] headerY = new int[0], cardsY = new int[0];
+        private int cols = 1, totalHeight = 0, reportedHeight = -1;
+        private final ChangeListener onScroll = e -> layoutCards();
+
+        CardGridView(String buttonType) {
+            this.buttonType = buttonType;
+            setOpaque(true);
+            setBackground(BG);
+        }
+
+        void setMovies(List<Movie> movies) { setSections(List.of(new Section(null, null, movies))); }
+
+        void setSections(List<Section> s) {
+            sections = new ArrayList<>(s);
+            revalidate();
+            layoutCards();
+            repaint();
+        }
+
+        private void measure() {
+            int w = getWidth() > 0 ? getWidth() : getParent() != null ? getParent().getWidth() : 0;
+            cols = Math.max(1, (w - 2 * GRID_PAD + GRID_GAP) / (CARD_W + GRID_GAP));
+            headerY = new int[sections.size()];
+            cardsY = new int[sections.size()];
+            int y = GRID_PAD;
+            for (int s = 0; s < sections.size(); s++) {
+                Section sec = sections.get(s);
+                headerY[s] = y;
+                if (sec.title != null) y += HEADER_H;
+                cardsY[s] = y;
+                int rows = (sec.movies.size() + cols - 1) / cols;
+                y += rows * (CARD_H + GRID_GAP);
+            }
+            totalHeight = y + GRID_PAD;
+        }
+
+        // Height depends on width, so a resize that changes the column count
+        // has to go back through the viewport
+        @Override public void doLayout() {
+            layoutCards();
+            if (totalHeight != reportedHeight) revalidate();
+        }
+
+        void layoutCards() {
+            PerfEvents.CardLayout event = new PerfEvents.CardLayout();
+            event.begin();
+            long start = System.nanoTime(), bound = binds, moved = moves;
+            placeCards();
+            CARDS_BOUND.add(binds - bound);
+            CARDS_MOVED.add(moves - moved);
+            CARD_LAYOUT.record(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.view = buttonType;
+                event.binds = (int) (binds - bound);
+                event.moves = (int) (moves - moved);
+                event.commit();
+            }
+        }
+
+        private void placeCards() {
+            measure();
+            Rectangle view = getVisibleRect();
+            int rowH = CARD_H + GRID_GAP;
+            int top = view.y - rowH, bottom = view.y + view.height + rowH;
+
+            // Cards are keyed by (section, movie), so a movie that shifted
+            // position keeps its card and poster and is only moved
+            Map<Slot, MovieCard> keep = new HashMap<>();
+            Map<Slot, Integer> index = new HashMap<>();
+            List<Slot> needed = new ArrayList<>();
+            for (int s = 0; s < sections.size(); s++) {
+                List<Movie> ms = sections.get(s).movies;
+                if (ms.isEmpty() || view.height == 0) continue;
+                int rows = (ms.size() + cols - 1) / cols;
+                int first = Math.max(0, (top - cardsY[s]) / rowH), last = Math.min(rows - 1, (bottom - cardsY[s]) / rowH);
+                for (int i = first * cols, end = Math.min(ms.size(), (last + 1) * cols); i < end; i++) {
+                    Slot key = new Slot(s, ms.get(i));
+                    if (index.putIfAbsent(key, i) != null) continue;   // listed twice: show it once
+                    MovieCard card = active.remove(key);
+                    if (card != null) keep.put(key, card);
+                    else needed.add(key);
                 }
-            });
-            info.add(btn, BorderLayout.SOUTH);
-        } 
-        else if (buttonType.equals("REMOVE")) {
-            JButton btn = new JButton("Remove");
-            btn.setBackground(Color.DARK_GRAY);
-            btn.setForeground(Color.WHITE);
-            btn.setFont(new Font("SansSerif", Font.BOLD, 10));
-            btn.setFocusPainted(false);
-            btn.addMouseListener(new MouseAdapter() { public void mouseClicked(MouseEvent e) { e.consume(); } });
-            btn.addActionListener(e -> {
-                myWatchList.remove(m);
-                refreshWatchlist(); 
-            });
-            info.add(btn, BorderLayout.SOUTH);
+            }
+            for (MovieCard card : active.values()) {
+                card.setVisible(false);
+                ImageLoader.release(card.img);
+                spare.push(card);
+            }
+            active.clear();
+            active.putAll(keep);
+            for (Slot key : needed) {
+                MovieCard card = spare.isEmpty() ? null : spare.pop();
+                if (card == null) {
+                    card = new MovieCard(buttonType);
+                    add(card);
+                }
+                card.bind(key.movie);
+                card.setVisible(true);
+                active.put(key, card);
+                binds++;
+            }
+            for (Map.Entry<Slot, MovieCard> e : active.entrySet()) {
+                int s = e.getKey().section, i = index.get(e.getKey());
+                MovieCard card = e.getValue();
+                int x = GRID_PAD + (i % cols) * (CARD_W + GRID_GAP), y = cardsY[s] + (i / cols) * rowH;
+                boolean kept = keep.containsKey(e.getKey());
+                if (kept && card.getX() == x && card.getY() == y && card.getWidth() == CARD_W) continue;
+                if (kept) moves++;
+                card.setBounds(x, y, CARD_W, CARD_H);
+                card.validate();
+            }
+        }
+
+        @Override public void addNotify() {
+            super.addNotify();
+            if (getParent() instanceof JViewport) ((JViewport) getParent()).addChangeListener(onScroll);
+        }
+
+        @Override public void removeNotify() {
+            if (getParent() instanceof JViewport) ((JViewport) getParent()).removeChangeListener(onScroll);
+            super.removeNotify();
+        }
+
+        @Override public Dimension getPreferredSize() {
+            measure();
+            reportedHeight = totalHeight;
+            return new Dimension(2 * GRID_PAD + cols * (CARD_W + GRID_GAP) - GRID_GAP, totalHeight);
+        }
+
+        @Override protected void paintComponent(Graphics g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            g.setFont(HEADER_FONT);
+            for (int s = 0; s < sections.size() && s < headerY.length; s++) {
+                Section sec = sections.get(s);
+                if (sec.title == null) continue;
+                g.setColor(sec.color != null ? sec.color : Color.WHITE);
+                g.drawString(sec.title, GRID_PAD, headerY[s] + HEADER_H - 16);
+            }
         }
 
-        card.add(img, BorderLayout.CENTER);
-        card.add(info, BorderLayout.SOUTH);
-        parent.add(card);
+        public Dimension getPreferredScrollableViewportSize() { return getPreferredSize(); }
+        public int getScrollableUnitIncrement(Rectangle r, int o, int d) { return 20; }
+        public int getScrollableBlockIncrement(Rectangle r, int o, int d) { return o == SwingConstants.VERTICAL ? r.height : r.width; }
+        public boolean getScrollableTracksViewportWidth() { return true; }
+        public boolean getScrollableTracksViewportHeight() { return false; }
     }
 
     private void loadData() {
-        addM("Inception", "Hollywood", 8.8, "https://m.media-amazon.com/images/M/MV5BMjAxMzY3NjcxNF5BMl5BanBnXkFtZTcwNTI5OTM0Mw@@._V1_.jpg");
-        addM("The Dark Knight", "Hollywood", 9.0, "https://m.media-amazon.com/images/M/MV5BMTMxNTMwODM0NF5BMl5BanBnXkFtZTcwODAyMTk2Mw@@._V1_.jpg");
-        addM("Interstellar", "Hollywood", 8.6, "https://m.media-amazon.com/images/M/MV5BZjdkOTU3MDktN2IxOS00OGEyLWFmMjktY2FiMmZkNWIyODZiXkEyXkFqcGdeQXVyMTMxODk2OTU@._V1_.jpg");
-        addM("Avengers Endgame", "Hollywood", 8.4, "https://m.media-amazon.com/images/M/MV5BMTc5MDE2ODcwNV5BMl5BanBnXkFtZTgwMzI2NzQ2NzM@._V1_.jpg");
-        addM("Spider-Man NWH", "Hollywood", 8.2, "https://m.media-amazon.com/images/M/MV5BZWMyYzFjYTYtNTRjYi00OGExLWE2YzgtOGRmYjAxZTU3NzBiXkEyXkFqcGdeQXVyMzQ0MzA0NTM@._V1_.jpg");
-        addM("Avatar", "Hollywood", 7.8, "https://m.media-amazon.com/images/M/MV5BZDA0OGQxNTItMDZkMC00N2UyLTg3MzMtYTJmNjg3Nzk5MzRiXkEyXkFqcGdeQXVyMjUzOTY1NTc@._V1_.jpg");
-        addM("Titanic", "Hollywood", 7.9, "https://m.media-amazon.com/images/M/MV5BMDdmZGU3NDQtY2E5My00ZTliLWIzOTUtMTY4ZGI1YjdiNjk3XkEyXkFqcGdeQXVyNTA4NzY1MzY@._V1_.jpg");
-        addM("Joker", "Hollywood", 8.1, "https://m.media-amazon.com/images/M/MV5BNGVjNWI4ZGUtNzE0MS00ZmJmLTljNzgtNDIyNjTkZmYyN2NmXkEyXkFqcGdeQXVyMDM2NDM2MQ@@._V1_.jpg");
-        addM("Iron Man", "Hollywood", 7.9, "https://m.media-amazon.com/images/M/MV5BMTczNTI2ODUwOF5BMl5BanBnXkFtZTcwMTU0NTIzMw@@._V1_.jpg");
-        addM("The Matrix", "Hollywood", 8.7, "https://m.media-amazon.com/images/M/MV5BNzQzOTk3OTAtNDQ0Zi00ZTVkLWI0MTEtMDllZjNkYzNjNTc4L2ltYWdlXkEyXkFqcGdeQXVyNjU0OTQ0OTY@._V1_.jpg");
-
-        addM("3 Idiots", "Bollywood", 8.4, "https://m.media-amazon.com/images/M/MV5BNTkyOGVjMGEtNmQzZi00NzFlLTlhOWQtODYyMDc2ZGJmYzFhXkEyXkFqcGdeQXVyNjU0OTQ0OTY@._V1_.jpg");
-        addM("Dangal", "Bollywood", 8.3, "https://m.media-amazon.com/images/M/MV5BMTQ4MzQzMzM2Nl5BMl5BanBnXkFtZTgwMTQ1NzU3MDI@._V1_.jpg");
-        addM("Pathaan", "Bollywood", 7.0, "https://m.media-amazon.com/images/M/MV5BM2QzM2JiNTMtYjU4Ny00MDZkLTk3MmUtYTRjMzVkZGJlNmYyXkEyXkFqcGdeQXVyMTE0MzY0NjE1._V1_.jpg");
-        addM("Jawan", "Bollywood", 7.2, "https://m.media-amazon.com/images/M/MV5BMmJlNTBmZDYtNzBjZi00MnlleLWJmMjktNWNiODAxNzdlOTYxXkEyXkFqcGdeQXVyMTE0MzY0NjE1._V1_.jpg");
-        addM("PK", "Bollywood", 8.1, "https://m.media-amazon.com/images/M/MV5BMTYzOTE2NjkxN15BMl5BanBnXkFtZTgwMDgzMTg0MzE@._V1_.jpg");
-        addM("Sholay", "Bollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BNjFkMzA2MjItZTM4MC00MjM2LWI3YzYtMTAzZDI2NTA3ZTA5XkEyXkFqcGdeQXVyODE5NzE3OTE@._V1_.jpg"); 
-        addM("Bajrangi Bhaijaan", "Bollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BMTY0MzI3Mzg1MF5BMl5BanBnXkFtZTgwOTMzMDYwNTE@._V1_.jpg"); 
-        addM("Lagaan", "Bollywood", 8.1, "https://m.media-amazon.com/images/M/MV5BNDYxNWUzZmYtOGQxMC00MTdkLTkxOTctYzkyOGIwNWQxZjhmXkEyXkFqcGdeQXVyNjU0OTQ0OTY@._V1_.jpg"); 
-        addM("DDLJ", "Bollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BMjY4ODkzNjE0OV5BMl5BanBnXkFtZTgwMTc0NTMwMDI@._V1_.jpg");
-        addM("Drishyam", "Bollywood", 8.2, "https://m.media-amazon.com/images/M/MV5BYmJhZmJlYTItZmZlNy00MGY0LTg0ZGMtNWFkYWU5N2Y1YjdmXkEyXkFqcGdeQXVyMTEzNzg0Mjkx._V1_.jpg"); 
-
-        addM("Parasite", "Korean", 8.5, "https://m.media-amazon.com/images/M/MV5BYWZjMjk3ZTItODQ2ZC00NTY5LWE0ZDYtZTI3MjcwN2Q5NTVkXkEyXkFqcGdeQXVyODk4OTc3MTY@._V1_.jpg");
-        addM("Train to Busan", "Korean", 7.6, "https://m.media-amazon.com/images/M/MV5BMTkwOTQ4OTg0OV5BMl5BanBnXkFtZTgwMzQyOTM0OTE@._V1_.jpg");
-        addM("Oldboy", "Korean", 8.4, "https://m.media-amazon.com/images/M/MV5BMTI3NTQyMzU5M15BMl5BanBnXkFtZTcwMTM2MjgyMQ@@._V1_.jpg"); 
-        addM("Squid Game", "Korean", 8.0, "https://m.media-amazon.com/images/M/MV5BYWE3MDVkN2EtNjQ5MS00ZDQ4LTliNzYtMjc2YWMzODA1YmI1XkEyXkFqcGdeQXVyODk4OTc3MTY@._V1_.jpg"); 
-        addM("Minari", "Korean", 7.5, "https://m.media-amazon.com/images/M/MV5BNjRkZjJiYWQtMTZmYS00ZmJjLWExMGMtYmNlYzhlNTQ5ZGPTXkEyXkFqcGdeQXVyODc0OTEyNDU@._V1_.jpg"); 
-        addM("The Host", "Korean", 7.1, "https://m.media-amazon.com/images/M/MV5BMTkwOTQ4OTg0OV5BMl5BanBnXkFtZTgwMzQyOTM0OTE@._V1_.jpg"); 
-        addM("Memories", "Korean", 8.1, "https://m.media-amazon.com/images/M/MV5BOGViNTQ4ODUtZGU2Yi00OTc3LTk0YzQtNWY2YWUyNmY0NTcwXkEyXkFqcGdeQXVyODc0OTEyNDU@._V1_.jpg"); 
-        addM("Okja", "Korean", 7.3, "https://m.media-amazon.com/images/M/MV5BM2YxYmFjYWMtMzQ0My00MzQ2LTljYWMtM2E0Y2M2MTY2YWU4XkEyXkFqcGdeQXVyMTMxODk2OTU@._V1_.jpg"); 
-        addM("Burning", "Korean", 7.5, "https://m.media-amazon.com/images/M/MV5BMTQ0ODQ3MzQ0Ml5BMl5BanBnXkFtZTgwOTIyODg2NTM@._V1_.jpg"); 
-        addM("I Saw the Devil", "Korean", 7.8, "https://m.media-amazon.com/images/M/MV5BMjA1Nzc2ODk3NV5BMl5BanBnXkFtZTgwMjY3MjcwMTE@._V1_.jpg"); 
-
-        addM("RRR", "Tollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BODUwNDNjYzctODUxNy00ZTA2LWIyYTEtMDc5Y2E5ZjBmNTMzXkEyXkFqcGdeQXVyODE5NzE3OTE@._V1_.jpg");
-        addM("Baahubali", "Tollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BYWVlMjVhZWYtNWViNC00ODFkLTk1MmItYjU1MDY5ZDdhMTU3XkEyXkFqcGdeQXVyODIwMDI1NjM@._V1_.jpg");
-        addM("Baahubali 2", "Tollywood", 8.2, "https://m.media-amazon.com/images/M/MV5BOGNlMmRkODYtMWRhZS00MzlpLWI2MGEtMzRiMWRlYjNmZGRmXkEyXkFqcGdeQXVyMTQxNzMzNDI@._V1_.jpg"); 
-        addM("KGF 1", "Tollywood", 8.0, "https://m.media-amazon.com/images/M/MV5BZDNlNzBjMGUtYTA0Yy00OTI2LWJmZjMtODliYmUyYTI0OGFmXkEyXkFqcGdeQXVyODIwMDI1NjM@._V1_.jpg"); 
-        addM("KGF 2", "Tollywood", 8.2, "https://m.media-amazon.com/images/M/MV5BMjA2M2Y4MzItZDBiMS00YTc5LThjMjQtMzA0NWM1ZjI1MWY5XkEyXkFqcGdeQXVyMTEzNzg0Mjkx._V1_.jpg"); 
-        addM("Pushpa", "Tollywood", 7.6, "https://m.media-amazon.com/images/M/MV5BMmQ4YmM3NjgtNTExNC00ZTZhLWEwZTctYjdhOWI4ZWFlZjA2XkEyXkFqcGdeQXVyMTI1NDEyNTM5._V1_.jpg"); 
-        addM("Eega", "Tollywood", 7.8, "https://m.media-amazon.com/images/M/MV5BOGE3ZWRkOTQtZDk1Mi00ZGU2LWEzNTItZTNkY2JmOTM4NjUyXkEyXkFqcGdeQXVyODIwMDI1NjM@._V1_.jpg"); 
-        addM("Magadheera", "Tollywood", 7.7, "https://m.media-amazon.com/images/M/MV5BZmVjYWY1ZWMtZjA0MC00Yjg5LWIxN2ItOGU2MWMwY2E1MTc3XkEyXkFqcGdeQXVyNDY5MTUyNjU@._V1_.jpg"); 
-        addM("Arjun Reddy", "Tollywood", 7.9, "https://m.media-amazon.com/images/M/MV5BZWYxYjI4OGQtNjI3YS00ZTk1LTk0YmQtNWRlNDIyMTE2ZjZlXkEyXkFqcGdeQXVyMTI1NDEyNTM5._V1_.jpg"); 
-        addM("Vikram", "Tollywood", 8.3, "https://m.media-amazon.com/images/M/MV5BOTFkMTgxZmEtMWZkZS00NjAyLTg2ZjctYTE4M2U4YjY5NTM5XkEyXkFqcGdeQXVyMTI1NDEyNTM5._V1_.jpg"); 
-    }
-
-    private void addM(String t, String c, double r, String u) {
-        Movie m = new Movie(t, c, r, u);
-        trie.insert(t);
-        graph.addMovie(m);
+        service.loadBuiltIn();
+        restoreUserState();
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--bench-backend")) {
+            List<String> backend = BackendClient.locate(CatalogLoader.locate());
+            if (backend == null) {
+                System.err.println("No backend executable; build Backend_CPP or set -Dfilmforge.backend");
+                System.exit(1);
+            }
+            int n = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+            BackendClient.benchmark(backend, List.of("a", "the", "in", "s", "b", "r", "p", "3"), n, 64);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve-http")) {
+            FilmForgeService service = new FilmForgeService();
+            Path file = CatalogLoader.locate();
+            try {
+                if (file != null) service.load(file, (cat, movies) -> { });
+                else service.loadBuiltIn();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[Catalog] " + file + " unreadable, using built-in list: " + e);
+                service = new FilmForgeService();
+                service.loadBuiltIn();
+            }
+            new FilmForgeServer(service, args.length > 1 ? Integer.parseInt(args[1]) : 8080, FilmForgeServer.threads()).start();
+            return;
+        }
+        EdtMonitor.install();
         SwingUtilities.invokeLater(FilmForgeApp::new);
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package filmforge;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of benchmarks.jar: the usual JMH command line, with the GC
+// profiler always on so every result carries gc.alloc.rate.norm (bytes
+// allocated per operation) next to its time.
+//   java -jar benchmarks/target/benchmarks.jar                   everything
+//   java -jar benchmarks/target/benchmarks.jar Search -p titles=100000
+public final class Benchmarks {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder opts = new OptionsBuilder().parent(cmd);
+        boolean gc = cmd.getProfilers().stream().anyMatch(p -> p.getKlass().equals(GCProfiler.class.getName()) || p.getKlass().equals("gc"));
+        if (!gc) opts.addProfiler(GCProfiler.class);
+        new Runner(opts.build()).run();
+    }
+}
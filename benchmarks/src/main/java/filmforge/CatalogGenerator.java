@@ -0,0 +1,145 @@
+package filmforge;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+// Deterministic synthetic catalogs in the movies.txt format
+// (ID|Title|Category|Rating|URL). The same size and seed always give the
+// same file. Titles are 1-6 words drawn from a Zipf-weighted vocabulary
+// (about 17 characters on average) with the occasional sequel number or
+// subtitle; categories are Zipf-skewed so the big ones dwarf the tail, as
+// in a real catalog; ratings are roughly normal around 6.6.
+final class CatalogGenerator {
+    static final long SEED = 0x46696C6D466F7267L;
+    static final int[] SIZES = {10_000, 100_000, 1_000_000};
+
+    static final String[] CATEGORIES = {"Hollywood", "Bollywood", "Korean", "Tollywood", "Japanese", "French",
+            "Spanish", "British", "Chinese", "Italian", "German", "Nollywood", "Turkish", "Brazilian", "Iranian", "Thai"};
+
+    static final String[] WORDS = ("the of a and in love night man last dark day war story life world house "
+            + "girl king death time city black dead blood star home lost red one little secret heart moon "
+            + "return road river shadow dream fire light wild ghost lady island game family summer big blue "
+            + "great young street heaven brother sister queen empire legend golden silent broken hidden "
+            + "kingdom rising fall winter beyond edge machine dragon mountain ocean storm eye mind code "
+            + "angel devil boy child father mother son daughter friend stranger hunter killer soldier "
+            + "thief princess warrior doctor detective journey escape chase revenge promise truth lie "
+            + "memory forever never tomorrow yesterday midnight sun sky rain snow iron steel glass paper "
+            + "stone garden forest desert sea train bridge wall door window room hotel school station "
+            + "party wedding funeral dance song music symphony silence voice whisper echo mirror picture "
+            + "letter diary book last first final second third lonely happy crazy beautiful dangerous "
+            + "perfect deadly sweet bitter cold hot new old eternal lucky fearless brave true false "
+            + "inside outside under over after before between against without within paradise inferno "
+            + "horizon frontier voyage mission operation protocol project").split(" ");
+
+    static final String[] SUBTITLES = {"Part One", "Part Two", "The Beginning", "Reborn", "Origins",
+            "The Final Chapter", "Returns", "Resurrection", "Legacy", "Redemption"};
+
+    private static final String B62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    private final SplittableRandom rnd;
+    private final double[] wordCdf = zipfCdf(WORDS.length, 1.0);
+    private final double[] categoryCdf = zipfCdf(CATEGORIES.length, 1.2);
+    private final StringBuilder sb = new StringBuilder(128);
+
+    CatalogGenerator(long seed) { rnd = new SplittableRandom(seed); }
+
+    static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) cdf[i] = sum += 1 / Math.pow(i + 1, s);
+        for (int i = 0; i < n; i++) cdf[i] /= sum;
+        return cdf;
+    }
+
+    private int pick(double[] cdf) {
+        double u = rnd.nextDouble();
+        int lo = 0, hi = cdf.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cdf[mid] < u) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    String title() {
+        sb.setLength(0);
+        double u = rnd.nextDouble();
+        int words = u < 0.15 ? 1 : u < 0.45 ? 2 : u < 0.70 ? 3 : u < 0.85 ? 4 : u < 0.95 ? 5 : 6;
+        for (int w = 0; w < words; w++) {
+            String word = WORDS[pick(wordCdf)];
+            if (w > 0) sb.append(' ');
+            sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        double extra = rnd.nextDouble();
+        if (extra < 0.06) sb.append(' ').append(2 + rnd.nextInt(4));
+        else if (extra < 0.10) sb.append(": ").append(SUBTITLES[rnd.nextInt(SUBTITLES.length)]);
+        return sb.toString();
+    }
+
+    String category() { return CATEGORIES[pick(categoryCdf)]; }
+
+    double rating() {
+        double r = 6.6 + rnd.nextGaussian() * 1.0;
+        return Math.round(Math.max(1.0, Math.min(9.8, r)) * 10) / 10.0;
+    }
+
+    String url() {
+        sb.setLength(0);
+        sb.append("https://image.tmdb.org/t/p/w200/");
+        for (int i = 0; i < 27; i++) sb.append(B62.charAt(rnd.nextInt(62)));
+        return sb.append(".jpg").toString();
+    }
+
+    static CatalogStore generate(int n, long seed) {
+        CatalogGenerator g = new CatalogGenerator(seed);
+        CatalogStore store = new CatalogStore();
+        for (int i = 0; i < n; i++) store.add(g.title(), g.category(), g.rating(), g.url());
+        return store;
+    }
+
+    static void write(Path out, int n, long seed) throws IOException {
+        CatalogGenerator g = new CatalogGenerator(seed);
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < n; i++) {
+                w.write(Integer.toString(i + 1));
+                w.write('|');
+                w.write(g.title());
+                w.write('|');
+                w.write(g.category());
+                w.write('|');
+                w.write(Double.toString(g.rating()));
+                w.write('|');
+                w.write(g.url());
+                w.write('\n');
+            }
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Generated once per size under the temp directory and reused by later runs
+    static Path cached(int n) throws IOException {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "filmforge-bench");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("catalog-" + n + ".txt");
+        if (!Files.exists(file)) write(file, n, SEED);
+        return file;
+    }
+
+    // java -cp benchmarks.jar filmforge.CatalogGenerator <titles> <out> [seed]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CatalogGenerator <titles> <out> [seed]");
+            System.exit(1);
+        }
+        long t = System.nanoTime();
+        write(Paths.get(args[1]), Integer.parseInt(args[0]), args.length > 2 ? Long.parseLong(args[2]) : SEED);
+        System.out.printf("%s titles written to %s in %d ms%n", args[0], args[1], (System.nanoTime() - t) / 1_000_000);
+    }
+}
@@ -0,0 +1,75 @@
+package filmforge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// First page (50 rows) of filtered, sorted browse queries against
+// FacetIndex, from a broad unfiltered sort down to a tail category with a
+// narrow rating band, plus the index build itself.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class FacetBenchmark {
+    static final int PAGE = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    int titles;
+
+    CatalogStore store;
+    Trie trie;
+    FacetIndex index;
+
+    @Setup(Level.Trial)
+    public void build() {
+        store = CatalogGenerator.generate(titles, CatalogGenerator.SEED);
+        List<Movie> all = new ArrayList<>(store.size());
+        for (int i = 0; i < store.size(); i++) all.add(store.movie(i));
+        trie = new Trie();
+        trie.insertAll(all);
+        index = new FacetIndex(store, trie.sorted());
+    }
+
+    private List<Movie> firstPage(FacetIndex.Query q) { return index.query(q).page(0, PAGE); }
+
+    @Benchmark
+    public List<Movie> topRated() { return firstPage(new FacetIndex.Query().orderBy("-rating,title")); }
+
+    @Benchmark
+    public List<Movie> categoryByTitle() {
+        return firstPage(new FacetIndex.Query().category("Korean").rating(6, 9).orderBy("title,-rating"));
+    }
+
+    @Benchmark
+    public List<Movie> twoCategoriesNarrowBand() {
+        return firstPage(new FacetIndex.Query().category("Hollywood").category("Bollywood").rating(7.2, 7.4).orderBy("-rating,-title"));
+    }
+
+    @Benchmark
+    public List<Movie> tailCategoryNarrowBand() {
+        return firstPage(new FacetIndex.Query().category("Thai").rating(8.5, 8.6).orderBy("title"));
+    }
+
+    @Benchmark
+    public List<Movie> byCategoryThenRating() {
+        return firstPage(new FacetIndex.Query().rating(5, 10).orderBy("category,-rating"));
+    }
+
+    @Benchmark
+    public FacetIndex indexBuild() { return new FacetIndex(store, trie.sorted()); }
+}
@@ -0,0 +1,45 @@
+package filmforge;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ImageLoader's bytes-to-card-image path on a synthetic poster JPEG: a
+// TMDB w200 thumbnail and a full-size poster.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class ImageDecodeBenchmark {
+    @Param({"200x300", "1000x1500"})
+    String size;
+
+    byte[] jpeg;
+
+    @Setup(Level.Trial)
+    public void build() throws IOException {
+        // Keep ImageLoader's disk cache out of the user's home
+        System.setProperty("filmforge.thumbDir", Files.createTempDirectory("filmforge-bench-thumbs").toString());
+        int w = Integer.parseInt(size.substring(0, size.indexOf('x')));
+        int h = Integer.parseInt(size.substring(size.indexOf('x') + 1));
+        jpeg = PosterServer.jpeg(w, h);
+    }
+
+    @Benchmark
+    public BufferedImage decode() { return ImageLoader.decode(jpeg); }
+}
@@ -0,0 +1,86 @@
+package filmforge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Startup costs, each timed as a single cold-ish shot: parsing movies.txt,
+// building the prefix and fuzzy indexes, and opening a snapshot instead.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class IndexBuildBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int titles;
+
+    Path source, snapshot;
+    CatalogStore store;
+    List<Movie> all;
+
+    @Setup(Level.Trial)
+    public void build() throws IOException {
+        source = CatalogGenerator.cached(titles);
+        store = new CatalogStore();
+        CatalogLoader.parse(source, store);
+        all = new ArrayList<>(store.size());
+        for (int i = 0; i < store.size(); i++) all.add(store.movie(i));
+        Trie trie = new Trie();
+        trie.insertAll(all);
+        snapshot = Files.createTempFile("filmforge-bench", ".snap");
+        CatalogSnapshot.write(snapshot, CatalogSnapshot.stamp(source), store, trie);
+    }
+
+    @TearDown(Level.Trial)
+    public void clean() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public Map<String, MovieList> parse() throws IOException {
+        return CatalogLoader.parse(source, new CatalogStore());
+    }
+
+    @Benchmark
+    public Trie trieBuild() {
+        Trie trie = new Trie();
+        trie.insertAll(all);
+        trie.prepare();
+        return trie;
+    }
+
+    @Benchmark
+    public FuzzySearchEngine fuzzyBuild() {
+        FuzzySearchEngine fuzzy = new FuzzySearchEngine();
+        fuzzy.insertAll(all);
+        fuzzy.prepare();
+        return fuzzy;
+    }
+
+    // What a warm start does in place of parse() + trieBuild()
+    @Benchmark
+    public Trie snapshotOpen() {
+        Trie trie = new Trie();
+        if (!CatalogSnapshot.read(snapshot, source, new CatalogStore(), trie)) throw new IllegalStateException("stale snapshot");
+        return trie;
+    }
+}
@@ -0,0 +1,55 @@
+package filmforge;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One Barnes-Hut step of the interest graph layout (what
+// AdvancedGraphPanel.updatePhysics used to do on the EDT), driven directly
+// with no simulation thread. The graph is a star like the real one:
+// node 0 anchored in the middle, everything else sprung to it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class LayoutBenchmark {
+    @Param({"25", "500", "5000"})
+    int nodes;
+
+    ForceLayout layout;
+
+    // Fresh positions each iteration, so every iteration measures a graph
+    // that is still moving rather than one that has settled
+    @Setup(Level.Iteration)
+    public void build() {
+        SplittableRandom rnd = new SplittableRandom(3);
+        double[] x = new double[nodes], y = new double[nodes];
+        boolean[] anchored = new boolean[nodes];
+        anchored[0] = true;
+        x[0] = 425;
+        y[0] = 225;
+        for (int i = 1; i < nodes; i++) {
+            double a = rnd.nextDouble() * Math.PI * 2, d = 100 + rnd.nextInt(80);
+            x[i] = 425 + Math.cos(a) * d;
+            y[i] = 225 + Math.sin(a) * d;
+        }
+        layout = ForceLayout.detached(x, y, anchored);
+        layout.setBounds(850, 450);
+    }
+
+    @Benchmark
+    public double step() { return layout.step(); }
+}
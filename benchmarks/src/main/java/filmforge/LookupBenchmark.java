@@ -0,0 +1,71 @@
+package filmforge;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Point lookups: Graph.findMovie by title (a scan), category lists, and
+// decoding a row out of the columnar store.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class LookupBenchmark {
+    static final int KEYS = 256;
+
+    @Param({"10000", "100000", "1000000"})
+    int titles;
+
+    CatalogStore store;
+    Graph graph;
+    String[] names;
+    int[] ids;
+    int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        store = CatalogGenerator.generate(titles, CatalogGenerator.SEED);
+        graph = new Graph(store);
+        for (java.util.Map.Entry<String, MovieList> e : store.byCategory(0, store.size()).entrySet()) {
+            graph.addMovies(e.getKey(), e.getValue());
+        }
+        SplittableRandom rnd = new SplittableRandom(11);
+        names = new String[KEYS];
+        ids = new int[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            ids[i] = rnd.nextInt(store.size());
+            names[i] = store.title(ids[i]);
+        }
+    }
+
+    private int next() { return next = (next + 1) & (KEYS - 1); }
+
+    @Benchmark
+    public Movie findMovie() { return graph.findMovie(names[next()]); }
+
+    @Benchmark
+    public MovieList categoryList() { return graph.getMovies(store.category(ids[next()])); }
+
+    @Benchmark
+    public void decodeRow(Blackhole bh) {
+        int id = ids[next()];
+        bh.consume(store.title(id));
+        bh.consume(store.category(id));
+        bh.consume(store.rating(id));
+        bh.consume(store.imageUrl(id));
+    }
+}
@@ -0,0 +1,81 @@
+package filmforge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.JLabel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ImageLoader's whole network path against a local PosterServer: queue,
+// fetch, decode, disk store and hand-off to the label. CLIENTS threads
+// each ask for a poster never seen before and wait for it, like a screen
+// of cards filling in. throughput is posters per second; latency samples
+// how long a card waits, p99 included. ImageLoader reads
+// its proxy and concurrency once, so each fork sets them before first
+// touching it.
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(PosterFetchBenchmark.CLIENTS)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class PosterFetchBenchmark {
+    static final int CLIENTS = 64;
+
+    @Param({"4", "16", "64"})
+    int concurrency;
+
+    @Param({"0", "50"})
+    long latencyMs;
+
+    PosterServer server;
+    final AtomicLong next = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        server = new PosterServer(0, latencyMs);
+        System.setProperty("filmforge.posterProxy", server.proxy());
+        System.setProperty("filmforge.posterConcurrency", Integer.toString(concurrency));
+        // Keep ImageLoader's disk cache out of the user's home
+        System.setProperty("filmforge.thumbDir", Files.createTempDirectory("filmforge-bench-thumbs").toString());
+        if (ImageLoader.MAX_IN_FLIGHT != concurrency) throw new IllegalStateException("ImageLoader initialized too early");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        server.close();
+        if (ImageLoader.failed.sum() > 0) throw new IllegalStateException(ImageLoader.failed.sum() + " fetches failed");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput() throws InterruptedException { fetch(); }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void latency() throws InterruptedException { fetch(); }
+
+    private void fetch() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        JLabel label = new JLabel();
+        label.addPropertyChangeListener("icon", e -> { if (e.getNewValue() != null) done.countDown(); });
+        ImageLoader.load("https://image.tmdb.org/t/p/w200/" + next.getAndIncrement() + ".jpg", "Poster", label);
+        if (!done.await(1, TimeUnit.MINUTES)) throw new IllegalStateException("poster did not arrive");
+    }
+}
@@ -0,0 +1,100 @@
+package filmforge;
+
+import com.sun.net.httpserver.HttpServer;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.imageio.ImageIO;
+
+// Stand-in for the poster proxy: answers every GET with the same synthetic
+// poster JPEG after an optional delay, and counts what it served. Point
+// the app at it with -Dfilmforge.posterProxy=<proxy()>.
+//   java -cp benchmarks/target/benchmarks.jar filmforge.PosterServer [port] [latencyMs]
+public final class PosterServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService pool;
+    private final byte[] jpeg;
+    private final long latencyMillis;
+    final LongAdder requests = new LongAdder();
+
+    PosterServer(int port, long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.jpeg = jpeg(200, 300);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256);
+        // One thread per request, so a slow answer does not hold up the next
+        pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "poster-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(pool);
+        server.createContext("/", ex -> {
+            requests.increment();
+            try {
+                if (latencyMillis > 0) Thread.sleep(latencyMillis);
+                ex.getResponseHeaders().set("Content-Type", "image/jpeg");
+                ex.sendResponseHeaders(200, jpeg.length);
+                try (OutputStream out = ex.getResponseBody()) { out.write(jpeg); }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ex.close();
+            }
+        });
+        server.start();
+    }
+
+    // Prefix for filmforge.posterProxy; the poster URL is appended to it
+    String proxy() { return "http://127.0.0.1:" + server.getAddress().getPort() + "/?url="; }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        pool.shutdownNow();
+    }
+
+    // A poster-like JPEG: a gradient with blobs, so it compresses like art
+    // rather than like a flat fill
+    static byte[] jpeg(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(30, 40, 90), w, h, new Color(220, 120, 40)));
+        g.fillRect(0, 0, w, h);
+        SplittableRandom rnd = new SplittableRandom(5);
+        for (int i = 0; i < 200; i++) {
+            g.setColor(new Color(rnd.nextInt(0x1000000)));
+            g.fillOval(rnd.nextInt(w), rnd.nextInt(h), 5 + rnd.nextInt(w / 4), 5 + rnd.nextInt(h / 4));
+        }
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(img, "jpg", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8098;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        PosterServer s = new PosterServer(port, latency);
+        System.out.println("serving posters, -Dfilmforge.posterProxy=" + s.proxy());
+        while (true) {
+            TimeUnit.SECONDS.sleep(10);
+            System.out.println(s.requests.sum() + " requests");
+        }
+    }
+}
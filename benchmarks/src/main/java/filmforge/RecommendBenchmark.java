@@ -0,0 +1,62 @@
+package filmforge;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The desktop case: a fresh user who has played three titles asks for
+// picks, excluding what they have seen. Their own events only link those
+// three titles to each other, so every pick comes from the content
+// fallback; setup fails if there are none.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class RecommendBenchmark {
+    static final int PLAYED = 3, PICKS = 20;
+
+    @Param({"10000", "100000", "1000000"})
+    int titles;
+
+    Recommender recommender;
+    Set<Movie> seen;
+
+    @Setup(Level.Trial)
+    public void build() {
+        CatalogStore store = CatalogGenerator.generate(titles, CatalogGenerator.SEED);
+        List<Movie> all = new ArrayList<>(store.size());
+        for (int i = 0; i < store.size(); i++) all.add(store.movie(i));
+        Trie trie = new Trie();
+        trie.insertAll(all);
+        FacetIndex facets = new FacetIndex(store, trie.sorted());
+        recommender = new Recommender(store, () -> facets);
+        seen = new HashSet<>();
+        SplittableRandom rnd = new SplittableRandom(7);
+        for (int i = 0; i < PLAYED; i++) {
+            Movie m = store.movie(rnd.nextInt(store.size()));
+            recommender.record(m, Recommender.WATCH);
+            seen.add(m);
+        }
+        if (coldStart().isEmpty()) throw new IllegalStateException("no picks after " + PLAYED + " plays");
+    }
+
+    @Benchmark
+    public List<Movie> coldStart() { return recommender.recommend(PICKS, seen); }
+}
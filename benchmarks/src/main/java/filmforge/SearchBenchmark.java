@@ -0,0 +1,113 @@
+package filmforge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Query latency of the prefix Trie against the n-gram/BK-tree engine, for
+// the kinds of query each is meant for. Queries cycle through a fixed set
+// cut from real titles of the generated catalog. indexSize reports what
+// each index holds on the heap, in KB, as secondary results.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class SearchBenchmark {
+    static final int QUERIES = 256;
+    static final int LIMIT = 60;
+
+    @Param({"10000", "100000", "1000000"})
+    int titles;
+
+    Trie trie;
+    FuzzySearchEngine fuzzy;
+    String[] prefixes, substrings, typos;
+    int next;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long prefixKb, fuzzyKb;
+    }
+
+    @Setup(Level.Trial)
+    public void build() {
+        CatalogStore store = CatalogGenerator.generate(titles, CatalogGenerator.SEED);
+        List<Movie> all = new ArrayList<>(store.size());
+        for (int i = 0; i < store.size(); i++) all.add(store.movie(i));
+        trie = new Trie();
+        trie.insertAll(all);
+        trie.prepare();
+        fuzzy = new FuzzySearchEngine();
+        fuzzy.insertAll(all);
+        fuzzy.prepare();
+
+        SplittableRandom rnd = new SplittableRandom(7);
+        prefixes = new String[QUERIES];
+        substrings = new String[QUERIES];
+        typos = new String[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            String t = store.title(rnd.nextInt(store.size())).toLowerCase(Locale.ROOT);
+            prefixes[q] = t.substring(0, Math.min(t.length(), 1 + rnd.nextInt(5)));
+            int from = t.length() / 3;
+            substrings[q] = t.substring(from, Math.min(t.length(), from + 6));
+            typos[q] = typo(t, rnd);
+        }
+    }
+
+    // One substitution in the longest word, where the engine allows an edit
+    static String typo(String t, SplittableRandom rnd) {
+        String word = "";
+        for (String w : t.split(" ")) if (w.length() > word.length()) word = w;
+        if (word.length() < 4) return word;
+        char[] c = word.toCharArray();
+        int at = 1 + rnd.nextInt(c.length - 1);
+        c[at] = c[at] == 'e' ? 'a' : 'e';
+        return new String(c);
+    }
+
+    private int next() { return next = (next + 1) & (QUERIES - 1); }
+
+    @Benchmark
+    public List<Movie> triePrefix() { return trie.search(prefixes[next()], LIMIT); }
+
+    @Benchmark
+    public List<Movie> fuzzyPrefix() { return fuzzy.search(prefixes[next()], LIMIT); }
+
+    @Benchmark
+    public List<Movie> fuzzySubstring() { return fuzzy.search(substrings[next()], LIMIT); }
+
+    @Benchmark
+    public List<Movie> fuzzyTypo() { return fuzzy.search(typos[next()], LIMIT); }
+
+    @Benchmark
+    public long indexSize(Footprint f) {
+        f.prefixKb = trie.heapBytes() >> 10;
+        f.fuzzyKb = fuzzy.heapBytes() >> 10;
+        return f.prefixKb + f.fuzzyKb;
+    }
+
+    // What the search box runs: prefix hits topped up with fuzzy ones
+    @Benchmark
+    public List<Movie> combined() {
+        String q = prefixes[next()];
+        return IncrementalSearch.withFuzzy(trie.search(q, LIMIT), fuzzy, q, LIMIT);
+    }
+}
@@ -0,0 +1,73 @@
+package filmforge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The whole of FilmForgeService.load, which is what a user waits for:
+// parse or snapshot, prefix index, category graph, fuzzy index and facets.
+// cold starts without a snapshot and writes one, as a first run does; warm
+// starts from the snapshot the trial setup left behind.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class StartupBenchmark {
+    @Param({"100000", "1000000"})
+    int titles;
+
+    Path source, snapshot;
+
+    @Setup(Level.Trial)
+    public void build() throws IOException {
+        source = CatalogGenerator.cached(titles);
+        snapshot = Files.createTempFile("filmforge-bench", ".snap");
+        System.setProperty("filmforge.snapshot", snapshot.toString());
+        Files.delete(snapshot);
+        new FilmForgeService().load(source, (category, movies) -> { });
+        if (!Files.exists(snapshot)) throw new IllegalStateException("no snapshot written");
+    }
+
+    @TearDown(Level.Trial)
+    public void clean() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @State(Scope.Thread)
+    public static class NoSnapshot {
+        @Setup(Level.Invocation)
+        public void drop(StartupBenchmark b) throws IOException {
+            Files.deleteIfExists(b.snapshot);
+        }
+    }
+
+    @Benchmark
+    public FilmForgeService cold(NoSnapshot none) throws IOException {
+        FilmForgeService s = new FilmForgeService();
+        s.load(source, (category, movies) -> { });
+        return s;
+    }
+
+    @Benchmark
+    public FilmForgeService warm() throws IOException {
+        FilmForgeService s = new FilmForgeService();
+        s.load(source, (category, movies) -> { });
+        return s;
+    }
+}
@@ -0,0 +1,112 @@
+package filmforge;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JLabel;
+
+// End-to-end check of ThumbnailStore against a PosterServer: each run is
+// a fresh JVM that loads the same posters through ImageLoader, and the
+// server counts what reached the network. A warm run must fetch nothing;
+// a pack with the wrong version, or with damaged records, must be rebuilt
+// by fetching what it can no longer serve.
+//   java -cp benchmarks/target/benchmarks.jar filmforge.ThumbnailStoreCheck [posters]
+public final class ThumbnailStoreCheck {
+    public static void main(String[] args) throws Exception {
+        int posters = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        Path dir = Files.createTempDirectory("filmforge-thumb-check");
+        try (PosterServer server = new PosterServer(0, 0)) {
+            expect("cold run", run(server, dir, posters), posters);
+            expect("warm run", run(server, dir, posters), 0);
+
+            Path pack = pack(dir);
+            try (FileChannel ch = FileChannel.open(pack, StandardOpenOption.WRITE)) {
+                ch.write(ByteBuffer.allocate(4).putInt(0, ThumbnailStore.VERSION + 1), 4);
+            }
+            expect("run after a version change", run(server, dir, posters), posters);
+            expect("warm run after the rebuild", run(server, dir, posters), 0);
+
+            // Pixels changed in the first record fail its CRC; a broken
+            // record header halfway cuts the pack there, losing the rest
+            try (FileChannel ch = FileChannel.open(pack(dir), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ch.write(ByteBuffer.allocate(4).putInt(0, 0x01020304), pixels(ch, ThumbnailStore.HEADER_SIZE) + 100);
+                ch.write(ByteBuffer.allocate(4).putInt(0, 0xdeadbeef), record(ch, posters / 2));
+            }
+            expect("run after corruption", run(server, dir, posters), 1 + posters - posters / 2);
+            expect("warm run after the repair", run(server, dir, posters), 0);
+        }
+        System.out.println("ThumbnailStore check passed");
+    }
+
+    private static void expect(String what, long requests, long expected) {
+        if (requests != expected) throw new AssertionError(what + ": expected " + expected + " requests, got " + requests);
+        System.out.println(what + ": " + requests + " requests, ok");
+    }
+
+    // Runs one client JVM over the same store and returns the requests it made
+    private static long run(PosterServer server, Path dir, int posters) throws IOException, InterruptedException {
+        long before = server.requests.sum();
+        Process p = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Djava.awt.headless=true",
+                "-Dfilmforge.posterProxy=" + server.proxy(),
+                "-Dfilmforge.thumbDir=" + dir,
+                "-cp", System.getProperty("java.class.path"),
+                Client.class.getName(), Integer.toString(posters))
+                .inheritIO()
+                .start();
+        if (p.waitFor() != 0) throw new AssertionError("client exited with " + p.exitValue());
+        return server.requests.sum() - before;
+    }
+
+    // Offset of record n, walking the record headers from the first
+    private static long record(FileChannel ch, int n) throws IOException {
+        long at = ThumbnailStore.HEADER_SIZE;
+        ByteBuffer b = ByteBuffer.allocate(8);
+        for (int i = 0; i < n; i++) {
+            b.clear();
+            ch.read(b, at + 4);
+            int keyLen = b.getInt(0);
+            b.clear();
+            ch.read(b, at + 8 + keyLen);
+            at = pixels(ch, at) + 4L * b.getInt(0) * b.getInt(4);
+        }
+        return at;
+    }
+
+    private static long pixels(FileChannel ch, long record) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(4);
+        ch.read(b, record + 4);
+        return record + 8 + b.getInt(0) + 12;
+    }
+
+    private static Path pack(Path dir) throws IOException {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "thumbs-*.pack")) {
+            for (Path p : ds) return p;
+        }
+        throw new AssertionError("no pack in " + dir);
+    }
+
+    // One app start: asks for every poster and waits for them all
+    public static final class Client {
+        public static void main(String[] args) throws InterruptedException {
+            int posters = Integer.parseInt(args[0]);
+            CountDownLatch done = new CountDownLatch(posters);
+            for (int i = 0; i < posters; i++) {
+                JLabel label = new JLabel();
+                label.addPropertyChangeListener("icon", e -> { if (e.getNewValue() != null) done.countDown(); });
+                ImageLoader.load("https://image.tmdb.org/t/p/w200/" + i + ".jpg", "Poster", label);
+            }
+            if (!done.await(1, TimeUnit.MINUTES)) throw new IllegalStateException("posters did not arrive");
+            if (ImageLoader.failed.sum() > 0) throw new IllegalStateException(ImageLoader.failed.sum() + " fetches failed");
+            System.out.println("  " + ImageLoader.store.stats());
+            System.exit(0);
+        }
+    }
+}
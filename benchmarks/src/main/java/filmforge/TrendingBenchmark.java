@@ -0,0 +1,64 @@
+package filmforge;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Recording one play into TrendingTracker, and reading the top ten for the
+// last hour both as cached and as recomputed, after a day of skewed plays
+// over a catalog of the given size. Memory stays the same for every size.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class TrendingBenchmark {
+    static final int EVENTS = 1_000_000;
+
+    @Param({"10000", "1000000"})
+    int titles;
+
+    final long[] now = {0};
+    TrendingTracker tracker;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        tracker = new TrendingTracker(() -> now[0]);
+        random = new SplittableRandom(CatalogGenerator.SEED);
+        long step = TrendingTracker.Span.DAY.slotMillis * TrendingTracker.Span.DAY.slots / EVENTS;
+        for (int i = 0; i < EVENTS; i++) {
+            now[0] += step;
+            tracker.record(nextId(), 1f);
+        }
+    }
+
+    // Roughly Zipfian, so there are heavy hitters to find
+    private int nextId() { return (int) Math.min(titles - 1, 1 / Math.pow(random.nextDouble() + 1e-9, 0.9) - 1); }
+
+    @Benchmark
+    public void record() { tracker.record(nextId(), 1f); }
+
+    @Benchmark
+    public List<TrendingTracker.Entry> topCached() { return tracker.top(TrendingTracker.Span.HOUR, 10); }
+
+    @Benchmark
+    public List<TrendingTracker.Entry> topRecomputed() {
+        now[0] += TrendingTracker.REFRESH_MILLIS;
+        tracker.record(nextId(), 1f);
+        return tracker.top(TrendingTracker.Span.HOUR, 10);
+    }
+}